@@ -0,0 +1,121 @@
+package org.trickyplay.trickyplayapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentBatchRepositoryImpl;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Rows per second of the comments inserted one INSERT and one commit per comment (POST /comments replayed for every
+ * queued comment) and with the multi-row statements of POST /comments/batch (CommentBatchRepositoryImpl). Both write
+ * over a real connection, so the result includes the round trips and the commits that the batch saves.
+ * Needs a MySQL database migrated by Liquibase, the connection is configured with the DEFAULT_MYSQL_* environment
+ * variables of the default profile. Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommentBatchInsertBenchmark {
+    // the maximum size of a batch accepted by POST /comments/batch, every invocation inserts this many rows and the score is in rows per second
+    private static final int ROWS = 50;
+
+    private Connection connection;
+    private CommentBatchRepositoryImpl commentBatchRepository;
+    private TPUser author;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                "jdbc:mysql://" + System.getenv("DEFAULT_MYSQL_HOST") + ":" + System.getenv("DEFAULT_MYSQL_PORT") + "/" + System.getenv("DEFAULT_MYSQL_DATABASE")
+                        + "?allowPublicKeyRetrieval=true&useSSL=false&serverTimezone=UTC",
+                System.getenv("DEFAULT_MYSQL_USERNAME"),
+                System.getenv("DEFAULT_MYSQL_PASSWORD"));
+        connection.setAutoCommit(true);
+        commentBatchRepository = new CommentBatchRepositoryImpl(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+
+        try (PreparedStatement insertUser = connection.prepareStatement(
+                "INSERT INTO users (name, password, role, created_at, updated_at) VALUES (?, ?, 'USER', ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZoneOffset.UTC));
+            insertUser.setString(1, "bench_" + Long.toHexString(System.nanoTime() & 0xffffffL));
+            insertUser.setString(2, "not a password hash");
+            insertUser.setTimestamp(3, now);
+            insertUser.setTimestamp(4, now);
+            insertUser.executeUpdate();
+            try (ResultSet keys = insertUser.getGeneratedKeys()) {
+                keys.next();
+                author = TPUser.builder().id(keys.getLong(1)).build();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (PreparedStatement deleteComments = connection.prepareStatement("DELETE FROM comments WHERE author_user_id = ?");
+             PreparedStatement deleteUser = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+            deleteComments.setLong(1, author.getId());
+            deleteComments.executeUpdate();
+            deleteUser.setLong(1, author.getId());
+            deleteUser.executeUpdate();
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleInserts() throws SQLException {
+        // what Hibernate executes for Comment with GenerationType.IDENTITY - one statement per entity, read of the generated key, commit per request
+        for (Comment comment : newComments()) {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO comments (body, game_name, author_user_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                insert.setString(1, comment.getBody());
+                insert.setString(2, comment.getGameName());
+                insert.setLong(3, author.getId());
+                insert.setTimestamp(4, Timestamp.valueOf(comment.getCreatedAt()));
+                insert.setTimestamp(5, Timestamp.valueOf(comment.getUpdatedAt()));
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    comment.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void multiRowInsert() {
+        commentBatchRepository.insertAll(newComments());
+    }
+
+    private List<Comment> newComments() {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        return IntStream.range(0, ROWS)
+                .mapToObj(i -> Comment.builder()
+                        .body("queued comment " + i)
+                        .gameName("Snake")
+                        .author(author)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build())
+                .toList();
+    }
+}
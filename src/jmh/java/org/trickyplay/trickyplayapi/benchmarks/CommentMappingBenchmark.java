@@ -0,0 +1,99 @@
+package org.trickyplay.trickyplayapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.trickyplay.trickyplayapi.comments.controllers.CommentsController;
+import org.trickyplay.trickyplayapi.comments.dtos.CommentRepresentation;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.comments.services.CommentUtils;
+import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Mapping of a page of comments with the links built by linkTo(methodOn(...)) for every item (the mapper used before
+ * LinkFactory) and with the precompiled link templates of LinkFactory. Both run outside a request, so the links are
+ * relative, which leaves out the resolution of the base URI that is done once per request anyway.
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommentMappingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int items;
+
+    private List<CommentView> comments;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        comments = LongStream.rangeClosed(1, items)
+                .mapToObj(id -> new CommentView(id, "comment body " + id, "Snake", now, now, id % 5,
+                        id % 10, "user" + id % 10, Role.USER, now, now))
+                .toList();
+    }
+
+    @Benchmark
+    public void linkToMethodOn(Blackhole blackhole) {
+        for (CommentView comment : comments) {
+            blackhole.consume(mapWithLinkTo(comment));
+        }
+    }
+
+    @Benchmark
+    public void linkFactory(Blackhole blackhole) {
+        blackhole.consume(CommentUtils.mapViewsToCommentDTOs(comments));
+    }
+
+    // CommentUtils.mapToCommentDTO and UserUtils.mapToTPUserPublicInfoDTO before the link templates were precompiled
+    private static CommentRepresentation mapWithLinkTo(CommentView comment) {
+        TPUserRepresentation author = TPUserRepresentation.builder()
+                .id(comment.authorId())
+                .name(comment.authorName())
+                .role(comment.authorRole())
+                .createdAt(comment.authorCreatedAt())
+                .updatedAt(comment.authorUpdatedAt())
+                .build();
+        author.add(linkTo(methodOn(UsersController.class)
+                .getUser(author.getId(), null))
+                .withSelfRel());
+        author.add(linkTo(methodOn(UsersController.class)
+                .getUsers(0, 10, "id", "Asc", true))
+                .withRel("collection"));
+        author.add(linkTo(methodOn(UsersController.class)
+                .getUserComments(author.getId(), 0, 10, "id", "Asc", true))
+                .withRel("comments-by"));
+        author.add(linkTo(methodOn(UsersController.class)
+                .getUserReplies(author.getId(), 0, 10, "id", "Asc", true))
+                .withRel("replies-by"));
+
+        CommentRepresentation commentRepresentation = CommentRepresentation.builder()
+                .id(comment.id())
+                .body(comment.body())
+                .gameName(comment.gameName())
+                .author(author)
+                .createdAt(comment.createdAt())
+                .updatedAt(comment.updatedAt())
+                .build();
+        commentRepresentation.add(linkTo(methodOn(CommentsController.class)
+                .getSingleComment(commentRepresentation.getId(), null))
+                .withSelfRel());
+        commentRepresentation.add(linkTo(methodOn(UsersController.class)
+                .getUser(commentRepresentation.getAuthor().getId(), null))
+                .withRel("author"));
+        commentRepresentation.add(linkTo(methodOn(CommentsController.class)
+                .getCommentsByGameName(comment.gameName(), 0, 10, "id", "Asc", null, null, true, null))
+                .withRel("collection"));
+        return commentRepresentation;
+    }
+}
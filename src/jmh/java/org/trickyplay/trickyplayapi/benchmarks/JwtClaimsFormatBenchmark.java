@@ -0,0 +1,68 @@
+package org.trickyplay.trickyplayapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
+import org.trickyplay.trickyplayapi.users.services.JwtService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and verifying access tokens with the long claim names, ISO dates and the list of authorities (version 1) and
+ * with the compact claims (version 2). The size of the Authorization header sent with every authenticated request is
+ * reported next to the scores as the secondary metric authorizationHeaderBytes (HeaderSize).
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtClaimsFormatBenchmark {
+    private static final String SECRET_KEY = "ESCTr+2uf8DKNIKHkRqdN6eM3V7nM1YM6b5Y1obBF4o=";
+    private static final long EXPIRATION = 60 * 60 * 1000;
+
+    @Param({"legacy", "compact"})
+    private String format;
+
+    private JwtService jwtService;
+    private TPUserPrincipal principal;
+    private String token;
+    private long authorizationHeaderBytes;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET_KEY, EXPIRATION, format.equals("compact"));
+        principal = TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.ADMIN.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build();
+        token = jwtService.issueToken(principal);
+        authorizationHeaderBytes = ("Authorization: Bearer " + token).length();
+    }
+
+    @Benchmark
+    public String issue(HeaderSize headerSize) {
+        return jwtService.issueToken(principal);
+    }
+
+    @Benchmark
+    public VerifiedToken verify(HeaderSize headerSize) {
+        return jwtService.verify(token);
+    }
+
+    // an event counter holding a constant instead of a count - set once per iteration, so that it costs the measured methods nothing
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeaderSize {
+        public long authorizationHeaderBytes;
+
+        @Setup(Level.Iteration)
+        public void setUp(JwtClaimsFormatBenchmark benchmark) {
+            authorizationHeaderBytes = benchmark.authorizationHeaderBytes;
+        }
+    }
+}
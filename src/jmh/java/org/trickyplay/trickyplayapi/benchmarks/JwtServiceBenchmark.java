@@ -0,0 +1,116 @@
+package org.trickyplay.trickyplayapi.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
+import org.trickyplay.trickyplayapi.users.services.JwtService;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of issuing and verifying access tokens with the signing key and the parser built for every call (JwtService
+ * before they were cached) and with the key and the parser built once by JwtService. The verification is measured on
+ * several threads as well, the cached parser is shared by all of them. The single-parse verification of the filter is
+ * compared with the same verification behind VerifiedTokenCache, which serves a repeated token without checking the
+ * signature again.
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtServiceBenchmark {
+    private static final String SECRET_KEY = "ESCTr+2uf8DKNIKHkRqdN6eM3V7nM1YM6b5Y1obBF4o=";
+    private static final long EXPIRATION = 60 * 60 * 1000;
+
+    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
+    private TPUserPrincipal principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET_KEY, EXPIRATION);
+        verifiedTokenCache = new VerifiedTokenCache(true, 10_000, new SimpleMeterRegistry());
+        principal = TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.USER.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build();
+        token = jwtService.issueToken(principal);
+    }
+
+    @Benchmark
+    public String issueWithKeyPerCall() {
+        return Jwts.builder()
+                .setSubject(principal.getId().toString())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
+                .claim("userId", principal.getId().toString())
+                .claim("userName", principal.getName())
+                .claim("userRole", principal.getRole().name())
+                .claim("userCreatedAt", principal.getCreatedAt())
+                .claim("userUpdatedAt", principal.getUpdatedAt())
+                .signWith(keyPerCall(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String issueWithCachedKey() {
+        return jwtService.issueToken(principal);
+    }
+
+    // JwtAuthenticationFilter verified the signature and then parsed the token again to read the claims, both with a new key and a new parser
+    @Benchmark
+    public Claims verifyWithParserPerCall() {
+        Jwts.parserBuilder().setSigningKey(keyPerCall()).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(keyPerCall()).build().parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public TPUserPrincipal verifyWithCachedParser() {
+        jwtService.validateTokenBySignature(token);
+        return jwtService.extractPrincipal(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TPUserPrincipal verifyWithCachedParserConcurrently() {
+        jwtService.validateTokenBySignature(token);
+        return jwtService.extractPrincipal(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyOnce() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyWithVerifiedTokenCache() {
+        return verifiedTokenCache.get(token, jwtService::verify);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VerifiedToken verifyWithVerifiedTokenCacheConcurrently() {
+        return verifiedTokenCache.get(token, jwtService::verify);
+    }
+
+    private static Key keyPerCall() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+    }
+}
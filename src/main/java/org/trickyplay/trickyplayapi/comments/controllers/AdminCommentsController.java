@@ -0,0 +1,55 @@
+package org.trickyplay.trickyplayapi.comments.controllers;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import org.trickyplay.trickyplayapi.comments.services.CommentsExportService;
+import org.trickyplay.trickyplayapi.general.exports.ExportFormat;
+import org.trickyplay.trickyplayapi.general.exports.ExportWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+@Validated // validate parameters that are passed into a method
+@RestController
+@RequestMapping("admin/comments")
+@RequiredArgsConstructor
+public class AdminCommentsController {
+    private final CommentsExportService commentsExportService;
+
+    /**
+     * @param gameName name of the game from which comments are exported
+     * @param from     comments created at or after this moment (UTC, ISO-8601) are exported
+     * @param to       comments created before this moment (UTC, ISO-8601) are exported
+     * @param format   ndjson or csv
+     * @param afterId  id of the last comment received before the download was interrupted, 0 starts from the beginning of the range
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Timed("export-game-comments-timer")
+    public void exportGameComments(
+            @RequestParam(value = "gameName") @Pattern(regexp = "^(Snake|TicTacToe|Minesweeper)$", message = "invalid game name") String gameName,
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "format", defaultValue = "ndjson", required = false) @Pattern(regexp = "^(ndjson|csv)$", message = "invalid format") String format,
+            @RequestParam(value = "afterId", defaultValue = "0", required = false) @Min(0) long afterId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        CommentsExportService.Cursor cursor = commentsExportService.startAfter(gameName, from, afterId);
+        try (ExportWriter writer = ExportWriter.open(request, response, ExportFormat.of(format), "comments_" + gameName, CommentsExportService.COLUMNS)) {
+            commentsExportService.exportGameComments(gameName, to, cursor, writer);
+        }
+    }
+}
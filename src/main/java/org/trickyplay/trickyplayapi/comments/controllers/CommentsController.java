@@ -4,22 +4,29 @@ import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import org.trickyplay.trickyplayapi.comments.dtos.*;
 import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
 import org.trickyplay.trickyplayapi.comments.services.CommentsService;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
 
 import java.net.URI;
+import java.util.List;
 
 @Validated // validate parameters that are passed into a method
 @RestController
@@ -39,7 +46,11 @@ public class CommentsController {
      * @param pageNumber     number of the page returned
      * @param pageSize       number of entries in each page
      * @param sortBy         column to sort on
-     * @param orderDirection sort order. Can be ASC or DESC
+     * @param orderDirection sort order. Can be Asc or Dsc
+     * @param after          opaque cursor taken from the next link. When after or before is present the feed is scrolled with keyset (seek) pagination, pageNumber is ignored and totals are not calculated. An empty value starts from the first page
+     * @param before         opaque cursor taken from the prev link
+     * @param includeTotals  whether totalElements and totalPages should be calculated
+     * @param webRequest     used to answer If-None-Match / If-Modified-Since with 304 Not Modified
      * @return Page object with comments after filtering and sorting
      */
     @GetMapping("/feed")
@@ -49,7 +60,11 @@ public class CommentsController {
             @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
-            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "before", required = false) String before,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals, // false skips counting the elements, totalElements and totalPages are left out
+            WebRequest webRequest
     ) {
 //        int pageNo = pageNumber >= 0 ? pageNumber : 0;
 //        Set<String> orderValues = Set.of("Asc", "Dsc");
@@ -59,14 +74,53 @@ public class CommentsController {
 //        PagedModel.PageMetadata metadata = new PagedModel.PageMetadata(data.size(), 1, data.size(), 1);
 //        PagedModel<CommentRepresentation> pagedComments = new PagedModel<>(commentRepresentationCollection, metadata);
 
-        Sort.Direction sortDirection = Sort.Direction.fromString(orderDirection);
-        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(pageNumber, pageSize, sortBy, sortDirection);
-        return commentsService.getCommentsByGameName(gameName, commentsPageArgs);
+        // Sort.Direction.fromString accepts only asc/desc, "Dsc" is the notation used by this API
+        Sort.Direction sortDirection = orderDirection.equals("Dsc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
+        // the validator of the game is checked before any page is read - an aggregate over the comments of the game, usually served by the feed cache. checkNotModified compares it with If-None-Match / If-Modified-Since and sets the ETag and Last-Modified headers. When it returns true the status is already 304 and returning null tells Spring MVC that the response is complete
+        ResourceVersion feedVersion = commentsService.getCommentsFeedVersion(gameName);
+        if (webRequest.checkNotModified(feedVersion.etag("comments-feed", gameName, pageNumber, pageSize, sortBy, orderDirection, after, before, includeTotals), feedVersion.lastModifiedMillis())) {
+            return null;
+        }
+        return after != null || before != null
+                ? commentsService.getCommentsByGameName(gameName, commentsPageArgs, after, before)
+                : commentsService.getCommentsByGameName(gameName, commentsPageArgs);
+    }
+
+    /**
+     * @param gameName       name of the game from which comments are fetched
+     * @param pageNumber     number of the page returned
+     * @param pageSize       number of entries in each page
+     * @param sortBy         column to sort on
+     * @param orderDirection sort order. Can be Asc or Dsc
+     * @param repliesLimit   maximum number of replies embedded in each comment, the oldest ones are embedded. The remaining replies are available under the replies feed of the comment
+     * @param includeTotals  whether totalElements and totalPages should be calculated
+     * @return Page object with comments and their first replies
+     */
+    @GetMapping("/feed-with-replies")
+    @PreAuthorize("permitAll()")
+    public GetCommentsResponse getCommentsWithRepliesByGameName(
+            @RequestParam(value = "gameName", required = true) @Pattern(regexp = "^(Snake|TicTacToe|Minesweeper)$", message = "invalid sort argument") String gameName,
+            @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
+            @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "repliesLimit", defaultValue = "3", required = false) @Min(0) @Max(50) int repliesLimit,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals // false skips counting the elements, totalElements and totalPages are left out
+    ) {
+        Sort.Direction sortDirection = orderDirection.equals("Dsc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
+        return commentsService.getCommentsWithRepliesByGameName(gameName, commentsPageArgs, repliesLimit);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")
-    public CommentRepresentation getSingleComment(@PathVariable @Min(0) long id) {
+    public CommentRepresentation getSingleComment(@PathVariable @Min(0) long id, WebRequest webRequest) {
+        ResourceVersion commentVersion = commentsService.getCommentVersion(id);
+        // a missing comment falls through to getSingleComment, which answers 404
+        if (commentVersion.exists() && webRequest.checkNotModified(commentVersion.etag("comment", id), commentVersion.lastModifiedMillis())) {
+            return null;
+        }
         return commentsService.getSingleComment(id);
     }
 
@@ -86,6 +140,23 @@ public class CommentsController {
         return ResponseEntity.created(commentURI).body(commentRepresentation);
     }
 
+    // comments queued by a game client while offline. List<@Valid ...> together with @Validated on the class validates every element, a single invalid comment rejects the whole batch with 400 before anything is persisted
+    @PostMapping("/batch")
+    @PreAuthorize("hasAuthority('user:read') or hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    public ResponseEntity<AddCommentsResponse> addComments(
+            @RequestBody @NotEmpty @Size(max = 50) List<@Valid AddCommentRequest> addCommentRequests
+    ) {
+        TPUserPrincipal principal = (TPUserPrincipal) SecurityContextHolder.getContext()
+                .getAuthentication()
+                .getPrincipal();
+        AddCommentsResponse addCommentsResponse = commentsService.addComments(principal, addCommentRequests);
+
+        addCommentRequests.forEach(addCommentRequest -> addedCommentLengthSummary.record(addCommentRequest.getBody().length()));
+
+        // several resources are created, so there is no single Location - the self links of the representations point to them
+        return ResponseEntity.status(HttpStatus.CREATED).body(addCommentsResponse);
+    }
+
     @PatchMapping("/{id}")
     @PreAuthorize("hasAuthority('user:update') or hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     public CommentRepresentation editComment(
@@ -0,0 +1,17 @@
+package org.trickyplay.trickyplayapi.comments.dtos;
+
+import lombok.*;
+
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class AddCommentsResponse extends RepresentationModel {
+    // in the order of the requests
+    private List<CommentRepresentation> comments;
+}
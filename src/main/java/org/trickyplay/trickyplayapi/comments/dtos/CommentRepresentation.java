@@ -1,13 +1,17 @@
 package org.trickyplay.trickyplayapi.comments.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 
 import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.server.core.Relation;
 
+import org.trickyplay.trickyplayapi.replies.dtos.ReplyRepresentation;
 import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -22,4 +26,8 @@ public class CommentRepresentation extends RepresentationModel<CommentRepresenta
     private TPUserRepresentation author;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private long replyCount;
+    // first replies of the comment, present only in the feed with replies
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ReplyRepresentation> replies;
 }
@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.comments.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 
 import org.springframework.hateoas.RepresentationModel;
@@ -12,10 +14,14 @@ import java.util.List;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = false)
 public class GetCommentsResponse extends RepresentationModel {
-    private long totalElements;
-    private int totalPages;
+    // totals are left out when the client asks for includeTotals=false, totals and the page number are not known when the feed is scrolled with a cursor, the next and prev links are used instead
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPages;
     private int pageSize;
-    private int pageNumber;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer pageNumber;
     private boolean isLast;
     private List<CommentRepresentation> comments;
 }
@@ -49,6 +49,10 @@ public class Comment {
     @Pattern(regexp = "^(Snake|TicTacToe|Minesweeper)$", message = "invalid game name")
     private String gameName;
 
+    // Denormalized number of replies, changed only with atomic UPDATE statements (CommentRepository.incrementReplyCount...). The column is left out of the INSERT and UPDATE statements of the entity, so saving a Comment loaded before a concurrent reply does not overwrite the counter with a stale value
+    @Column(insertable = false, updatable = false)
+    private long replyCount;
+
     @NotNull
     @Column(nullable = false)
     private LocalDateTime createdAt; //ISO-8601 UTC
@@ -0,0 +1,9 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a comment in the activity summary and in the bulk exports, read in keyset chunks
+ */
+public record CommentExportRow(Long id, String body, String gameName, Long authorId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
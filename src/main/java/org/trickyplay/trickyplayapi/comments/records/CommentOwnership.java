@@ -0,0 +1,7 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+/**
+ * Columns of a comment needed to authorize its deletion and to invalidate the caches, read without loading the entity
+ */
+public record CommentOwnership(Long authorId, String gameName) {
+}
@@ -0,0 +1,9 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a comment a resumed bulk export continues from - the export of another game must not accept it as a cursor
+ */
+public record CommentPosition(String gameName, LocalDateTime createdAt) {
+}
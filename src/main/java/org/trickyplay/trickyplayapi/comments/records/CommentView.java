@@ -0,0 +1,22 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a comment and the public info of its author, selected with a JPQL constructor expression in a
+ * single join. Unlike the Comment entity it is not managed by the persistence context and does not trigger the eager
+ * loading of the author, so list endpoints read exactly the columns the representation needs.
+ */
+public record CommentView(Long id, String body, String gameName, LocalDateTime createdAt, LocalDateTime updatedAt, Long replyCount,
+                          Long authorId, String authorName, Role authorRole,
+                          LocalDateTime authorCreatedAt, LocalDateTime authorUpdatedAt) {
+    public static CommentView of(Comment comment) {
+        TPUser author = comment.getAuthor();
+        return new CommentView(comment.getId(), comment.getBody(), comment.getGameName(), comment.getCreatedAt(), comment.getUpdatedAt(), comment.getReplyCount(),
+                author.getId(), author.getName(), author.getRole(), author.getCreatedAt(), author.getUpdatedAt());
+    }
+}
@@ -0,0 +1,69 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+import org.trickyplay.trickyplayapi.general.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of a comment in a keyset (seek) ordered feed. The cursor holds the value of the sort column and the id of the
+ * comment, the id breaks ties between comments with the same timestamp. Clients receive it as an opaque base64url string.
+ *
+ * @param sortBy column the feed is sorted on - id, createdAt or updatedAt
+ * @param value  value of the sort column of the comment the cursor points to
+ * @param id     id of the comment the cursor points to
+ */
+public record CommentsCursor(String sortBy, String value, long id) {
+    private static final String SEPARATOR = "|";
+
+    public static CommentsCursor of(CommentView comment, String sortBy) {
+        String value = switch (sortBy) {
+            case "createdAt" -> comment.createdAt().toString();
+            case "updatedAt" -> comment.updatedAt().toString();
+            default -> comment.id().toString();
+        };
+        return new CommentsCursor(sortBy, value, comment.id());
+    }
+
+    /**
+     * @param encodedCursor  cursor received from the client
+     * @param expectedSortBy column the client currently sorts on, a cursor issued for another column is rejected
+     * @return decoded cursor
+     * @throws InvalidCursorException if the cursor is malformed or was issued for a different sort column
+     */
+    public static CommentsCursor decode(String encodedCursor, String expectedSortBy) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(encodedCursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(encodedCursor);
+        }
+
+        String[] parts = decoded.split("\\" + SEPARATOR, 3);
+        if (parts.length != 3 || !parts[0].equals(expectedSortBy)) {
+            throw new InvalidCursorException(encodedCursor);
+        }
+        try {
+            CommentsCursor cursor = new CommentsCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+            if (!cursor.sortBy().equals("id")) {
+                cursor.timestamp(); // fail fast on a tampered timestamp
+            }
+            return cursor;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidCursorException(encodedCursor);
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime timestamp() {
+        return LocalDateTime.parse(value);
+    }
+}
@@ -0,0 +1,15 @@
+package org.trickyplay.trickyplayapi.comments.records;
+
+import java.util.List;
+
+/**
+ * Data of a page of the comments feed without the representation built around it. The views are immutable, so a cached
+ * page is shared safely, while the links (absolute, built from the host of the request) and the mutable representations
+ * are created for every request.
+ *
+ * @param totalElements null when the page was read without totals
+ * @param totalPages    null when the page was read without totals
+ */
+public record CommentsFeedPage(List<CommentView> comments, int pageSize, int pageNumber, boolean isLast,
+                               Long totalElements, Integer totalPages) {
+}
@@ -0,0 +1,16 @@
+package org.trickyplay.trickyplayapi.comments.repositories;
+
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+
+import java.util.List;
+
+// Custom Spring Data fragment, CommentRepository extends it and Spring Data delegates the calls to CommentBatchRepositoryImpl (the Impl suffix is the default postfix of fragment implementations)
+public interface CommentBatchRepository {
+    /**
+     * Inserts the comments with multi-row INSERT statements, bypassing the persistence context. The generated ids are
+     * set on the passed comments, the same way persist does.
+     *
+     * @param comments new comments with the author set, the author is referenced by id only
+     */
+    void insertAll(List<Comment> comments);
+}
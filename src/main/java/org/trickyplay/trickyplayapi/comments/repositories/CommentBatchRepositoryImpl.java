@@ -0,0 +1,66 @@
+package org.trickyplay.trickyplayapi.comments.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Comment.id is generated with GenerationType.IDENTITY - Hibernate has to execute every INSERT right away to learn the id, so JDBC batching of the inserts is disabled for the entity. Switching to a sequence-style generator would need a table emulating sequences in MySQL, which is one more round trip per allocation block and a schema change of the existing rows.
+// Instead the comments are inserted with a hand-written multi-row INSERT ... VALUES (...), (...), one round trip and one parse per statement. The JDBC connection of the current JPA transaction is used, so the rows are committed or rolled back together with the rest of the transaction.
+// For a multi-row INSERT whose number of rows is known in advance (a "simple insert") InnoDB assigns consecutive AUTO_INCREMENT values in every innodb_autoinc_lock_mode, which is what Connector/J relies on when it returns the generated keys of all rows
+@RequiredArgsConstructor
+public class CommentBatchRepositoryImpl implements CommentBatchRepository {
+    // bounds the length of the statement and the number of bind parameters (5 per row)
+    static final int ROWS_PER_STATEMENT = 100;
+
+    private static final String INSERT_PREFIX = "INSERT INTO comments (body, game_name, author_user_id, created_at, updated_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void insertAll(List<Comment> comments) {
+        for (int from = 0; from < comments.size(); from += ROWS_PER_STATEMENT) {
+            insertChunk(comments.subList(from, Math.min(from + ROWS_PER_STATEMENT, comments.size())));
+        }
+    }
+
+    private void insertChunk(List<Comment> chunk) {
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), ROW_PLACEHOLDERS));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int parameterIndex = 1;
+            for (Comment comment : chunk) {
+                preparedStatement.setString(parameterIndex++, comment.getBody());
+                preparedStatement.setString(parameterIndex++, comment.getGameName());
+                preparedStatement.setLong(parameterIndex++, comment.getAuthor().getId());
+                // bound as Timestamp like Hibernate binds LocalDateTime, so the driver applies the same time zone conversion to both write paths
+                preparedStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(comment.getCreatedAt()));
+                preparedStatement.setTimestamp(parameterIndex++, Timestamp.valueOf(comment.getUpdatedAt()));
+            }
+            return preparedStatement;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != chunk.size()) {
+            throw new IllegalStateException("Expected " + chunk.size() + " generated keys, got " + keys.size());
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            // Connector/J names the column GENERATED_KEY, every map holds just the id
+            chunk.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package org.trickyplay.trickyplayapi.comments.repositories;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
+import org.trickyplay.trickyplayapi.comments.records.CommentOwnership;
+import org.trickyplay.trickyplayapi.comments.records.CommentPosition;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentBatchRepository {
+    // Projection used by the list endpoints - one join selecting only the columns of CommentRepresentation. Selecting the entities instead makes Hibernate materialize a managed TPUser for every author (@ManyToOne is EAGER)
+    String SELECT_COMMENT_VIEW = """
+            select new org.trickyplay.trickyplayapi.comments.records.CommentView(
+                c.id, c.body, c.gameName, c.createdAt, c.updatedAt, c.replyCount,
+                a.id, a.name, a.role, a.createdAt, a.updatedAt)
+            from Comment c join c.author a
+            """;
 
-public interface CommentRepository extends JpaRepository<Comment, Long> {
     Page<Comment> findAll(Pageable page);
 
     Page<Comment> findAllByAuthorId(Long authorId, Pageable page);
@@ -20,7 +39,141 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> findAllByIdIn(List<Long> ids); // where x.id in ?1
 
+    // Slice only knows whether a next slice is available - Spring Data fetches pageSize + 1 rows and does not issue the COUNT query that Page requires
+    @Query(SELECT_COMMENT_VIEW + "where c.gameName = :gameName")
+    Slice<CommentView> findSliceByGameName(@Param("gameName") String gameName, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + "where a.id = :authorId")
+    Slice<CommentView> findSliceByAuthorId(@Param("authorId") Long authorId, Pageable page);
+
+    // Chunks of the activity summary - every chunk continues after the last id of the previous one, which is a seek on the (author_id, id) entries of the foreign key index. No entity is loaded, so the persistence context does not grow with the chunks
+    @Query("select new org.trickyplay.trickyplayapi.comments.records.CommentExportRow(c.id, c.body, c.gameName, c.author.id, c.createdAt, c.updatedAt) from Comment c where c.author.id = :authorId and c.id > :afterId order by c.id")
+    List<CommentExportRow> findExportRowsByAuthorIdAfterId(@Param("authorId") long authorId, @Param("afterId") long afterId, Pageable page);
+
+    // Chunks of the bulk export of a game - a seek on comments_game_name_created_at (game_name, created_at, id), so every chunk is a range scan of the index without sorting.
+    // The first chunk starts at (from, 0), every next one after the (createdAt, id) of the last comment of the previous chunk
+    @Query("""
+            select new org.trickyplay.trickyplayapi.comments.records.CommentExportRow(c.id, c.body, c.gameName, c.author.id, c.createdAt, c.updatedAt)
+            from Comment c
+            where c.gameName = :gameName
+            and c.createdAt < :to
+            and (c.createdAt > :afterCreatedAt or (c.createdAt = :afterCreatedAt and c.id > :afterId))
+            order by c.createdAt, c.id
+            """)
+    List<CommentExportRow> findExportRowsByGameNameAfterCursor(@Param("gameName") String gameName, @Param("to") LocalDateTime to, @Param("afterCreatedAt") LocalDateTime afterCreatedAt, @Param("afterId") long afterId, Pageable page);
+
+    // Ownership check of the deletion - the author is read as the foreign key, without the EAGER TPUser and the replies that loading the entity brings along
+    @Query("select new org.trickyplay.trickyplayapi.comments.records.CommentOwnership(c.author.id, c.gameName) from Comment c where c.id = :id")
+    Optional<CommentOwnership> findOwnershipById(@Param("id") long id);
+
+    // A single DELETE statement, the replies have to be removed first (ReplyRepository.deleteAllByParentCommentId). Deleting the entity would load it again with every reply to cascade the removal row by row (orphanRemoval)
+    @Transactional
+    @Modifying
+    @Query("delete from Comment c where c.id = :id")
+    int deleteByIdInBulk(@Param("id") long id);
+
+    // resuming the bulk export of a game from the id of the last exported comment
+    @Query("select new org.trickyplay.trickyplayapi.comments.records.CommentPosition(c.gameName, c.createdAt) from Comment c where c.id = :id")
+    Optional<CommentPosition> findPositionById(@Param("id") long id);
+
+    // part of the version of the cached activity summaries, see ActivitySummaryExportService
+    @Query("select max(c.updatedAt) from Comment c where c.author.id = :authorId")
+    LocalDateTime findLatestUpdatedAtByAuthorId(@Param("authorId") long authorId);
+
+    long countByGameName(String gameName);
+
+    long countByAuthorId(Long authorId);
+
     // The findAllCommentsWithAuthors query below is equivalent to the findAll query because the author field in the Comment entity is in the @ManyToOne relationship with the TPUser entity, and the default fetch type for @ManyToOne is fetch = FetchType.EAGER
     @Query("Select c from Comment c left join fetch c.author")
     Page<Comment> findAllCommentsWithAuthors(Pageable page);
+
+    // Validators for conditional GET requests - aggregates over the indexed columns, no entity is loaded. The reply counters are part of the representation but adding a reply does not touch updatedAt of the comment, so their sum is a part of the version as well
+    @Query("select new org.trickyplay.trickyplayapi.general.records.ResourceVersion(count(c), max(c.updatedAt), max(a.updatedAt), sum(c.replyCount)) from Comment c join c.author a where c.id = :id")
+    ResourceVersion findVersionById(@Param("id") long id);
+
+    // the validator of all feeds of a game, cached by CommentsFeedCache until a write touches the game
+    @Query("select new org.trickyplay.trickyplayapi.general.records.ResourceVersion(count(c), max(c.updatedAt), max(a.updatedAt), sum(c.replyCount)) from Comment c join c.author a where c.gameName = :gameName")
+    ResourceVersion findVersionByGameName(@Param("gameName") String gameName);
+
+    // Denormalized reply counter. A single UPDATE ... SET reply_count = reply_count + 1 is atomic in InnoDB - the row lock serializes concurrent replies, so no increment is lost as it would be with read-modify-write of the entity field.
+    // The statements do not touch the persistence context, a Comment that is already loaded keeps the old value until it is read again
+    @Transactional
+    @Modifying
+    @Query("update Comment c set c.replyCount = c.replyCount + 1 where c.id = :id")
+    int incrementReplyCount(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("update Comment c set c.replyCount = c.replyCount - 1 where c.id = :id and c.replyCount > 0")
+    int decrementReplyCount(@Param("id") long id);
+
+    // Purge of a deleted account, see AccountPurgeService. The replies of the account are subtracted from the counters of the comments they were written under, for the same chunk that ReplyRepository.deleteChunkByAuthorId removes next (ORDER BY id LIMIT n).
+    // It has to run before the replies are deleted. MySQL does not support LIMIT in an IN subquery, the chunk is a derived table
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE comments c JOIN (
+                SELECT t.parent_comment_id, COUNT(*) AS n FROM (
+                    SELECT parent_comment_id FROM replies WHERE author_user_id = :authorId ORDER BY id LIMIT :limit
+                ) t GROUP BY t.parent_comment_id
+            ) x ON x.parent_comment_id = c.id
+            SET c.reply_count = GREATEST(c.reply_count - x.n, 0)
+            """, nativeQuery = true)
+    int subtractChunkOfRepliesOfAuthor(@Param("authorId") long authorId, @Param("limit") int limit);
+
+    // The replies under the comments are deleted first (AccountPurgeService.purgeChunkOfRepliesToComments), the foreign key rejects the chunk if a reply was added in the meantime
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM comments WHERE author_user_id = :authorId ORDER BY id LIMIT :limit", nativeQuery = true)
+    int deleteChunkByAuthorId(@Param("authorId") long authorId, @Param("limit") int limit);
+
+    // Repair of the drift of the counters (writes that bypassed the services, manual fixes in the database...). Only the rows whose counter differs are updated, a batch of ids at a time to keep the row locks short
+    @Transactional
+    @Modifying
+    @Query("""
+            update Comment c set c.replyCount = (select count(r) from Reply r where r.parentComment = c)
+            where c.id between :fromId and :toId
+            and c.replyCount <> (select count(r) from Reply r where r.parentComment = c)
+            """)
+    int reconcileReplyCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("select coalesce(max(c.id), 0) from Comment c")
+    long findMaxId();
+
+    // Keyset (seek) pagination - instead of skipping OFFSET rows, every query starts right after the last row the client has seen.
+    // Returning a List instead of a Page means Spring Data only applies the limit and sort of the pageable and does not issue a COUNT query.
+    // The pageable passed to the queries below must sort by the seek column and then by id, in the same direction as the comparison.
+    @Query(SELECT_COMMENT_VIEW + "where c.gameName = :gameName")
+    List<CommentView> findWindowByGameName(@Param("gameName") String gameName, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + "where c.gameName = :gameName and c.id > :id")
+    List<CommentView> findAllByGameNameAndIdGreaterThan(@Param("gameName") String gameName, @Param("id") Long id, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + "where c.gameName = :gameName and c.id < :id")
+    List<CommentView> findAllByGameNameAndIdLessThan(@Param("gameName") String gameName, @Param("id") Long id, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + """
+            where c.gameName = :gameName
+            and (c.createdAt > :createdAt or (c.createdAt = :createdAt and c.id > :id))
+            """)
+    List<CommentView> findAllByGameNameAfterCreatedAtCursor(@Param("gameName") String gameName, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + """
+            where c.gameName = :gameName
+            and (c.createdAt < :createdAt or (c.createdAt = :createdAt and c.id < :id))
+            """)
+    List<CommentView> findAllByGameNameBeforeCreatedAtCursor(@Param("gameName") String gameName, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + """
+            where c.gameName = :gameName
+            and (c.updatedAt > :updatedAt or (c.updatedAt = :updatedAt and c.id > :id))
+            """)
+    List<CommentView> findAllByGameNameAfterUpdatedAtCursor(@Param("gameName") String gameName, @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id, Pageable page);
+
+    @Query(SELECT_COMMENT_VIEW + """
+            where c.gameName = :gameName
+            and (c.updatedAt < :updatedAt or (c.updatedAt = :updatedAt and c.id < :id))
+            """)
+    List<CommentView> findAllByGameNameBeforeUpdatedAtCursor(@Param("gameName") String gameName, @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id, Pageable page);
 }
@@ -24,14 +24,15 @@ public class CommentRepresentationAssembler implements RepresentationModelAssemb
                 .id(comment.getId())
                 .body(comment.getBody())
                 .gameName(comment.getGameName())
-                .author(UserUtils.mapToTPUserPublicInfoDTO(comment.getAuthor()))
+                .author(UserUtils.mapToTPUserPublicInfoDTO(comment.getAuthor().getId(), comment.getAuthor().getName(), comment.getAuthor().getRole(), comment.getAuthor().getCreatedAt(), comment.getAuthor().getUpdatedAt()))
                 .createdAt(comment.getCreatedAt())
                 .updatedAt(comment.getUpdatedAt())
+                .replyCount(comment.getReplyCount())
                 .build();
 
-        commentRepresentation.add(linkTo(methodOn(CommentsController.class).getSingleComment(commentRepresentation.getId())).withSelfRel());
-        commentRepresentation.add(linkTo(methodOn(UsersController.class).getUser(commentRepresentation.getAuthor().getId())).withRel("author"));
-        commentRepresentation.add(linkTo(methodOn(CommentsController.class).getCommentsByGameName(comment.getGameName(), 0, 10, "id", "Asc")).withRel("collection"));
+        commentRepresentation.add(linkTo(methodOn(CommentsController.class).getSingleComment(commentRepresentation.getId(), null)).withSelfRel());
+        commentRepresentation.add(linkTo(methodOn(UsersController.class).getUser(commentRepresentation.getAuthor().getId(), null)).withRel("author"));
+        commentRepresentation.add(linkTo(methodOn(CommentsController.class).getCommentsByGameName(comment.getGameName(), 0, 10, "id", "Asc", null, null, true, null)).withRel("collection"));
 
         return commentRepresentation;
     }
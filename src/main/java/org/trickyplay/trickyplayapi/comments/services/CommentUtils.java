@@ -1,17 +1,14 @@
 package org.trickyplay.trickyplayapi.comments.services;
 
-import org.trickyplay.trickyplayapi.comments.controllers.CommentsController;
 import org.trickyplay.trickyplayapi.comments.dtos.CommentRepresentation;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
-import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.general.links.LinkFactory;
 import org.trickyplay.trickyplayapi.users.services.UserUtils;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
 public class CommentUtils {
     private CommentUtils() {
     }
@@ -22,24 +19,33 @@ public class CommentUtils {
                 .collect(Collectors.toList());
     }
 
+    public static List<CommentRepresentation> mapViewsToCommentDTOs(List<CommentView> comments) {
+        return comments.stream()
+                .map(CommentUtils::mapToCommentDTO)
+                .collect(Collectors.toList());
+    }
+
     public static CommentRepresentation mapToCommentDTO(Comment comment) {
+        return mapToCommentDTO(CommentView.of(comment));
+    }
+
+    public static CommentRepresentation mapToCommentDTO(CommentView comment) {
         CommentRepresentation commentRepresentation = CommentRepresentation.builder()
-                .id(comment.getId())
-                .body(comment.getBody())
-                .gameName(comment.getGameName())
-                .author(UserUtils.mapToTPUserPublicInfoDTO(comment.getAuthor()))
-                .createdAt(comment.getCreatedAt())
-                .updatedAt(comment.getUpdatedAt())
+                .id(comment.id())
+                .body(comment.body())
+                .gameName(comment.gameName())
+                .author(UserUtils.mapToTPUserPublicInfoDTO(comment.authorId(), comment.authorName(), comment.authorRole(), comment.authorCreatedAt(), comment.authorUpdatedAt()))
+                .createdAt(comment.createdAt())
+                .updatedAt(comment.updatedAt())
+                .replyCount(comment.replyCount())
                 .build();
 
-        commentRepresentation.add(linkTo(methodOn(CommentsController.class)
-                .getSingleComment(commentRepresentation.getId()))
+        // precompiled link templates instead of linkTo(methodOn(...)) - this runs for every comment of a page
+        commentRepresentation.add(LinkFactory.comment(commentRepresentation.getId())
                 .withSelfRel());
-        commentRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUser(commentRepresentation.getAuthor().getId()))
+        commentRepresentation.add(LinkFactory.user(commentRepresentation.getAuthor().getId())
                 .withRel("author"));
-        commentRepresentation.add(linkTo(methodOn(CommentsController.class)
-                .getCommentsByGameName(comment.getGameName(), 0, 10, "id", "Asc"))
+        commentRepresentation.add(LinkFactory.commentsOfGame(comment.gameName())
                 .withRel("collection"));
         return commentRepresentation;
     }
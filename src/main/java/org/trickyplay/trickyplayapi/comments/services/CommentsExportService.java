@@ -0,0 +1,85 @@
+package org.trickyplay.trickyplayapi.comments.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
+import org.trickyplay.trickyplayapi.comments.records.CommentPosition;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.exceptions.InvalidCursorException;
+import org.trickyplay.trickyplayapi.general.exports.ExportWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Machine-readable export of all comments of a game created in a date range, for the administrators. The comments are
+ * ordered by createdAt and id and read in chunks with a seek on the (game_name, created_at, id) index, every chunk is
+ * written and flushed before the next one is read, so millions of rows take the memory of a single chunk.
+ * An interrupted download is resumed with the id of the last comment the client has received - its game and createdAt
+ * are looked up once and the seek continues from there.
+ */
+@Slf4j
+@Service
+public class CommentsExportService {
+    public static final List<String> COLUMNS = List.of("id", "body", "gameName", "authorId", "createdAt", "updatedAt");
+
+    private final CommentRepository commentRepository;
+    private final int chunkSize;
+
+    public CommentsExportService(CommentRepository commentRepository,
+                                 @Value("${application.exports.chunk-size:1000}") int chunkSize) {
+        this.commentRepository = commentRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    // the position the export starts after, resolved before the response is opened, so an unknown id or a comment of another game is still answered with 400
+    public Cursor startAfter(String gameName, LocalDateTime from, long afterId) {
+        if (afterId == 0) {
+            return new Cursor(from, 0);
+        }
+        CommentPosition position = commentRepository.findPositionById(afterId)
+                .filter(comment -> comment.gameName().equals(gameName))
+                .orElseThrow(() -> new InvalidCursorException(String.valueOf(afterId)));
+        if (position.createdAt().isBefore(from)) {
+            return new Cursor(from, 0);
+        }
+        return new Cursor(position.createdAt(), afterId);
+    }
+
+    /**
+     * @param gameName name of the game
+     * @param to       comments created before this moment (exclusive) are exported
+     * @param cursor   position to start after, see startAfter
+     * @param writer   NDJSON or CSV writer of the response
+     * @return number of the exported comments
+     */
+    public long exportGameComments(String gameName, LocalDateTime to, Cursor cursor, ExportWriter writer) throws IOException {
+        long rows = 0;
+        LocalDateTime lastCreatedAt = cursor.createdAt();
+        long lastId = cursor.id();
+        List<CommentExportRow> comments;
+        do {
+            comments = commentRepository.findExportRowsByGameNameAfterCursor(gameName, to, lastCreatedAt, lastId, PageRequest.of(0, chunkSize));
+            for (CommentExportRow comment : comments) {
+                writer.write(comment.id(), comment.body(), comment.gameName(), comment.authorId(), comment.createdAt(), comment.updatedAt());
+                lastCreatedAt = comment.createdAt();
+                lastId = comment.id();
+            }
+            writer.flush();
+            rows += comments.size();
+        } while (comments.size() == chunkSize);
+        return rows;
+    }
+
+    /**
+     * @param createdAt createdAt of the last exported comment, or the start of the range
+     * @param id        id of the last exported comment, 0 at the start of the range
+     */
+    public record Cursor(LocalDateTime createdAt, long id) {
+    }
+}
@@ -3,9 +3,9 @@ package org.trickyplay.trickyplayapi.comments.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,12 +13,23 @@ import org.springframework.transaction.annotation.Transactional;
 import org.trickyplay.trickyplayapi.comments.controllers.CommentsController;
 import org.trickyplay.trickyplayapi.comments.dtos.*;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.records.CommentOwnership;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.comments.records.CommentsCursor;
+import org.trickyplay.trickyplayapi.comments.records.CommentsFeedPage;
 import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
 import org.trickyplay.trickyplayapi.general.exceptions.CommentNotFoundException;
+import org.trickyplay.trickyplayapi.general.exceptions.InvalidCursorException;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
-import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
+import org.trickyplay.trickyplayapi.replies.dtos.ReplyRepresentation;
+import org.trickyplay.trickyplayapi.replies.records.EmbeddedReplyView;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.replies.services.ReplyUtils;
 import org.trickyplay.trickyplayapi.users.controllers.UsersController;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
@@ -27,7 +38,11 @@ import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -40,41 +55,144 @@ public class CommentsService {
     private final CommentRepository commentRepository;
     private final ReplyRepository replyRepository;
     private final TPUserRepository tPUserRepository;
+    private final TotalCountCache totalCountCache;
+    private final CommentsFeedCache commentsFeedCache;
 
     public GetCommentsResponse getCommentsByGameName(String gameName, CommentsPageArgs commentsPageArgs) {
+        // first pages take most of the traffic, deeper pages are read from the database
+        CommentsFeedPage feedPage = commentsPageArgs.pageNumber() == 0
+                ? commentsFeedCache.get(gameName, commentsPageArgs, () -> loadCommentsFeedPage(gameName, commentsPageArgs))
+                : loadCommentsFeedPage(gameName, commentsPageArgs);
+
+        // the representations and the links are built per request, the cached page is shared by all of them
+        GetCommentsResponse commentsResponse = GetCommentsResponse.builder()
+                .comments(CommentUtils.mapViewsToCommentDTOs(feedPage.comments()))
+                .totalElements(feedPage.totalElements())
+                .totalPages(feedPage.totalPages())
+                .pageSize(feedPage.pageSize())
+                .pageNumber(feedPage.pageNumber())
+                .isLast(feedPage.isLast())
+                .build();
+        commentsResponse.add(linkTo(methodOn(CommentsController.class)
+                .getCommentsByGameName(
+                        gameName,
+                        commentsPageArgs.pageNumber(),
+                        commentsPageArgs.pageSize(),
+                        commentsPageArgs.sortBy(),
+                        commentsPageArgs.orderDirection().name(),
+                        null,
+                        null,
+                        commentsPageArgs.includeTotals(),
+                        null
+                )).withSelfRel());
+        return commentsResponse;
+    }
+
+    private CommentsFeedPage loadCommentsFeedPage(String gameName, CommentsPageArgs commentsPageArgs) {
         Pageable pageable = PageRequest.of(
                 commentsPageArgs.pageNumber(),
                 commentsPageArgs.pageSize(),
                 commentsPageArgs.orderDirection(),
                 commentsPageArgs.sortBy()
         );
-        Page<Comment> commentPage = commentRepository.findAllByGameName(gameName, pageable);
-//        if (!commentPage.hasContent()) {
+        // Slice instead of Page - the total is taken from the count cache, so no COUNT query runs per request
+        // CommentView projection instead of entities - the page and the authors are read in a single statement
+        Slice<CommentView> commentSlice = commentRepository.findSliceByGameName(gameName, pageable);
+//        if (!commentSlice.hasContent()) {
 //            log.info("no content in comment page, game: {}, page: {}", gameName, pageNumber);
 //        }
 
-        List<CommentRepresentation> comments = CommentUtils.mapToCommentDTOs(commentPage.getContent());
+        Long totalElements = null;
+        Integer totalPages = null;
+        if (commentsPageArgs.includeTotals()) {
+            totalElements = totalCountCache.get(TotalCountCache.commentsOfGame(gameName), () -> commentRepository.countByGameName(gameName));
+            totalPages = TotalCountCache.totalPages(totalElements, commentSlice.getSize());
+        }
+        return new CommentsFeedPage(List.copyOf(commentSlice.getContent()), commentSlice.getSize(), commentSlice.getNumber(),
+                commentSlice.isLast(), totalElements, totalPages);
+    }
+
+    /**
+     * Keyset (seek) variant of the feed. Instead of OFFSET, which makes the database read and discard every skipped row,
+     * the query continues right after the row encoded in the cursor, so deep pages cost as much as the first one.
+     * Totals and the page number are not calculated in this mode, the client follows the next and prev links instead.
+     *
+     * @param after  cursor of the last comment the client has seen, empty or null when scrolling backwards
+     * @param before cursor of the first comment the client has seen, null when scrolling forwards
+     */
+    public GetCommentsResponse getCommentsByGameName(String gameName, CommentsPageArgs commentsPageArgs, String after, String before) {
+        if (after != null && !after.isEmpty() && before != null && !before.isEmpty()) {
+            throw new InvalidCursorException(after, before);
+        }
+        String sortBy = commentsPageArgs.sortBy();
+        int pageSize = commentsPageArgs.pageSize();
+        boolean backwards = before != null && !before.isEmpty();
+        CommentsCursor cursor = backwards
+                ? CommentsCursor.decode(before, sortBy)
+                : (after == null || after.isEmpty()) ? null : CommentsCursor.decode(after, sortBy);
+
+        // when scrolling backwards the rows preceding the cursor are read in reversed order and flipped afterwards
+        Sort.Direction scanDirection = backwards
+                ? (commentsPageArgs.orderDirection().isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC)
+                : commentsPageArgs.orderDirection();
+        // one extra row tells whether there is anything beyond this page without issuing a count query
+        // the id breaks the ties of the timestamps, sorting by id needs no tie-breaker (ORDER BY id, id)
+        Sort order = sortBy.equals("id") ? Sort.by(scanDirection, "id") : Sort.by(scanDirection, sortBy).and(Sort.by(scanDirection, "id"));
+        Pageable window = PageRequest.of(0, pageSize + 1, order);
+        List<CommentView> rows = new ArrayList<>(findCommentsWindow(gameName, cursor, scanDirection.isAscending(), window));
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows.remove(pageSize);
+        }
+        if (backwards) {
+            Collections.reverse(rows);
+        }
+        boolean hasNext = backwards ? cursor != null : hasMore;
+        boolean hasPrev = backwards ? hasMore : cursor != null;
 
         GetCommentsResponse commentsResponse = GetCommentsResponse.builder()
-                .comments(comments)
-                .pageSize(commentPage.getSize())
-                .totalElements(commentPage.getTotalElements())
-                .totalPages(commentPage.getTotalPages())
-                .pageSize(commentPage.getSize())
-                .pageNumber(commentPage.getNumber())
-                .isLast(commentPage.isLast())
+                .comments(CommentUtils.mapViewsToCommentDTOs(rows))
+                .pageSize(pageSize)
+                .isLast(!hasNext)
                 .build();
+
+        String orderDirection = commentsPageArgs.orderDirection().isAscending() ? "Asc" : "Dsc";
         commentsResponse.add(linkTo(methodOn(CommentsController.class)
-                .getCommentsByGameName(
-                        gameName,
-                        commentsPageArgs.pageNumber(),
-                        commentsPageArgs.pageSize(),
-                        commentsPageArgs.sortBy(),
-                        commentsPageArgs.orderDirection().name()
-                )).withSelfRel());
+                .getCommentsByGameName(gameName, 0, pageSize, sortBy, orderDirection, backwards ? null : (after == null ? "" : after), before, commentsPageArgs.includeTotals(), null))
+                .withSelfRel());
+        if (hasNext && !rows.isEmpty()) {
+            String nextCursor = CommentsCursor.of(rows.get(rows.size() - 1), sortBy).encode();
+            commentsResponse.add(linkTo(methodOn(CommentsController.class)
+                    .getCommentsByGameName(gameName, 0, pageSize, sortBy, orderDirection, nextCursor, null, commentsPageArgs.includeTotals(), null))
+                    .withRel("next"));
+        }
+        if (hasPrev && !rows.isEmpty()) {
+            String prevCursor = CommentsCursor.of(rows.get(0), sortBy).encode();
+            commentsResponse.add(linkTo(methodOn(CommentsController.class)
+                    .getCommentsByGameName(gameName, 0, pageSize, sortBy, orderDirection, null, prevCursor, commentsPageArgs.includeTotals(), null))
+                    .withRel("prev"));
+        }
         return commentsResponse;
     }
 
+    private List<CommentView> findCommentsWindow(String gameName, CommentsCursor cursor, boolean ascending, Pageable window) {
+        if (cursor == null) {
+            return commentRepository.findWindowByGameName(gameName, window);
+        }
+        return switch (cursor.sortBy()) {
+            case "createdAt" -> ascending
+                    ? commentRepository.findAllByGameNameAfterCreatedAtCursor(gameName, cursor.timestamp(), cursor.id(), window)
+                    : commentRepository.findAllByGameNameBeforeCreatedAtCursor(gameName, cursor.timestamp(), cursor.id(), window);
+            case "updatedAt" -> ascending
+                    ? commentRepository.findAllByGameNameAfterUpdatedAtCursor(gameName, cursor.timestamp(), cursor.id(), window)
+                    : commentRepository.findAllByGameNameBeforeUpdatedAtCursor(gameName, cursor.timestamp(), cursor.id(), window);
+            default -> ascending
+                    ? commentRepository.findAllByGameNameAndIdGreaterThan(gameName, cursor.id(), window)
+                    : commentRepository.findAllByGameNameAndIdLessThan(gameName, cursor.id(), window);
+        };
+    }
+
     public GetCommentsResponse getCommentsByAuthorId(long authorId, CommentsPageArgs commentsPageArgs) {
         Pageable pageable = PageRequest.of(
                 commentsPageArgs.pageNumber(),
@@ -85,18 +203,20 @@ public class CommentsService {
 //        if (!commentPage.hasContent()) {
 //            log.info("no content in comment page, game: {}, page: {}", gameName, pageNumber);
 //        }
-        Page<Comment> commentPage = commentRepository.findAllByAuthorId(authorId, pageable);
-        List<CommentRepresentation> comments = CommentUtils.mapToCommentDTOs(commentPage.getContent());
+        Slice<CommentView> commentSlice = commentRepository.findSliceByAuthorId(authorId, pageable);
+        List<CommentRepresentation> comments = CommentUtils.mapViewsToCommentDTOs(commentSlice.getContent());
 
         GetCommentsResponse commentsResponse = GetCommentsResponse.builder()
                 .comments(comments)
-                .pageSize(commentPage.getSize())
-                .totalElements(commentPage.getTotalElements())
-                .totalPages(commentPage.getTotalPages())
-                .pageSize(commentPage.getSize())
-                .pageNumber(commentPage.getNumber())
-                .isLast(commentPage.isLast())
+                .pageSize(commentSlice.getSize())
+                .pageNumber(commentSlice.getNumber())
+                .isLast(commentSlice.isLast())
                 .build();
+        if (commentsPageArgs.includeTotals()) {
+            long totalElements = totalCountCache.get(TotalCountCache.commentsOfAuthor(authorId), () -> commentRepository.countByAuthorId(authorId));
+            commentsResponse.setTotalElements(totalElements);
+            commentsResponse.setTotalPages(TotalCountCache.totalPages(totalElements, commentSlice.getSize()));
+        }
 
         commentsResponse.add(linkTo(methodOn(UsersController.class)
                 .getUserComments(
@@ -104,36 +224,87 @@ public class CommentsService {
                         commentsPageArgs.pageNumber(),
                         commentsPageArgs.pageSize(),
                         commentsPageArgs.sortBy(),
-                        commentsPageArgs.orderDirection().name()
+                        commentsPageArgs.orderDirection().name(),
+                        commentsPageArgs.includeTotals()
                 )).withSelfRel());
         return commentsResponse;
     }
 
+    // answers If-None-Match of the feed before a page is read, usually from CommentsFeedCache
+    public ResourceVersion getCommentsFeedVersion(String gameName) {
+        return commentsFeedCache.getVersion(gameName, () -> commentRepository.findVersionByGameName(gameName));
+    }
+
+    public ResourceVersion getCommentVersion(long id) {
+        return commentRepository.findVersionById(id);
+    }
+
     public CommentRepresentation getSingleComment(long id) {
         return commentRepository.findById(id)
                 .map(CommentUtils::mapToCommentDTO)
                 .orElseThrow(() -> new CommentNotFoundException(id));
     }
 
-    public List<Comment> getCommentsWithReplies(int pageNumber, int pageSize, String sortBy, Sort.Direction sortDirection) {
-        Pageable pageable = PageRequest.of(pageNumber, pageSize, sortDirection, sortBy);
-        Page<Comment> commentPage = commentRepository.findAll(pageable);
+    /**
+     * Page of the comments feed with the first replies of every comment embedded, so a thread is rendered without a reply
+     * request per comment. Three statements are issued regardless of the page size - one for the comments, one for the ids
+     * of the first replies of every comment (limited per comment in SQL) and one for these replies and their authors,
+     * which are grouped by the id of the parent comment.
+     *
+     * @param repliesLimit maximum number of replies embedded in each comment, the oldest replies are taken
+     */
+    public GetCommentsResponse getCommentsWithRepliesByGameName(String gameName, CommentsPageArgs commentsPageArgs, int repliesLimit) {
+        Pageable pageable = PageRequest.of(
+                commentsPageArgs.pageNumber(),
+                commentsPageArgs.pageSize(),
+                commentsPageArgs.orderDirection(),
+                commentsPageArgs.sortBy()
+        );
+        Slice<CommentView> commentSlice = commentRepository.findSliceByGameName(gameName, pageable);
+        List<CommentRepresentation> comments = CommentUtils.mapViewsToCommentDTOs(commentSlice.getContent());
 
-        List<Comment> comments = commentPage.getContent();
-        List<Long> ids = comments.stream()
-                .map(Comment::getId)
-                .collect(Collectors.toList());
+        Map<Long, List<ReplyRepresentation>> repliesByParentCommentId = new HashMap<>();
+        if (repliesLimit > 0 && !comments.isEmpty()) {
+            List<Long> commentIds = comments.stream()
+                    .map(CommentRepresentation::getId)
+                    .collect(Collectors.toList());
+            // the database keeps the first repliesLimit replies of each comment, they come ordered by createdAt
+            List<Long> replyIds = replyRepository.findFirstIdsByParentCommentIdIn(commentIds, repliesLimit);
+            if (!replyIds.isEmpty()) {
+                for (EmbeddedReplyView reply : replyRepository.findEmbeddedViewsByIdIn(replyIds)) {
+                    repliesByParentCommentId.computeIfAbsent(reply.parentCommentId(), id -> new ArrayList<>())
+                            .add(ReplyUtils.mapToEmbeddedReplyDTO(reply));
+                }
+            }
+        }
+        comments.forEach(comment -> comment.setReplies(repliesByParentCommentId.getOrDefault(comment.getId(), List.of())));
 
-        List<Reply> replies = replyRepository.findAllByParentCommentIdIn(ids);
-        comments.forEach(comment -> comment.setReplies(
-                        replies.stream()
-                                .filter(reply -> reply.getParentComment().getId().equals(comment.getId()))
-                                .collect(Collectors.toList())
-                )
-        );
-        return comments;
+        GetCommentsResponse commentsResponse = GetCommentsResponse.builder()
+                .comments(comments)
+                .pageSize(commentSlice.getSize())
+                .pageNumber(commentSlice.getNumber())
+                .isLast(commentSlice.isLast())
+                .build();
+        if (commentsPageArgs.includeTotals()) {
+            long totalElements = totalCountCache.get(TotalCountCache.commentsOfGame(gameName), () -> commentRepository.countByGameName(gameName));
+            commentsResponse.setTotalElements(totalElements);
+            commentsResponse.setTotalPages(TotalCountCache.totalPages(totalElements, commentSlice.getSize()));
+        }
+        commentsResponse.add(linkTo(methodOn(CommentsController.class)
+                .getCommentsWithRepliesByGameName(
+                        gameName,
+                        commentsPageArgs.pageNumber(),
+                        commentsPageArgs.pageSize(),
+                        commentsPageArgs.sortBy(),
+                        commentsPageArgs.orderDirection().isAscending() ? "Asc" : "Dsc",
+                        repliesLimit,
+                        commentsPageArgs.includeTotals()
+                )).withSelfRel());
+        return commentsResponse;
     }
 
+    // the comment and the counter of its author are written in one transaction
+    @Transactional
     public CommentRepresentation addComment(
             TPUserPrincipal principalRequestingToAddResource,
             AddCommentRequest addCommentRequest
@@ -146,9 +317,53 @@ public class CommentsService {
                 .gameName(addCommentRequest.getGameName())
                 .build();
         Comment savedComment = commentRepository.save(comment);
+        tPUserRepository.incrementCommentCount(principalRequestingToAddResource.getId());
+        totalCountCache.increment(TotalCountCache.commentsOfGame(savedComment.getGameName()));
+        totalCountCache.increment(TotalCountCache.commentsOfAuthor(principalRequestingToAddResource.getId()));
+        commentsFeedCache.invalidateGame(savedComment.getGameName());
         return CommentUtils.mapToCommentDTO(savedComment);
     }
 
+    // Comments queued by the game clients while offline and replayed at once. They are validated as a unit by the controller and inserted with multi-row statements in one transaction - either all of them are created or none
+    @Transactional
+    public AddCommentsResponse addComments(
+            TPUserPrincipal principalRequestingToAddResources,
+            List<AddCommentRequest> addCommentRequests
+    ) {
+        // the author is loaded once, its public info is embedded in every returned representation
+        TPUser author = tPUserRepository.findById(principalRequestingToAddResources.getId())
+                .orElseThrow(() -> new UserNotFoundException(principalRequestingToAddResources.getId()));
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<Comment> comments = addCommentRequests.stream()
+                .map(addCommentRequest -> Comment.builder()
+                        .body(addCommentRequest.getBody())
+                        .author(author)
+                        .updatedAt(now)
+                        .createdAt(now)
+                        .gameName(addCommentRequest.getGameName())
+                        .build())
+                .collect(Collectors.toList());
+        commentRepository.insertAll(comments);
+        tPUserRepository.incrementCommentCountBy(author.getId(), comments.size());
+
+        totalCountCache.invalidate(TotalCountCache.commentsOfAuthor(author.getId()));
+        comments.stream()
+                .map(Comment::getGameName)
+                .distinct()
+                .forEach(gameName -> {
+                    totalCountCache.invalidate(TotalCountCache.commentsOfGame(gameName));
+                    commentsFeedCache.invalidateGame(gameName);
+                });
+
+        AddCommentsResponse addCommentsResponse = AddCommentsResponse.builder()
+                .comments(CommentUtils.mapToCommentDTOs(comments))
+                .build();
+        addCommentsResponse.add(linkTo(methodOn(CommentsController.class)
+                .addComments(addCommentRequests))
+                .withSelfRel());
+        return addCommentsResponse;
+    }
+
     @Transactional
     public CommentRepresentation editComment(
             TPUserPrincipal principalRequestingToEditResource,
@@ -161,33 +376,46 @@ public class CommentsService {
         if (commentAuthor.getId().equals(principalRequestingToEditResource.getId())) {
             commentToEdit.setBody(commentRequest.getNewCommentBody());
             commentToEdit.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
+            commentsFeedCache.invalidateEditedComment(commentToEdit.getGameName(), commentToEdit.getId());
             return CommentUtils.mapToCommentDTO(commentToEdit);
         } else {
             throw new OperationNotAllowedException("You do not have permission to perform actions on this resource");
         }
     }
 
+    @Transactional
     public DeleteCommentResponse deleteComment(
             TPUserPrincipal principalRequestingToDeleteResource,
             long idOfTheResourceToBeDeleted
     ) {
-        Comment commentToDelete = commentRepository.findById(idOfTheResourceToBeDeleted)
+        // the author id and the game name are enough for the check and the links, the entity would bring its EAGER author along
+        CommentOwnership commentToDelete = commentRepository.findOwnershipById(idOfTheResourceToBeDeleted)
                 .orElseThrow(() -> new CommentNotFoundException(idOfTheResourceToBeDeleted));
-        TPUser commentAuthor = commentToDelete.getAuthor();
-        if (commentAuthor.getId().equals(principalRequestingToDeleteResource.getId()) || principalRequestingToDeleteResource.getRole() == Role.ADMIN) {
+        if (commentToDelete.authorId().equals(principalRequestingToDeleteResource.getId()) || principalRequestingToDeleteResource.getRole() == Role.ADMIN) {
             DeleteCommentResponse deleteCommentResponse = DeleteCommentResponse.builder()
                     .message("Comment successfully removed")
                     .build();
             deleteCommentResponse.add(linkTo(methodOn(UsersController.class)
-                    .getUser(commentToDelete.getAuthor().getId()))
+                    .getUser(commentToDelete.authorId(), null))
                     .withRel("author"));
             deleteCommentResponse.add(linkTo(methodOn(CommentsController.class)
-                    .getCommentsByGameName(commentToDelete.getGameName(), 0, 10, "id", "Asc"))
+                    .getCommentsByGameName(commentToDelete.gameName(), 0, 10, "id", "Asc", null, null, true, null))
                     .withRel("collection"));
             deleteCommentResponse.add(linkTo(methodOn(CommentsController.class)
                     .deleteComment(idOfTheResourceToBeDeleted))
                     .withSelfRel());
-            commentRepository.deleteById(idOfTheResourceToBeDeleted);
+            // Set-based deletes in the same transaction - the number of statements does not grow with the replies. deleteById loaded the comment again and
+            // every reply of it to cascade the removal (orphanRemoval), one DELETE per reply. The counters of the reply authors are updated while the replies still exist
+            List<Long> replyAuthorIds = replyRepository.findAuthorIdsByParentCommentId(idOfTheResourceToBeDeleted);
+            tPUserRepository.subtractRepliesOfComment(idOfTheResourceToBeDeleted);
+            tPUserRepository.decrementCommentCount(commentToDelete.authorId());
+            replyRepository.deleteAllByParentCommentId(idOfTheResourceToBeDeleted);
+            commentRepository.deleteByIdInBulk(idOfTheResourceToBeDeleted);
+            totalCountCache.decrement(TotalCountCache.commentsOfGame(commentToDelete.gameName()));
+            totalCountCache.decrement(TotalCountCache.commentsOfAuthor(commentToDelete.authorId()));
+            totalCountCache.invalidate(TotalCountCache.repliesOfComment(idOfTheResourceToBeDeleted));
+            totalCountCache.invalidateRepliesOfAuthors(replyAuthorIds);
+            commentsFeedCache.invalidateGame(commentToDelete.gameName());
             return deleteCommentResponse;
         } else {
             throw new OperationNotAllowedException("You do not have permission to perform actions on this resource");
@@ -0,0 +1,119 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.comments.records.CommentsFeedPage;
+import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the first pages of the comments feed and of the validators (ResourceVersion) of the feeds. Almost
+ * every visit of a game page requests the first page of its feed, so the page is read once and served from memory until
+ * a write touches it. The validator of a game answers If-None-Match before any page is read. Only the data is cached,
+ * the response and its links are built per request, so no requester gets the host or a mutable instance of another.
+ * Entries are invalidated after the transaction that changed the data commits, the expiry only limits the damage of a
+ * missed invalidation. A page or a validator read before an invalidation may reach the cache after it - every
+ * invalidation bumps a generation and a value is only cached if no invalidation happened since its load started.
+ * Concurrent misses of the same key each read it, which happens once per write for the hot pages.
+ */
+@Component
+public class CommentsFeedCache {
+    private record FeedKey(String gameName, CommentsPageArgs commentsPageArgs) {
+    }
+
+    private final Cache<FeedKey, CommentsFeedPage> feeds;
+    private final Cache<String, ResourceVersion> versions;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CommentsFeedCache(MeterRegistry registry) {
+        this.feeds = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .recordStats()
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, feeds, "comments-feed");
+        CaffeineCacheMetrics.monitor(registry, versions, "comments-feed-versions");
+    }
+
+    public CommentsFeedPage get(String gameName, CommentsPageArgs commentsPageArgs, Supplier<CommentsFeedPage> loader) {
+        return load(feeds, new FeedKey(gameName, commentsPageArgs), loader);
+    }
+
+    // count, latest updatedAt and reply counters of all comments of the game, see CommentRepository.findVersionByGameName
+    public ResourceVersion getVersion(String gameName, Supplier<ResourceVersion> loader) {
+        return load(versions, gameName, loader);
+    }
+
+    // a comment was added to or removed from the game, which shifts the pages and changes the totals
+    public void invalidateGame(String gameName) {
+        TransactionUtils.afterCommit(() -> invalidateIf((key, feed) -> key.gameName().equals(gameName), game -> game.equals(gameName)));
+    }
+
+    // the body and updatedAt of a comment changed, only feeds showing it or ordered by updatedAt are affected
+    public void invalidateEditedComment(String gameName, long commentId) {
+        TransactionUtils.afterCommit(() -> invalidateIf((key, feed) -> key.gameName().equals(gameName)
+                && (key.commentsPageArgs().sortBy().equals("updatedAt") || containsComment(feed, comment -> comment.id() == commentId)),
+                game -> game.equals(gameName)));
+    }
+
+    // replies of the comment changed, its game is not known here - there are only a few validators
+    public void invalidateComment(long commentId) {
+        TransactionUtils.afterCommit(() -> invalidateIf((key, feed) -> containsComment(feed, comment -> comment.id() == commentId), game -> true));
+    }
+
+    // the public info of the author (name, role) is embedded in every comment representation
+    public void invalidateAuthor(long authorId) {
+        TransactionUtils.afterCommit(() -> invalidateIf((key, feed) -> containsComment(feed, comment -> comment.authorId() == authorId), game -> true));
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        feeds.invalidateAll();
+        versions.invalidateAll();
+    }
+
+    private <K, V> V load(Cache<K, V> cache, K key, Supplier<V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        V loaded = loader.get();
+        synchronized (this) {
+            if (generation.get() == loadGeneration) {
+                cache.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // the loads in progress may have read the data before the write, none of them is cached
+    private synchronized void invalidateIf(BiPredicate<FeedKey, CommentsFeedPage> feedPredicate, Predicate<String> versionPredicate) {
+        generation.incrementAndGet();
+        feeds.asMap().entrySet().removeIf(entry -> feedPredicate.test(entry.getKey(), entry.getValue()));
+        versions.asMap().keySet().removeIf(versionPredicate);
+    }
+
+    private static boolean containsComment(CommentsFeedPage feed, Predicate<CommentView> predicate) {
+        return feed.comments().stream().anyMatch(predicate);
+    }
+}
@@ -0,0 +1,104 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Write-through cache of the refresh tokens and the public info of their owners by the hash of the token. Tokens are
+ * added when they are issued and updated when they are revoked, so refreshing an access token and signing out of a
+ * single session usually find the token in memory. The database stays the source of truth: the revocations made on
+ * other instances are polled from refresh_tokens.revoked_at (RefreshTokenService.pollRevocations), the entries of a user
+ * whose name, role or account changed are dropped and loaded again. The time to live (10 minutes by default) only
+ * bounds the damage of a missed update. An entry never outlives the expiry date of its token.
+ */
+@Component
+public class RefreshTokenCache {
+    private final Cache<String, RefreshTokenEntry> entries;
+
+    public RefreshTokenCache(@Value("${application.security.refresh-token-cache.maximum-size:100000}") long maximumSize,
+                             @Value("${application.security.refresh-token-cache.time-to-live:PT10M}") Duration timeToLive,
+                             MeterRegistry registry) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, RefreshTokenEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, RefreshTokenEntry entry, long currentTime) {
+                        long untilExpiry = Math.max(0, Duration.between(Instant.now(), entry.expiryDate()).toNanos());
+                        return Math.min(timeToLive.toNanos(), untilExpiry);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, RefreshTokenEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, RefreshTokenEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entries, "refresh-tokens");
+    }
+
+    // tokens that are not found are not cached, a client sending random tokens can not fill the cache
+    public Optional<RefreshTokenEntry> get(byte[] tokenHash, Supplier<Optional<RefreshTokenEntry>> loader) {
+        String key = key(tokenHash);
+        RefreshTokenEntry entry = entries.getIfPresent(key);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        Optional<RefreshTokenEntry> loaded = loader.get();
+        loaded.ifPresent(value -> entries.put(key, value));
+        return loaded;
+    }
+
+    public void put(byte[] tokenHash, RefreshTokenEntry entry) {
+        TransactionUtils.afterCommit(() -> entries.put(key(tokenHash), entry));
+    }
+
+    public void revoke(byte[] tokenHash) {
+        TransactionUtils.afterCommit(() -> entries.asMap().computeIfPresent(key(tokenHash), (key, entry) -> entry.asRevoked()));
+    }
+
+    public void revokeAllOfOwner(long ownerId) {
+        TransactionUtils.afterCommit(() -> entries.asMap()
+                .replaceAll((key, entry) -> entry.ownerId() == ownerId ? entry.asRevoked() : entry));
+    }
+
+    // revocations committed on other instances, read by the poll
+    public void revokeAll(Collection<byte[]> tokenHashes) {
+        tokenHashes.forEach(tokenHash -> entries.asMap().computeIfPresent(key(tokenHash), (key, entry) -> entry.asRevoked()));
+    }
+
+    // the name, role or account of the owner changed, the next refresh reads the token and its owner from the database
+    public void invalidateOwner(long ownerId) {
+        TransactionUtils.afterCommit(() -> entries.asMap().values().removeIf(entry -> entry.ownerId() == ownerId));
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    private static String key(byte[] tokenHash) {
+        return HexFormat.of().formatHex(tokenHash);
+    }
+}
@@ -0,0 +1,108 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Total number of elements per paginated collection (comments of a game, comments of an author, replies of a comment...).
+ * Returning a Page makes Spring Data run an additional SELECT COUNT(*) for every request, which on large collections costs
+ * more than the data query itself. The count is loaded once per key and then kept up to date by add and delete operations.
+ * The totals are approximate - concurrent writes may be missed between loading and caching the count, so the entries
+ * expire after a while and are counted again.
+ */
+@Component
+public class TotalCountCache {
+    private static final String USERS_KEY = "users";
+    private static final String REPLIES_OF_AUTHOR_PREFIX = "replies:author:";
+
+    private final Cache<String, AtomicLong> counts;
+
+    public TotalCountCache(MeterRegistry registry) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, counts, "total-counts");
+    }
+
+    public static String commentsOfGame(String gameName) {
+        return "comments:game:" + gameName;
+    }
+
+    public static String commentsOfAuthor(long authorId) {
+        return "comments:author:" + authorId;
+    }
+
+    public static String repliesOfComment(long parentCommentId) {
+        return "replies:comment:" + parentCommentId;
+    }
+
+    public static String repliesOfAuthor(long authorId) {
+        return REPLIES_OF_AUTHOR_PREFIX + authorId;
+    }
+
+    public static String users() {
+        return USERS_KEY;
+    }
+
+    // the same arithmetic as PageImpl.getTotalPages
+    public static int totalPages(long totalElements, int pageSize) {
+        return pageSize == 0 ? 1 : (int) Math.ceil((double) totalElements / (double) pageSize);
+    }
+
+    /**
+     * @param key     key of the collection
+     * @param counter count query executed only when the key is not cached yet
+     * @return total number of elements in the collection
+     */
+    public long get(String key, LongSupplier counter) {
+        return counts.get(key, k -> new AtomicLong(counter.getAsLong())).get();
+    }
+
+    // keys that are not cached are left alone, the count query will load the current value on the next read
+    public void increment(String key) {
+        TransactionUtils.afterCommit(() -> {
+            AtomicLong count = counts.getIfPresent(key);
+            if (count != null) {
+                count.incrementAndGet();
+            }
+        });
+    }
+
+    public void decrement(String key) {
+        TransactionUtils.afterCommit(() -> {
+            AtomicLong count = counts.getIfPresent(key);
+            if (count != null) {
+                count.updateAndGet(value -> Math.max(0, value - 1));
+            }
+        });
+    }
+
+    public void invalidate(String key) {
+        TransactionUtils.afterCommit(() -> counts.invalidate(key));
+    }
+
+    // deleting a comment cascades to its replies, only the totals of their authors change
+    public void invalidateRepliesOfAuthors(Collection<Long> authorIds) {
+        List<String> keys = authorIds.stream().map(TotalCountCache::repliesOfAuthor).toList();
+        TransactionUtils.afterCommit(() -> counts.invalidateAll(keys));
+    }
+
+    public void invalidateAll() {
+        counts.invalidateAll();
+    }
+}
@@ -0,0 +1,195 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.records.UserName;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter of the normalized names of the users. A name the filter has never seen is free, so most
+ * sign-ups and renames are checked without a query; "maybe taken" is confirmed by the unique index on normalized_name.
+ * The public availability check (GET /users/name-available) does not use it, see UsersService.isNameAvailable. The counters (4 bits each) let deleted and renamed names be removed again.
+ * The filter is rebuilt from the table at startup and by UserNameBloomFilterRebuildJob, which bounds how long the names
+ * created on other instances are missing here. A missing name only lets a sign-up reach the unique index, which rejects it.
+ * Until the first rebuild every name is "maybe taken".
+ */
+@Slf4j
+@Component
+public class UserNameBloomFilter {
+    private final TPUserRepository userRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final int rebuildBatchSize;
+    private final Counter absentCounter;
+    private final Counter maybePresentCounter;
+    private volatile Counters current;
+    private volatile Counters building;
+
+    public UserNameBloomFilter(TPUserRepository userRepository,
+                               @Value("${application.users.name-filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${application.users.name-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                               @Value("${application.users.name-filter.rebuild-batch-size:5000}") int rebuildBatchSize,
+                               MeterRegistry registry) {
+        this.userRepository = userRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.absentCounter = registry.counter("users.name-filter.checks", "result", "absent");
+        this.maybePresentCounter = registry.counter("users.name-filter.checks", "result", "maybe-present");
+    }
+
+    /**
+     * @param name the name in any case
+     * @return false if no user has the name, true if the name may be taken and the database has to be asked
+     */
+    public boolean mightContain(String name) {
+        Counters counters = current;
+        if (counters != null && !counters.mightContain(TPUser.normalizeName(name))) {
+            absentCounter.increment();
+            return false;
+        }
+        maybePresentCounter.increment();
+        return true;
+    }
+
+    // added right away - a rolled back sign-up only leaves a false positive, which costs a query
+    public void add(String name) {
+        update(TPUser.normalizeName(name), 1);
+    }
+
+    // removed after the commit - a name removed before a rollback would be reported free while it is taken
+    public void remove(String name) {
+        String normalizedName = TPUser.normalizeName(name);
+        TransactionUtils.afterCommit(() -> update(normalizedName, -1));
+    }
+
+    public void rename(String oldName, String newName) {
+        if (TPUser.normalizeName(oldName).equals(TPUser.normalizeName(newName))) {
+            return; // only the case changed
+        }
+        add(newName);
+        remove(oldName);
+    }
+
+    // The names are read in batches by id into a new filter, which replaces the current one. The changes made meanwhile go to both filters
+    public synchronized void rebuild() {
+        Counters rebuilt = new Counters(expectedInsertions, falsePositiveProbability);
+        building = rebuilt;
+        try {
+            long lastId = 0;
+            long names = 0;
+            List<UserName> batch;
+            do {
+                batch = userRepository.findNamesAfterId(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (UserName userName : batch) {
+                    rebuilt.update(userName.normalizedName(), 1);
+                    lastId = userName.id();
+                }
+                names += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+            current = rebuilt;
+            log.info("User name filter rebuilt with {} names", names);
+        } finally {
+            building = null;
+        }
+    }
+
+    private void update(String normalizedName, int delta) {
+        Counters counters = current;
+        if (counters != null) {
+            counters.update(normalizedName, delta);
+        }
+        Counters rebuilt = building;
+        if (rebuilt != null && rebuilt != counters) {
+            rebuilt.update(normalizedName, delta);
+        }
+    }
+
+    static final class Counters {
+        private static final int COUNTERS_PER_SLOT = 16; // 4 bits each
+        private static final long MAX_COUNT = 15;
+
+        private final AtomicLongArray slots;
+        private final long size;
+        private final int hashes;
+
+        Counters(long expectedInsertions, double falsePositiveProbability) {
+            // m = -n ln p / (ln 2)^2 counters, k = m / n ln 2 hash functions
+            long counters = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            this.slots = new AtomicLongArray(Math.toIntExact(Math.max(1, (counters + COUNTERS_PER_SLOT - 1) / COUNTERS_PER_SLOT)));
+            this.size = (long) slots.length() * COUNTERS_PER_SLOT;
+            this.hashes = Math.max(1, (int) Math.round((double) counters / expectedInsertions * Math.log(2)));
+        }
+
+        boolean mightContain(String normalizedName) {
+            long hash = fnv1a(normalizedName);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                if (count(Math.floorMod(h1 + i * h2, size)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void update(String normalizedName, int delta) {
+            long hash = fnv1a(normalizedName);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                add(Math.floorMod(h1 + i * h2, size), delta);
+            }
+        }
+
+        private long count(long index) {
+            int shift = (int) (index % COUNTERS_PER_SLOT) * 4;
+            return (slots.get((int) (index / COUNTERS_PER_SLOT)) >>> shift) & MAX_COUNT;
+        }
+
+        // A saturated counter stays at 15 - after an overflow it no longer knows how many names it counts, removing from it could make a taken name look free
+        private void add(long index, int delta) {
+            int slot = (int) (index / COUNTERS_PER_SLOT);
+            int shift = (int) (index % COUNTERS_PER_SLOT) * 4;
+            while (true) {
+                long current = slots.get(slot);
+                long count = (current >>> shift) & MAX_COUNT;
+                if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+                    return;
+                }
+                long updated = (current & ~(MAX_COUNT << shift)) | ((count + delta) << shift);
+                if (slots.compareAndSet(slot, current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        private static long fnv1a(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // finalizer of SplitMix64, spreads the bits of the FNV hash
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+/**
+ * Verified access tokens by the SHA-256 hash of the token. Clients send the same access token with every request until
+ * it expires, so the signature check and the mapping of the claims are done once per token instead of once per request.
+ * The hash is the key so that the cache does not hold the credentials themselves. An entry never outlives the exp claim
+ * of its token, entries of a user are removed when the user signs out of all sessions or the role of the user changes,
+ * all entries when the signing secret is rotated (JwtSigningKeyEndpoint).
+ * Disabled by default, enable with application.security.verified-token-cache.enabled to compare it with the uncached
+ * verification.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final boolean enabled;
+    private final Cache<String, VerifiedToken> tokens;
+
+    public VerifiedTokenCache(@Value("${application.security.verified-token-cache.enabled:false}") boolean enabled,
+                              @Value("${application.security.verified-token-cache.maximum-size:10000}") long maximumSize,
+                              MeterRegistry registry) {
+        this.enabled = enabled;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken verifiedToken, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), verifiedToken.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        Gauge.builder("jwt.verified-token-cache.hit-rate", tokens, cache -> cache.stats().hitRate())
+                .description("Share of the verifications served by the verified-token cache")
+                .register(registry);
+        Gauge.builder("jwt.verified-token-cache.size", tokens, Cache::estimatedSize)
+                .description("Number of verified access tokens in the cache")
+                .register(registry);
+    }
+
+    /**
+     * @param token    the access token
+     * @param verifier verification executed when the cache is disabled or the token is not cached yet, its exceptions are
+     *                 propagated and failed verifications are not cached
+     * @return the verified token
+     */
+    public VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+        return tokens.get(hash(token), key -> verifier.apply(token));
+    }
+
+    // the principal and the authorities of the cached tokens would otherwise outlive the sign-out or the role change
+    public void invalidateUser(long userId) {
+        TransactionUtils.afterCommit(() -> tokens.asMap().values()
+                .removeIf(verifiedToken -> verifiedToken.principal().getId() == userId));
+    }
+
+    public void invalidateAll() {
+        tokens.invalidateAll();
+    }
+
+    private static String hash(String token) {
+        try {
+            // MessageDigest is not thread-safe, getInstance is cheap compared with the HMAC verification it saves
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", ex);
+        }
+    }
+}
@@ -27,4 +27,6 @@ public class JwtConfigurationProperties {
 
     @NotBlank @Pattern(regexp = "^\\d+$") // digits only
     private String accessTokenExpiration;
+
+    private boolean compactClaims = true;
 }
@@ -0,0 +1,36 @@
+package org.trickyplay.trickyplayapi.general.configs;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
+import org.trickyplay.trickyplayapi.users.services.JwtService;
+
+import java.util.Map;
+
+/**
+ * Rotates the secret that signs the access tokens without a restart: POST /actuator/jwtkey {"secretKey": "..."}.
+ * Every instance keeps its own key, so the operation is called on each of them. The actuator requires the ADMIN role
+ * (SecurityConfig) and the endpoint is exposed in management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "jwtkey")
+@RequiredArgsConstructor
+public class JwtSigningKeyEndpoint {
+    private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    /**
+     * @param secretKey the new Base64 encoded secret, at least 256 bits long (HS256)
+     */
+    @WriteOperation
+    public Map<String, String> reload(String secretKey) {
+        jwtService.reloadSecretKey(secretKey);
+        // the cached verifications of the tokens signed with the previous secret would be accepted until their exp claim
+        verifiedTokenCache.invalidateAll();
+        return Map.of("message", "JWT signing key reloaded");
+    }
+}
@@ -0,0 +1,66 @@
+package org.trickyplay.trickyplayapi.general.configs;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Limits of RateLimitingFilter, every route has its own buckets per client IP and per user
+@Validated
+@ConfigurationProperties(prefix = "application.security.rate-limits")
+@Data
+public class RateLimitConfigurationProperties {
+    private boolean enabled = true;
+
+    // the buckets are evicted when they were not used for this long - keep it at least as long as the longest period, an evicted bucket is full again
+    @NotNull
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // upper bound of the buckets kept in memory, the least recently used ones are evicted first
+    @PositiveOrZero
+    private long maximumKeys = 100_000;
+
+    @Valid
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Route {
+        @NotBlank
+        private String method;
+
+        @NotBlank
+        private String path; // a path pattern, e.g. /comments or /auth/**
+
+        // requests per period, which is also the largest burst; 0 - not limited by this key
+        @PositiveOrZero
+        private long perIp;
+
+        @PositiveOrZero
+        private long perUser;
+
+        @NotNull
+        private Duration period = Duration.ofMinutes(1);
+
+        @NotNull
+        private UserKey userKey = UserKey.PRINCIPAL;
+    }
+
+    // what identifies the user of the per-user bucket
+    public enum UserKey {
+        PRINCIPAL, // the id of the user authenticated by the access token, the requests without a valid token are limited per IP only
+        USERNAME // the username property of the JSON body, for the sign-in which has no access token yet
+    }
+}
@@ -0,0 +1,10 @@
+package org.trickyplay.trickyplayapi.general.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// @EnableScheduling registers the post processor that runs the @Scheduled methods of the beans. By default the tasks share a single thread, which is enough for the maintenance jobs of the application
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -15,7 +15,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -24,6 +23,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import org.trickyplay.trickyplayapi.general.filters.JwtAuthenticationFilter;
+import org.trickyplay.trickyplayapi.general.filters.RateLimitingFilter;
 import org.trickyplay.trickyplayapi.general.handlers.UnauthorizedHandler;
 import org.trickyplay.trickyplayapi.users.enums.Permission;
 import org.trickyplay.trickyplayapi.users.enums.Role;
@@ -45,13 +45,10 @@ import java.util.Arrays;
         jsr250Enabled = true) // The jsr250Enabled property allows us to use the @RoleAllowed annotation. The @RolesAllowed annotation is the JSR-250’s equivalent annotation of the @Secured annotation- @RolesAllowed({ "ROLE_USER", "ROLE_ADMIN" })
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitingFilter rateLimitingFilter;
     private final UnauthorizedHandler unauthorizedHandler; // JwtAuthEntryPoint
     private final TPUserDetailsService tpUserDetailsService;
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    private final PasswordEncoder passwordEncoder; // BoundedPasswordEncoder - BCrypt on its own bounded pool
 
     @Bean
     public AuthenticationManager authenticationManager(
@@ -68,7 +65,7 @@ public class SecurityConfig {
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(tpUserDetailsService);
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
         return authenticationProvider;
     }
 
@@ -194,6 +191,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/account").hasAnyRole(Role.USER.name(), Role.ADMIN.name(), Role.BANNED.name())
                         .requestMatchers(HttpMethod.PATCH, "/users/{id}/ban-account", "/users/{id}/unban-account").hasRole(Role.ADMIN.name())
                         .requestMatchers(HttpMethod.PATCH, "/users/{id}/grant-admin-permissions").hasRole(Role.ADMIN.name())
+                        .requestMatchers("/admin/**").hasRole(Role.ADMIN.name())
 //                        .requestMatchers("/actuator/**").hasRole(Role.ADMIN.name())
                         .requestMatchers("/actuator/health").permitAll()
                         .requestMatchers("/actuator").hasRole(Role.ADMIN.name())
@@ -201,6 +199,7 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 );
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitingFilter, JwtAuthenticationFilter.class); // the per-user buckets are keyed on the verified principal, not on the unverified token
         return http.build();
     }
 }
\ No newline at end of file
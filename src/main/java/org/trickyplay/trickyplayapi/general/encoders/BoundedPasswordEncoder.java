@@ -0,0 +1,158 @@
+package org.trickyplay.trickyplayapi.general.encoders;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.exceptions.PasswordHashingRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt run on a dedicated pool with one thread per core and a bounded queue instead of on the request threads. A burst of
+ * sign-ins can keep at most as many cores busy as the pool has threads, the other requests keep the rest of the CPU. When
+ * the queue is full the hash is not queued at all, PasswordHashingRejectedException is answered with 503 and Retry-After,
+ * so the clients back off instead of waiting for a response that would arrive after their timeout anyway.
+ * The request thread still waits for the result - DaoAuthenticationProvider calls the encoder synchronously.
+ */
+@Slf4j
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    // the cost is 2^strength, BCrypt accepts 4 - 31
+    static final int MIN_STRENGTH = 4;
+    static final int MAX_STRENGTH = 16;
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Timer waitTimer;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(@Value("${application.security.password-encoder.strength:10}") int strength,
+                                  @Value("${application.security.password-encoder.calibration-target:PT0S}") Duration calibrationTarget,
+                                  @Value("${application.security.password-encoder.threads:0}") int threads,
+                                  @Value("${application.security.password-encoder.queue-capacity:64}") int queueCapacity,
+                                  @Value("${application.security.password-encoder.retry-after:PT1S}") Duration retryAfter,
+                                  MeterRegistry registry) {
+        int calibratedStrength = calibrationTarget.isZero() ? strength : calibrate(calibrationTarget);
+        this.delegate = new BCryptPasswordEncoder(calibratedStrength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-encoder-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfter = retryAfter;
+
+        Gauge.builder("password-encoder.queue-depth", executor, pool -> pool.getQueue().size())
+                .description("Hashes and verifications waiting for a password-encoder thread")
+                .register(registry);
+        this.waitTimer = Timer.builder("password-encoder.wait")
+                .description("Time from the submission of a hash or a verification to its start")
+                .register(registry);
+        this.encodeTimer = Timer.builder("password-encoder.duration")
+                .tag("operation", "encode")
+                .register(registry);
+        this.matchesTimer = Timer.builder("password-encoder.duration")
+                .tag("operation", "matches")
+                .register(registry);
+        this.rejectedCounter = Counter.builder("password-encoder.rejected")
+                .description("Hashes and verifications rejected because the queue was full")
+                .register(registry);
+        log.info("Password encoder: BCrypt strength {}, {} threads, queue capacity {}", calibratedStrength, poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfter);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException(retryAfter);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Every step of the strength doubles the duration of a hash, the highest strength that hashes within the target on this
+     * machine is chosen. The hashes stored before keep their own strength, BCrypt reads it from the hash.
+     *
+     * @param target the duration of a single hash to aim for
+     * @return the strength, MIN_STRENGTH if even that one exceeds the target
+     */
+    static int calibrate(Duration target) {
+        int strength = MIN_STRENGTH;
+        for (int candidate = MIN_STRENGTH; candidate <= MAX_STRENGTH; candidate++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(candidate);
+            long startedAt = System.nanoTime();
+            encoder.encode("calibration");
+            if (Duration.ofNanos(System.nanoTime() - startedAt).compareTo(target) > 0) {
+                break;
+            }
+            strength = candidate;
+        }
+        return strength;
+    }
+}
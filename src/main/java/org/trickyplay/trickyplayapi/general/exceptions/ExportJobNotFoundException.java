@@ -0,0 +1,9 @@
+package org.trickyplay.trickyplayapi.general.exceptions;
+
+import java.util.UUID;
+
+public class ExportJobNotFoundException extends RuntimeException {
+    public ExportJobNotFoundException(UUID id) {
+        super("Could not find export with id: " + id);
+    }
+}
@@ -0,0 +1,16 @@
+package org.trickyplay.trickyplayapi.general.exceptions;
+
+import java.time.Duration;
+
+public class ExportRejectedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ExportRejectedException(Duration retryAfter) {
+        super("Too many exports are waiting, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,11 @@
+package org.trickyplay.trickyplayapi.general.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super("Invalid pagination cursor: " + cursor);
+    }
+
+    public InvalidCursorException(String after, String before) {
+        super("Pagination cursors after: " + after + " and before: " + before + " cannot be used together");
+    }
+}
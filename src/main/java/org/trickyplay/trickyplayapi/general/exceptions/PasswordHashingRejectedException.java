@@ -0,0 +1,16 @@
+package org.trickyplay.trickyplayapi.general.exceptions;
+
+import java.time.Duration;
+
+public class PasswordHashingRejectedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public PasswordHashingRejectedException(Duration retryAfter) {
+        super("Too many sign-in and password change requests, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
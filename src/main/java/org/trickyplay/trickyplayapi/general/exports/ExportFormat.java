@@ -0,0 +1,21 @@
+package org.trickyplay.trickyplayapi.general.exports;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"), // one JSON object per line
+    CSV("text/csv", "csv"); // RFC 4180 with a header row
+
+    private final String contentType;
+    private final String extension;
+
+    // the value of the format request parameter, already validated by the controllers
+    public static ExportFormat of(String format) {
+        return valueOf(format.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,148 @@
+package org.trickyplay.trickyplayapi.general.exports;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the rows of a bulk export straight to the response as NDJSON or CSV. Nothing is buffered beyond the stream
+ * buffers: the response has no Content-Length, so the container sends it with chunked encoding, and every flush (one per
+ * chunk of rows read from the database) reaches the client. The response is compressed with gzip when the client accepts
+ * it, the compressor is flushed with SYNC_FLUSH so a flush is not held back by the deflater.
+ */
+public class ExportWriter implements Closeable {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ExportFormat format;
+    private final List<String> columns;
+    private final Writer writer;
+    private final JsonGenerator jsonGenerator;
+
+    public ExportWriter(OutputStream outputStream, ExportFormat format, List<String> columns) throws IOException {
+        this.format = format;
+        this.columns = List.copyOf(columns);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == ExportFormat.NDJSON) {
+            this.jsonGenerator = JSON_FACTORY.createGenerator(writer);
+            this.jsonGenerator.setRootValueSeparator(null);
+        } else {
+            this.jsonGenerator = null;
+            writeCsvRow(this.columns.toArray());
+        }
+    }
+
+    /**
+     * @param request  its Accept-Encoding decides whether the export is compressed
+     * @param response the export is written to its output stream
+     * @param format   NDJSON or CSV
+     * @param filename name of the downloaded file without the extension
+     * @param columns  names of the values passed to write, the header row of CSV and the field names of NDJSON
+     * @return writer of the response, it has to be closed to finish the gzip stream
+     */
+    public static ExportWriter open(HttpServletRequest request, HttpServletResponse response, ExportFormat format,
+                                    String filename, List<String> columns) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename + "." + format.getExtension());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream outputStream = response.getOutputStream();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE, true);
+        }
+        return new ExportWriter(outputStream, format, columns);
+    }
+
+    // one value per column, in the order of the columns
+    public void write(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        if (jsonGenerator != null) {
+            writeJsonLine(values);
+        } else {
+            writeCsvRow(values);
+        }
+    }
+
+    // sends everything written so far to the client, called after every chunk of rows
+    public void flush() throws IOException {
+        if (jsonGenerator != null) {
+            jsonGenerator.flush();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (jsonGenerator != null) {
+            jsonGenerator.close();
+        }
+        writer.close();
+    }
+
+    private void writeJsonLine(Object[] values) throws IOException {
+        jsonGenerator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            jsonGenerator.writeFieldName(columns.get(i));
+            if (value == null) {
+                jsonGenerator.writeNull();
+            } else if (value instanceof Long number) {
+                jsonGenerator.writeNumber(number);
+            } else if (value instanceof Integer number) {
+                jsonGenerator.writeNumber(number);
+            } else {
+                jsonGenerator.writeString(value.toString()); // dates as ISO-8601 in UTC
+            }
+        }
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeRaw('\n');
+    }
+
+    // RFC 4180 - a field with a comma, a quote or a line break is quoted and its quotes are doubled
+    private void writeCsvRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] == null) {
+                continue;
+            }
+            String value = values[i] instanceof String text ? escapeFormula(text) : values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    // CSV injection - a spreadsheet evaluates a cell starting with one of these as a formula, the comments are written by
+    // any user. The prefixed apostrophe makes it text. Numbers and dates are not prefixed, a negative id stays a number
+    private static String escapeFormula(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            return "'" + value;
+        }
+        return value;
+    }
+}
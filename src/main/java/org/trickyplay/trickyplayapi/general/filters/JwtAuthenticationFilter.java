@@ -1,11 +1,19 @@
 package org.trickyplay.trickyplayapi.general.filters;
 
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,17 +24,51 @@ import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
+import org.trickyplay.trickyplayapi.users.services.AccessTokenRevocationService;
 import org.trickyplay.trickyplayapi.users.services.JwtService;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    // outcomes of the verification, the tag of the jwt.verification timer
+    static final String SUCCESS = "success";
+    static final String EXPIRED = "expired";
+    static final String INVALID_SIGNATURE = "invalid-signature";
+    static final String MALFORMED = "malformed";
+    static final String UNSUPPORTED = "unsupported";
+    static final String EMPTY = "empty";
+    static final String REVOKED = "revoked";
+
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final MeterRegistry registry;
+    // the timers are registered upfront, looking them up by name and tags on every request would cost a map lookup with the creation of the Meter.Id
+    private final Map<String, Timer> verificationTimers;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   VerifiedTokenCache verifiedTokenCache,
+                                   AccessTokenRevocationService accessTokenRevocationService,
+                                   MeterRegistry registry) {
+        this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.accessTokenRevocationService = accessTokenRevocationService;
+        this.registry = registry;
+        this.verificationTimers = Stream.of(SUCCESS, EXPIRED, INVALID_SIGNATURE, MALFORMED, UNSUPPORTED, EMPTY, REVOKED)
+                .collect(Collectors.toUnmodifiableMap(Function.identity(), outcome -> Timer.builder("jwt.verification")
+                        .description("Verification of the access tokens of the requests")
+                        .tag("outcome", outcome)
+                        .register(registry)));
+    }
 
     @Override
     protected void doFilterInternal(
@@ -48,17 +90,52 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String token = getAccessToken(request); // jwt = authHeader.substring(7);
-        if (!jwtService.validateTokenBySignature(token) || jwtService.isTokenExpired(token)) {
+        // the signature, the expiration and the claims are checked by a single parse, which used to be repeated by validateTokenBySignature, isTokenExpired and extractPrincipal
+        Optional<VerifiedToken> verifiedToken = verify(token);
+        if (verifiedToken.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
 
         if (SecurityContextHolder.getContext().getAuthentication() == null) {
-            setAuthenticationContext(token, request);
+            setAuthenticationContext(verifiedToken.get(), request);
         }
         filterChain.doFilter(request, response);
     }
 
+    private Optional<VerifiedToken> verify(String token) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome;
+        VerifiedToken verifiedToken = null;
+        try {
+            verifiedToken = verifiedTokenCache.get(token, jwtService::verify);
+            outcome = SUCCESS;
+            // in-memory comparison with the moment the tokens of the user were revoked (ban, sign-out of all sessions)
+            if (accessTokenRevocationService.isRevoked(verifiedToken.principal().getId(), verifiedToken.issuedAt())) {
+                verifiedToken = null;
+                outcome = REVOKED;
+            }
+        } catch (ExpiredJwtException ex) {
+            outcome = EXPIRED;
+        } catch (SignatureException ex) {
+            outcome = INVALID_SIGNATURE;
+        } catch (MalformedJwtException ex) {
+            outcome = MALFORMED;
+        } catch (UnsupportedJwtException ex) {
+            outcome = UNSUPPORTED;
+        } catch (JwtException ex) { // the remaining JwtExceptions (e.g. invalid claim formats) are malformed tokens as well
+            outcome = MALFORMED;
+        } catch (IllegalArgumentException ex) {
+            outcome = EMPTY;
+        }
+        sample.stop(verificationTimers.get(outcome));
+        if (verifiedToken == null) {
+            // the token itself is not logged, it is a credential
+            log.debug("Access token rejected: {}", outcome);
+        }
+        return Optional.ofNullable(verifiedToken);
+    }
+
     private boolean hasAuthorizationBearer(HttpServletRequest request) {
         String header = request.getHeader("Authorization");
         if (ObjectUtils.isEmpty(header) || !header.startsWith("Bearer")) {
@@ -73,15 +150,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return token;
     }
 
-    private void setAuthenticationContext(String token, HttpServletRequest request) {
+    private void setAuthenticationContext(VerifiedToken verifiedToken, HttpServletRequest request) {
         // UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-        TPUserPrincipal userDetails = jwtService.extractPrincipal(token);
 
         // alternatively provide own implementation with: JwtPrincipalAuthenticationToken extends AbstractAuthenticationToken
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                userDetails,
+                verifiedToken.principal(),
                 null,
-                userDetails.getAuthorities()
+                verifiedToken.authorities()
         );
 
         // The Authentication interface serves two main purposes within Spring Security:
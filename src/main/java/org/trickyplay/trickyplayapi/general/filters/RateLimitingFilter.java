@@ -0,0 +1,291 @@
+package org.trickyplay.trickyplayapi.general.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import org.trickyplay.trickyplayapi.general.configs.RateLimitConfigurationProperties;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per client IP and per user for the routes listed in application.security.rate-limits.routes. Runs
+ * right after JwtAuthenticationFilter, so a throttled request costs at most the signature check (usually served by
+ * VerifiedTokenCache), but neither BCrypt nor a query.
+ * A bucket is a single AtomicLong updated with compare-and-set (the generic cell rate algorithm - the moment the bucket
+ * would be full again), the buckets live in a Caffeine map, which is striped internally and evicts the idle ones.
+ * The user is the id of the principal authenticated by JwtAuthenticationFilter, a request without a valid access token
+ * gets the per-IP bucket only - a made-up or a freshly refreshed token must not open a new bucket. The sign-in has no
+ * principal yet, its user is the username submitted in the body (RateLimitConfigurationProperties.UserKey.USERNAME),
+ * so that guessing the password of one account is limited however many addresses it comes from.
+ */
+@Slf4j
+@Component
+public class RateLimitingFilter extends OncePerRequestFilter {
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    // a sign-in body is a username and a password, anything longer is rejected before it is buffered
+    static final int MAXIMUM_BUFFERED_BODY = 1024;
+
+    private final boolean enabled;
+    private final List<LimitedRoute> routes;
+    private final Cache<BucketKey, AtomicLong> buckets;
+    private final ObjectMapper objectMapper;
+    private final LongSupplier clock;
+
+    @Autowired
+    public RateLimitingFilter(RateLimitConfigurationProperties properties, ObjectMapper objectMapper, MeterRegistry registry) {
+        this(properties, objectMapper, registry, System::nanoTime);
+    }
+
+    RateLimitingFilter(RateLimitConfigurationProperties properties, ObjectMapper objectMapper, MeterRegistry registry, LongSupplier clock) {
+        this.enabled = properties.isEnabled();
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumKeys())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+        List<LimitedRoute> limitedRoutes = new ArrayList<>();
+        for (RateLimitConfigurationProperties.Route route : properties.getRoutes()) {
+            String name = route.getMethod() + " " + route.getPath();
+            limitedRoutes.add(new LimitedRoute(
+                    limitedRoutes.size(),
+                    route.getMethod(),
+                    PathPatternParser.defaultInstance.parse(route.getPath()),
+                    Limit.of(route.getPerIp(), route.getPeriod().toNanos()),
+                    Limit.of(route.getPerUser(), route.getPeriod().toNanos()),
+                    route.getUserKey(),
+                    Counter.builder("rate-limit.requests").tag("route", name).tag("outcome", "allowed").register(registry),
+                    Counter.builder("rate-limit.requests").tag("route", name).tag("outcome", "rejected").register(registry)));
+        }
+        this.routes = List.copyOf(limitedRoutes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        LimitedRoute route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = clock.getAsLong();
+        long ipResult = acquire(route, false, request.getRemoteAddr(), route.perIp(), now);
+        long userResult = Long.MAX_VALUE;
+        if (ipResult >= 0 && route.perUser() != null) {
+            String user;
+            if (route.userKey() == RateLimitConfigurationProperties.UserKey.USERNAME) {
+                BufferedBodyRequest bufferedRequest = BufferedBodyRequest.of(request);
+                if (bufferedRequest == null) {
+                    route.rejected().increment();
+                    rejectTooLarge(response);
+                    return;
+                }
+                request = bufferedRequest;
+                user = submittedUsername(bufferedRequest.body);
+            } else {
+                user = authenticatedUserId();
+            }
+            userResult = acquire(route, true, user, route.perUser(), now);
+        }
+
+        // the headers describe the tighter of the two limits
+        Limit tighter = userResult < ipResult ? route.perUser() : route.perIp();
+        long result = Math.min(ipResult, userResult);
+        if (tighter != null) {
+            response.setHeader(LIMIT_HEADER, String.valueOf(tighter.capacity()));
+            response.setHeader(REMAINING_HEADER, String.valueOf(Math.max(0, result)));
+        }
+        if (result < 0) {
+            route.rejected().increment();
+            reject(response, -result);
+            return;
+        }
+        route.allowed().increment();
+        filterChain.doFilter(request, response);
+    }
+
+    private LimitedRoute match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (LimitedRoute route : routes) {
+            if (route.method().equalsIgnoreCase(request.getMethod()) && route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // Long.MAX_VALUE if the key is not limited on this route
+    private long acquire(LimitedRoute route, boolean user, String subject, Limit limit, long now) {
+        if (limit == null || subject == null) {
+            return Long.MAX_VALUE;
+        }
+        AtomicLong theoreticalArrival = buckets.get(new BucketKey(route.index(), user, subject), key -> new AtomicLong(Long.MIN_VALUE));
+        return tryAcquire(theoreticalArrival, limit, now);
+    }
+
+    /**
+     * @param theoreticalArrival the moment the bucket is full again [ns]
+     * @param limit              the capacity and the period of the bucket
+     * @param now                the current moment [ns]
+     * @return the tokens left in the bucket if the request is allowed, otherwise minus the nanoseconds until a token is available
+     */
+    static long tryAcquire(AtomicLong theoreticalArrival, Limit limit, long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + limit.emissionInterval();
+            long drained = next - now;
+            if (drained > limit.period()) {
+                return -(drained - limit.period());
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return (limit.period() - drained) / limit.emissionInterval();
+            }
+        }
+    }
+
+    // null for the requests without a valid access token (no token, a forged, expired or revoked one)
+    private static String authenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof TPUserPrincipal principal) {
+            return String.valueOf(principal.getId());
+        }
+        return null;
+    }
+
+    // null when the body is not a JSON object with a scalar username, such a request is rejected by the validation of SignInRequest
+    private String submittedUsername(byte[] body) {
+        try {
+            JsonNode username = objectMapper.readTree(body).path("username");
+            // the names are matched case-insensitively by the database, so are the buckets
+            return username.isValueNode() && !username.isNull() ? username.asText().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Too many requests, retry after " + retryAfterSeconds + " seconds\"}");
+    }
+
+    private static void rejectTooLarge(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Request body is too large\"}");
+    }
+
+    // the body is read once to find the username and replayed to the controller
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        // null when the body is longer than MAXIMUM_BUFFERED_BODY
+        static BufferedBodyRequest of(HttpServletRequest request) throws IOException {
+            byte[] body = request.getInputStream().readNBytes(MAXIMUM_BUFFERED_BODY + 1);
+            return body.length > MAXIMUM_BUFFERED_BODY ? null : new BufferedBodyRequest(request, body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : "UTF-8";
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), encoding));
+        }
+    }
+
+    record Limit(long capacity, long period, long emissionInterval) {
+        static Limit of(long capacity, long periodNanos) {
+            return capacity <= 0 ? null : new Limit(capacity, periodNanos, Math.max(1, periodNanos / capacity));
+        }
+    }
+
+    private record LimitedRoute(int index, String method, PathPattern pattern, Limit perIp, Limit perUser,
+                                RateLimitConfigurationProperties.UserKey userKey, Counter allowed, Counter rejected) {
+    }
+
+    private record BucketKey(int route, boolean user, String subject) {
+    }
+}
@@ -4,8 +4,10 @@ import jakarta.validation.ConstraintViolationException;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -52,6 +54,14 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(ExportJobNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public Map<String, String> handleExportJobNotFoundException(ExportJobNotFoundException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return errors;
+    }
+
     @ExceptionHandler(NameTakenException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleNameTakenException(NameTakenException ex) {
@@ -60,6 +70,14 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleInvalidCursorException(InvalidCursorException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return errors;
+    }
+
     @ExceptionHandler(OperationNotAllowedException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public Map<String, String> handleOperationNotAllowedException(OperationNotAllowedException ex) {
@@ -77,6 +95,35 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    // the password-encoder queue is full, the client should back off instead of waiting for a thread
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<Map<String, String>> handlePasswordHashingRejectedException(PasswordHashingRejectedException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(errors);
+    }
+
+    // sign-in with a name that does not exist - DaoAuthenticationProvider hashes the password anyway (timing attacks) and wraps the rejection of the hash, any other cause goes on to UnauthorizedHandler as before
+    @ExceptionHandler(InternalAuthenticationServiceException.class)
+    public ResponseEntity<Map<String, String>> handleInternalAuthenticationServiceException(InternalAuthenticationServiceException ex) {
+        if (ex.getCause() instanceof PasswordHashingRejectedException rejected) {
+            return handlePasswordHashingRejectedException(rejected);
+        }
+        throw ex;
+    }
+
+    // the queue of the activity summary exports is full
+    @ExceptionHandler(ExportRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleExportRejectedException(ExportRejectedException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(errors);
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     ResponseEntity<Map<String, String>> handleConstraintViolationException(ConstraintViolationException e) {
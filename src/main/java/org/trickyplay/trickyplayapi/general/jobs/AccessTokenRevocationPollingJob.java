@@ -0,0 +1,37 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.users.services.AccessTokenRevocationService;
+import org.trickyplay.trickyplayapi.users.services.RefreshTokenService;
+
+/**
+ * Brings the revocations of access and refresh tokens made on the other instances into the memory of this one. A single
+ * indexed query per interval and kind of token replaces a lookup of Users.tokens_valid_after on every authenticated
+ * request and of refresh_tokens on every refresh, the interval is the longest time a revoked token is still accepted by
+ * an instance that did not revoke it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccessTokenRevocationPollingJob {
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+
+    // override with application.security.token-revocation.poll-interval [ms]
+    @Scheduled(fixedDelayString = "${application.security.token-revocation.poll-interval:5000}")
+    public void poll() {
+        int revocations = accessTokenRevocationService.pollRevocations();
+        if (revocations > 0) {
+            log.debug("Polled {} access token revocations", revocations);
+        }
+        int refreshTokenRevocations = refreshTokenService.pollRevocations();
+        if (refreshTokenRevocations > 0) {
+            log.debug("Polled {} refresh token revocations", refreshTokenRevocations);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.users.services.ActivitySummaryExportService;
+
+// Deletes the activity summaries and the export jobs older than application.users.activity-summary.export.time-to-live
+@Component
+@RequiredArgsConstructor
+public class ActivitySummaryExportJanitorJob {
+    private final ActivitySummaryExportService activitySummaryExportService;
+
+    // every 10 minutes by default - a file outlives its time-to-live by at most the interval
+    @Scheduled(fixedDelayString = "${application.users.activity-summary.export.janitor-interval:600000}")
+    public void purge() {
+        activitySummaryExportService.purgeExpired();
+    }
+}
@@ -0,0 +1,63 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Repairs the drift of the denormalized counters (Comments.reply_count, Users.comment_count, Users.reply_count). The
+ * services keep them up to date in the transactions that add and delete comments and replies, but rows changed outside
+ * the services (manual fixes, imports, a bug in a future write path) are only counted again here. The counters are
+ * compared with COUNT(*) a range of ids at a time, every range is a separate short transaction and only the rows that
+ * differ are written.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CountersReconciliationJob {
+    static final long BATCH_SIZE = 1_000;
+
+    private final CommentRepository commentRepository;
+    private final TPUserRepository tPUserRepository;
+    private final CommentsFeedCache commentsFeedCache;
+    private final MeterRegistry meterRegistry;
+
+    // daily, outside the peak hours by default - override with application.counters.reconciliation-cron
+    @Scheduled(cron = "${application.counters.reconciliation-cron:0 30 3 * * *}", zone = "UTC")
+    public void reconcile() {
+        long commentsRepaired = reconcileInBatches(commentRepository.findMaxId(), commentRepository::reconcileReplyCounts);
+        long usersMaxId = tPUserRepository.findMaxId();
+        long usersRepaired = reconcileInBatches(usersMaxId, tPUserRepository::reconcileCommentCounts)
+                + reconcileInBatches(usersMaxId, tPUserRepository::reconcileReplyCounts);
+        if (commentsRepaired > 0) {
+            // the reply counters are embedded in the cached feeds
+            commentsFeedCache.invalidateAll();
+        }
+        meterRegistry.counter("counters.reconciled", "table", "comments").increment(commentsRepaired);
+        meterRegistry.counter("counters.reconciled", "table", "users").increment(usersRepaired);
+        if (commentsRepaired > 0 || usersRepaired > 0) {
+            log.warn("Counters reconciliation repaired {} comments and {} users", commentsRepaired, usersRepaired);
+        } else {
+            log.info("Counters reconciliation found no drift");
+        }
+    }
+
+    // every call of the reconciling query runs in its own transaction (@Transactional on the repository method)
+    private static long reconcileInBatches(long maxId, LongBinaryOperator reconcileRange) {
+        long repaired = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += BATCH_SIZE) {
+            repaired += reconcileRange.applyAsLong(fromId, fromId + BATCH_SIZE - 1);
+        }
+        return repaired;
+    }
+}
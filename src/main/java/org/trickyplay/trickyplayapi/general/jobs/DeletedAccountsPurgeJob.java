@@ -0,0 +1,126 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+import org.trickyplay.trickyplayapi.users.services.AccountPurgeService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Purges the accounts marked as deleted: the replies, the comments and the refresh tokens of the user, then the user.
+ * Every chunk is a separate short transaction (AccountPurgeService) and the job pauses between them, so a busy account
+ * does not hold its locks for minutes and requests are served meanwhile. The accounts to purge are read from
+ * Users.deleted_at on every run, an instance that was restarted in the middle of a purge picks it up with the next run.
+ * An account is purged only once the delay (the time to live of RefreshTokenCache by default) has passed since its
+ * deletion, by then no instance serves a refresh from an entry cached before the account was deleted.
+ * Progress: accounts.purge.pending (gauge), accounts.purge.rows{table} (counter per chunk), accounts.purge (timer per account).
+ */
+@Slf4j
+@Component
+public class DeletedAccountsPurgeJob {
+    private final AccountPurgeService accountPurgeService;
+    private final TPUserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int accountsPerRun;
+    private final long pauseMillis;
+    private final Duration delay;
+    private final AtomicLong pendingAccounts = new AtomicLong();
+
+    public DeletedAccountsPurgeJob(AccountPurgeService accountPurgeService,
+                                   TPUserRepository userRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${application.users.account-purge.chunk-size:500}") int chunkSize,
+                                   @Value("${application.users.account-purge.accounts-per-run:10}") int accountsPerRun,
+                                   @Value("${application.users.account-purge.pause:50}") long pauseMillis,
+                                   @Value("${application.users.account-purge.delay:${application.security.refresh-token-cache.time-to-live:PT10M}}") Duration delay) {
+        this.accountPurgeService = accountPurgeService;
+        this.userRepository = userRepository;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.accountsPerRun = accountsPerRun;
+        this.pauseMillis = pauseMillis;
+        this.delay = delay;
+        meterRegistry.gauge("accounts.purge.pending", pendingAccounts);
+    }
+
+    // every 10 seconds after the previous run by default - override with application.users.account-purge.interval
+    @Scheduled(fixedDelayString = "${application.users.account-purge.interval:10000}",
+            initialDelayString = "${application.users.account-purge.interval:10000}")
+    public void purge() {
+        List<Long> userIds = userRepository.findIdsOfDeletedUsers(LocalDateTime.now(ZoneOffset.UTC).minus(delay), PageRequest.of(0, accountsPerRun));
+        pendingAccounts.set(userRepository.countDeletedUsers());
+        for (long userId : userIds) {
+            if (!purgeAccount(userId)) {
+                break;
+            }
+            pendingAccounts.set(userRepository.countDeletedUsers());
+        }
+    }
+
+    /**
+     * @param userId id of the deleted user
+     * @return false if the job was interrupted, the rest is purged by the next run (on this or another instance)
+     */
+    boolean purgeAccount(long userId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            // the replies under the comments of the user go before the comments, the refresh tokens and the user last
+            if (purgeInChunks(limit -> accountPurgeService.purgeChunkOfReplies(userId, limit), "replies")
+                    && purgeInChunks(limit -> accountPurgeService.purgeChunkOfRepliesToComments(userId, limit), "replies")
+                    && purgeInChunks(limit -> accountPurgeService.purgeChunkOfComments(userId, limit), "comments")
+                    && purgeInChunks(limit -> accountPurgeService.purgeChunkOfRefreshTokens(userId, limit), "refresh_tokens")) {
+                if (accountPurgeService.deleteUser(userId)) {
+                    meterRegistry.counter("accounts.purge.completed").increment();
+                }
+                return true;
+            }
+            return false;
+        } catch (DataAccessException ex) {
+            // e.g. a reply added under a comment of the user in the meantime, the chunks that committed stay deleted
+            meterRegistry.counter("accounts.purge.failed").increment();
+            log.warn("Purge of the account of the user {} failed, it is resumed by the next run", userId, ex);
+            return true;
+        } finally {
+            sample.stop(meterRegistry.timer("accounts.purge"));
+        }
+    }
+
+    // every chunk runs in its own transaction (@Transactional on the methods of AccountPurgeService)
+    private boolean purgeInChunks(IntUnaryOperator deleteChunk, String table) {
+        int deleted;
+        do {
+            deleted = deleteChunk.applyAsInt(chunkSize);
+            meterRegistry.counter("accounts.purge.rows", "table", table).increment(deleted);
+            if (deleted == chunkSize && !pause()) {
+                return false;
+            }
+        } while (deleted == chunkSize);
+        return true;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt(); // the scheduler is shutting down
+            return false;
+        }
+    }
+}
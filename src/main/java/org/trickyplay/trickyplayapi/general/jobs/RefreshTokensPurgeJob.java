@@ -0,0 +1,76 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
+
+import java.time.Instant;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deletes the expired and the revoked refresh tokens, which were only removed when a client happened to present them, so
+ * the table grew with every sign-in. Rows are deleted a chunk at a time, every chunk is a separate short transaction and
+ * the job pauses between them, so the purge does not hold locks or saturate the database while requests are served.
+ */
+@Slf4j
+@Component
+public class RefreshTokensPurgeJob {
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    public RefreshTokensPurgeJob(RefreshTokenRepository refreshTokenRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.security.refresh-token-purge.chunk-size:1000}") int chunkSize,
+                                 @Value("${application.security.refresh-token-purge.pause:100}") long pauseMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    // hourly by default - override with application.security.refresh-token-purge.cron
+    @Scheduled(cron = "${application.security.refresh-token-purge.cron:0 15 * * * *}", zone = "UTC")
+    public void purge() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Instant now = Instant.now();
+        long expired = purgeInChunks(limit -> refreshTokenRepository.deleteExpiredTokens(now, limit));
+        long revoked = purgeInChunks(refreshTokenRepository::deleteRevokedTokens);
+        sample.stop(meterRegistry.timer("refresh-tokens.purge"));
+        meterRegistry.counter("refresh-tokens.purged", "reason", "expired").increment(expired);
+        meterRegistry.counter("refresh-tokens.purged", "reason", "revoked").increment(revoked);
+        log.info("Refresh tokens purge deleted {} expired and {} revoked tokens", expired, revoked);
+    }
+
+    // every call of the deleting query runs in its own transaction (@Transactional on the repository method)
+    private long purgeInChunks(IntUnaryOperator deleteChunk) {
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = deleteChunk.applyAsInt(chunkSize);
+            purged += deleted;
+            if (deleted == chunkSize && !pause()) {
+                break;
+            }
+        } while (deleted == chunkSize);
+        return purged;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt(); // the scheduler is shutting down, the rest is purged by the next run
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+
+/**
+ * Builds UserNameBloomFilter once the application is ready and rebuilds it periodically. The rebuild picks up the names
+ * created on the other instances and resets the counters saturated by the removals that could not be applied.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserNameBloomFilterRebuildJob {
+    private final UserNameBloomFilter userNameBloomFilter;
+
+    // hourly by default - override with application.users.name-filter.rebuild-cron
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.users.name-filter.rebuild-cron:0 45 * * * *}", zone = "UTC")
+    public void rebuild() {
+        userNameBloomFilter.rebuild();
+    }
+}
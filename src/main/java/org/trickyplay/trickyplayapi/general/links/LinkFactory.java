@@ -0,0 +1,140 @@
+package org.trickyplay.trickyplayapi.general.links;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.mvc.UriComponentsBuilderFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.util.UriUtils;
+
+import org.trickyplay.trickyplayapi.comments.controllers.CommentsController;
+import org.trickyplay.trickyplayapi.replies.controllers.RepliesController;
+import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Links added to every item of a listing. linkTo(methodOn(...)) records the invocation on a CGLIB proxy and discovers
+ * the mapping reflectively on every call - a page of 10 replies builds 140 links that way. Here every route is resolved
+ * once, when the class is initialized, by the same linkTo(methodOn(...)) call with a placeholder argument, so the hrefs
+ * keep exactly the format Spring HATEOAS produces (order of the query parameters, template variables of the optional ones).
+ * Per item only the base URI of the current request and the argument are concatenated with the precompiled parts.
+ */
+public final class LinkFactory {
+    private static final long ID_PLACEHOLDER = 9_007_199_254_740_993L;
+    private static final String GAME_NAME_PLACEHOLDER = "GameNamePlaceholder";
+    private static final String BASE_URI_ATTRIBUTE = LinkFactory.class.getName() + ".BASE_URI";
+
+    private static final RouteTemplate COMMENT = RouteTemplate.resolve(
+            () -> methodOn(CommentsController.class).getSingleComment(ID_PLACEHOLDER, null), String.valueOf(ID_PLACEHOLDER));
+    private static final RouteTemplate COMMENTS_OF_GAME = RouteTemplate.resolve(
+            () -> methodOn(CommentsController.class).getCommentsByGameName(GAME_NAME_PLACEHOLDER, 0, 10, "id", "Asc", null, null, true, null), GAME_NAME_PLACEHOLDER);
+    private static final RouteTemplate REPLY = RouteTemplate.resolve(
+            () -> methodOn(RepliesController.class).getSingleReply(ID_PLACEHOLDER, null), String.valueOf(ID_PLACEHOLDER));
+    private static final RouteTemplate REPLIES_OF_COMMENT = RouteTemplate.resolve(
+            () -> methodOn(RepliesController.class).getRepliesByParentCommentId(ID_PLACEHOLDER, 0, 10, "id", "Asc", true, null), String.valueOf(ID_PLACEHOLDER));
+    private static final RouteTemplate USER = RouteTemplate.resolve(
+            () -> methodOn(UsersController.class).getUser(ID_PLACEHOLDER, null), String.valueOf(ID_PLACEHOLDER));
+    private static final RouteTemplate USERS = RouteTemplate.resolve(
+            () -> methodOn(UsersController.class).getUsers(0, 10, "id", "Asc", true), null);
+    private static final RouteTemplate COMMENTS_OF_USER = RouteTemplate.resolve(
+            () -> methodOn(UsersController.class).getUserComments(ID_PLACEHOLDER, 0, 10, "id", "Asc", true), String.valueOf(ID_PLACEHOLDER));
+    private static final RouteTemplate REPLIES_OF_USER = RouteTemplate.resolve(
+            () -> methodOn(UsersController.class).getUserReplies(ID_PLACEHOLDER, 0, 10, "id", "Asc", true), String.valueOf(ID_PLACEHOLDER));
+
+    private LinkFactory() {
+    }
+
+    // the links below have the self relation, like linkTo(...).withSelfRel(), use withRel to change it
+
+    // linkTo(methodOn(CommentsController.class).getSingleComment(id, null))
+    public static Link comment(long id) {
+        return COMMENT.expand(String.valueOf(id));
+    }
+
+    // linkTo(methodOn(CommentsController.class).getCommentsByGameName(gameName, 0, 10, "id", "Asc", null, null, true, null))
+    public static Link commentsOfGame(String gameName) {
+        return COMMENTS_OF_GAME.expand(UriUtils.encodeQueryParam(gameName, StandardCharsets.UTF_8));
+    }
+
+    // linkTo(methodOn(RepliesController.class).getSingleReply(id, null))
+    public static Link reply(long id) {
+        return REPLY.expand(String.valueOf(id));
+    }
+
+    // linkTo(methodOn(RepliesController.class).getRepliesByParentCommentId(parentCommentId, 0, 10, "id", "Asc", true, null))
+    public static Link repliesOfComment(long parentCommentId) {
+        return REPLIES_OF_COMMENT.expand(String.valueOf(parentCommentId));
+    }
+
+    // linkTo(methodOn(UsersController.class).getUser(id, null))
+    public static Link user(long id) {
+        return USER.expand(String.valueOf(id));
+    }
+
+    // linkTo(methodOn(UsersController.class).getUsers(0, 10, "id", "Asc", true))
+    public static Link users() {
+        return USERS.expand("");
+    }
+
+    // linkTo(methodOn(UsersController.class).getUserComments(id, 0, 10, "id", "Asc", true))
+    public static Link commentsOfUser(long id) {
+        return COMMENTS_OF_USER.expand(String.valueOf(id));
+    }
+
+    // linkTo(methodOn(UsersController.class).getUserReplies(id, 0, 10, "id", "Asc", true))
+    public static Link repliesOfUser(long id) {
+        return REPLIES_OF_USER.expand(String.valueOf(id));
+    }
+
+    // The base URI (scheme, host, port and context path, X-Forwarded-* aware) is taken from Spring HATEOAS like in linkTo and kept in the request for the following links. Outside a request linkTo produces relative links, so does this method
+    private static String baseUri() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return "";
+        }
+        String baseUri = (String) requestAttributes.getAttribute(BASE_URI_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (baseUri == null) {
+            baseUri = stripTrailingSlash(UriComponentsBuilderFactory.getBuilder().build().toUriString());
+            requestAttributes.setAttribute(BASE_URI_ATTRIBUTE, baseUri, RequestAttributes.SCOPE_REQUEST);
+        }
+        return baseUri;
+    }
+
+    private static String stripTrailingSlash(String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    /**
+     * Relative href of a route split around the placeholder of its only variable argument.
+     */
+    private record RouteTemplate(String prefix, String suffix) {
+        static RouteTemplate resolve(Supplier<Object> invocation, String placeholder) {
+            String href = relativeHref(invocation);
+            int index = placeholder == null ? href.length() : href.indexOf(placeholder);
+            if (index < 0) {
+                throw new IllegalStateException("Placeholder " + placeholder + " not found in the link " + href);
+            }
+            String suffix = placeholder == null ? "" : href.substring(index + placeholder.length());
+            return new RouteTemplate(href.substring(0, index), suffix);
+        }
+
+        // The class may be initialized while a request is handled, the request is detached so that linkTo builds a relative href that does not depend on the host of that request
+        private static String relativeHref(Supplier<Object> invocation) {
+            RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.resetRequestAttributes();
+            try {
+                return linkTo(invocation.get()).withSelfRel().getHref();
+            } finally {
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+            }
+        }
+
+        Link expand(String value) {
+            return Link.of(baseUri() + prefix + value + suffix);
+        }
+    }
+}
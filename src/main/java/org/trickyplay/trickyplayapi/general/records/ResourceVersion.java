@@ -0,0 +1,79 @@
+package org.trickyplay.trickyplayapi.general.records;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Validator of a resource or a collection used to answer conditional GET requests (If-None-Match / If-Modified-Since)
+ * without loading the entities. It is selected with a single aggregate query, so it is never null - a missing resource
+ * has a count of 0. The dates are stored with second precision and two writes within the same second leave the validators
+ * unchanged, so the entity tag is weak.
+ *
+ * @param count           number of rows the representation is built from
+ * @param updatedAt       the latest updatedAt of these rows
+ * @param authorUpdatedAt the latest updatedAt of their authors, author name and role are embedded in the representations
+ * @param counters        sum of the denormalized counters embedded in the representations, they change without touching
+ *                        updatedAt. Null when the representation has none
+ */
+public record ResourceVersion(Long count, LocalDateTime updatedAt, LocalDateTime authorUpdatedAt, Long counters) {
+    public ResourceVersion(Long count, LocalDateTime updatedAt, LocalDateTime authorUpdatedAt) {
+        this(count, updatedAt, authorUpdatedAt, null);
+    }
+
+    // the representation embeds a parent resource (the parent comment of a reply), its updatedAt and the updatedAt of its author count as well
+    public ResourceVersion(Long count, LocalDateTime updatedAt, LocalDateTime authorUpdatedAt,
+                           LocalDateTime parentUpdatedAt, LocalDateTime parentAuthorUpdatedAt, Long counters) {
+        this(count, latest(updatedAt, parentUpdatedAt), latest(authorUpdatedAt, parentAuthorUpdatedAt), counters);
+    }
+
+    public boolean exists() {
+        return count != null && count > 0;
+    }
+
+    // dates are stored in UTC
+    public long lastModifiedMillis() {
+        LocalDateTime lastModified = updatedAt;
+        if (lastModified == null || (authorUpdatedAt != null && authorUpdatedAt.isAfter(lastModified))) {
+            lastModified = authorUpdatedAt;
+        }
+        return lastModified == null ? -1 : lastModified.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * @param resource       type of the resource, e.g. "comment" or "comments-feed"
+     * @param discriminators values that change the representation for the same rows, such as the id or the page arguments
+     * @return weak entity tag, quoted as required by RFC 7232
+     */
+    public String etag(String resource, Object... discriminators) {
+        return "W/\"" + resource
+                + "-" + count
+                + "-" + millis(updatedAt)
+                + "-" + millis(authorUpdatedAt)
+                + (counters == null ? "" : "-" + counters)
+                + "-" + digest(discriminators)
+                + "\"";
+    }
+
+    // 64 bits of SHA-256, a 32-bit hash of the page arguments and cursors collides too easily
+    private static String digest(Object[] discriminators) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(Arrays.toString(discriminators).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", ex);
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        return first == null || (second != null && second.isAfter(first)) ? second : first;
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,23 @@
+package org.trickyplay.trickyplayapi.general.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+    private TransactionUtils() {
+    }
+
+    // a change made inside a transaction that is later rolled back must not be applied to the caches (or any other in-memory state). Outside of a transaction the update runs at once
+    public static void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+}
@@ -13,7 +13,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.replies.dtos.*;
 import org.trickyplay.trickyplayapi.replies.records.RepliesPageArgs;
 import org.trickyplay.trickyplayapi.replies.services.RepliesService;
@@ -41,19 +43,33 @@ public class RepliesController {
             @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
-            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals, // false skips counting the elements, totalElements and totalPages are left out
+            WebRequest webRequest
     ) {
 //        int pageNo = pageNumber >= 0 ? pageNumber : 0;
 //        Set<String> orderValues = Set.of("Asc", "Dsc");
 //        Sort.Direction sortDirection = orderValues.contains(orderDirection) ? Sort.Direction.fromString(orderDirection) : Sort.Direction.ASC;
         Sort.Direction sortDirection = Sort.Direction.fromString(orderDirection);
-        RepliesPageArgs repliesPageArgs = new RepliesPageArgs(pageNumber, pageSize, sortBy, sortDirection);
+        RepliesPageArgs repliesPageArgs = new RepliesPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
+
+        // checkNotModified compares the validators with If-None-Match / If-Modified-Since and sets the ETag and Last-Modified headers. When it returns true the status is already 304 and returning null tells Spring MVC that the response is complete
+        ResourceVersion feedVersion = repliesService.getRepliesFeedVersion(parentCommentId);
+        String etag = feedVersion.etag("replies-feed", parentCommentId, pageNumber, pageSize, sortBy, orderDirection, includeTotals);
+        if (webRequest.checkNotModified(etag, feedVersion.lastModifiedMillis())) {
+            return null;
+        }
         return repliesService.getRepliesByParentCommentId(parentCommentId, repliesPageArgs);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")
-    public ReplyRepresentation getSingleReply(@PathVariable @Min(0) long id) {
+    public ReplyRepresentation getSingleReply(@PathVariable @Min(0) long id, WebRequest webRequest) {
+        ResourceVersion replyVersion = repliesService.getReplyVersion(id);
+        // a missing reply falls through to getSingleReply, which answers 404
+        if (replyVersion.exists() && webRequest.checkNotModified(replyVersion.etag("reply", id), replyVersion.lastModifiedMillis())) {
+            return null;
+        }
         return repliesService.getSingleReply(id);
     }
 
@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.replies.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 
 import org.springframework.hateoas.RepresentationModel;
@@ -12,8 +14,11 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = false)
 public class GetRepliesResponse extends RepresentationModel {
-    private long totalElements;
-    private int totalPages;
+    // left out when the client asks for includeTotals=false
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPages;
     private int pageSize;
     private int pageNumber;
     private boolean isLast;
@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.replies.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 
 import org.springframework.hateoas.RepresentationModel;
@@ -22,5 +24,7 @@ public class ReplyRepresentation extends RepresentationModel<ReplyRepresentation
     private TPUserRepresentation author;
     private LocalDateTime createdAt; //ISO-8601 UTC
     private LocalDateTime updatedAt; //ISO-8601 UTC
+    // left out when the reply is embedded in its parent comment
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private CommentRepresentation parentComment;
 }
@@ -0,0 +1,15 @@
+package org.trickyplay.trickyplayapi.replies.records;
+
+import org.trickyplay.trickyplayapi.users.enums.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a reply embedded in its parent comment. The parent comment is already a part of the
+ * representation around it, so only the reply and its author are selected and the parent comment is not joined.
+ */
+public record EmbeddedReplyView(Long id, String body, LocalDateTime createdAt, LocalDateTime updatedAt,
+                                Long authorId, String authorName, Role authorRole,
+                                LocalDateTime authorCreatedAt, LocalDateTime authorUpdatedAt,
+                                Long parentCommentId) {
+}
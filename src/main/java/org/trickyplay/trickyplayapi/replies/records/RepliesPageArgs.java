@@ -2,6 +2,12 @@ package org.trickyplay.trickyplayapi.replies.records;
 
 import org.springframework.data.domain.Sort;
 
+/**
+ * @param includeTotals when false the page is read as a Slice and totalElements/totalPages are left out of the response
+ */
 public record RepliesPageArgs(int pageNumber, int pageSize, String sortBy,
-                              Sort.Direction orderDirection) {
+                              Sort.Direction orderDirection, boolean includeTotals) {
+    public RepliesPageArgs(int pageNumber, int pageSize, String sortBy, Sort.Direction orderDirection) {
+        this(pageNumber, pageSize, sortBy, orderDirection, true);
+    }
 }
@@ -0,0 +1,9 @@
+package org.trickyplay.trickyplayapi.replies.records;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a reply in the activity summary and in the bulk exports, read in keyset chunks
+ */
+public record ReplyExportRow(Long id, String body, Long parentCommentId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
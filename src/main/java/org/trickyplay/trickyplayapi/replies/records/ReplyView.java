@@ -0,0 +1,41 @@
+package org.trickyplay.trickyplayapi.replies.records;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a reply, its author, its parent comment and the author of the parent comment. JPQL constructor
+ * expressions cannot be nested, so the columns of the parent comment are flattened and regrouped by parentComment().
+ */
+public record ReplyView(Long id, String body, LocalDateTime createdAt, LocalDateTime updatedAt,
+                        Long authorId, String authorName, Role authorRole,
+                        LocalDateTime authorCreatedAt, LocalDateTime authorUpdatedAt,
+                        Long parentCommentId, String parentCommentBody, String parentCommentGameName,
+                        LocalDateTime parentCommentCreatedAt, LocalDateTime parentCommentUpdatedAt, Long parentCommentReplyCount,
+                        Long parentCommentAuthorId, String parentCommentAuthorName, Role parentCommentAuthorRole,
+                        LocalDateTime parentCommentAuthorCreatedAt, LocalDateTime parentCommentAuthorUpdatedAt) {
+    public static ReplyView of(Reply reply) {
+        TPUser author = reply.getAuthor();
+        CommentView parentComment = CommentView.of(reply.getParentComment());
+        return new ReplyView(reply.getId(), reply.getBody(), reply.getCreatedAt(), reply.getUpdatedAt(),
+                author.getId(), author.getName(), author.getRole(), author.getCreatedAt(), author.getUpdatedAt(),
+                parentComment.id(), parentComment.body(), parentComment.gameName(),
+                parentComment.createdAt(), parentComment.updatedAt(), parentComment.replyCount(),
+                parentComment.authorId(), parentComment.authorName(), parentComment.authorRole(),
+                parentComment.authorCreatedAt(), parentComment.authorUpdatedAt());
+    }
+
+    public EmbeddedReplyView embedded() {
+        return new EmbeddedReplyView(id, body, createdAt, updatedAt, authorId, authorName, authorRole, authorCreatedAt, authorUpdatedAt, parentCommentId);
+    }
+
+    public CommentView parentComment() {
+        return new CommentView(parentCommentId, parentCommentBody, parentCommentGameName, parentCommentCreatedAt, parentCommentUpdatedAt, parentCommentReplyCount,
+                parentCommentAuthorId, parentCommentAuthorName, parentCommentAuthorRole,
+                parentCommentAuthorCreatedAt, parentCommentAuthorUpdatedAt);
+    }
+}
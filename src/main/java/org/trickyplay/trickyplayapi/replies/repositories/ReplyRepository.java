@@ -2,14 +2,34 @@ package org.trickyplay.trickyplayapi.replies.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.replies.records.EmbeddedReplyView;
+import org.trickyplay.trickyplayapi.replies.records.ReplyExportRow;
+import org.trickyplay.trickyplayapi.replies.records.ReplyView;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ReplyRepository extends JpaRepository<Reply, Long> {
+    // Projection used by the list endpoints - a reply embeds its parent comment, so loading the entities materializes the reply author, the parent Comment and its author (all @ManyToOne EAGER). The view reads them in one statement
+    String SELECT_REPLY_VIEW = """
+            select new org.trickyplay.trickyplayapi.replies.records.ReplyView(
+                r.id, r.body, r.createdAt, r.updatedAt,
+                a.id, a.name, a.role, a.createdAt, a.updatedAt,
+                c.id, c.body, c.gameName, c.createdAt, c.updatedAt, c.replyCount,
+                ca.id, ca.name, ca.role, ca.createdAt, ca.updatedAt)
+            from Reply r join r.author a join r.parentComment c join c.author ca
+            """;
+
     List<Reply> findAllByParentCommentIdIn(List<Long> ids);
 
     Page<Reply> findAll(Pageable page);
@@ -22,6 +42,74 @@ public interface ReplyRepository extends JpaRepository<Reply, Long> {
 
     List<Reply> findAllByIdIn(List<Long> ids); // where x.id in ?1
 
+    // Slice only knows whether a next slice is available - Spring Data fetches pageSize + 1 rows and does not issue the COUNT query that Page requires
+    @Query(SELECT_REPLY_VIEW + "where c.id = :parentCommentId")
+    Slice<ReplyView> findSliceByParentCommentId(@Param("parentCommentId") long parentCommentId, Pageable page);
+
+    @Query(SELECT_REPLY_VIEW + "where a.id = :authorId")
+    Slice<ReplyView> findSliceByAuthorId(@Param("authorId") long authorId, Pageable page);
+
+    // Chunks of the activity summary, see CommentRepository.findExportRowsByAuthorIdAfterId. The parent comment is read as its foreign key, without a join
+    @Query("select new org.trickyplay.trickyplayapi.replies.records.ReplyExportRow(r.id, r.body, r.parentComment.id, r.createdAt, r.updatedAt) from Reply r where r.author.id = :authorId and r.id > :afterId order by r.id")
+    List<ReplyExportRow> findExportRowsByAuthorIdAfterId(@Param("authorId") long authorId, @Param("afterId") long afterId, Pageable page);
+
+    // part of the version of the cached activity summaries, see ActivitySummaryExportService
+    @Query("select max(r.updatedAt) from Reply r where r.author.id = :authorId")
+    LocalDateTime findLatestUpdatedAtByAuthorId(@Param("authorId") long authorId);
+
+    // the authors whose reply totals change with the deletion of the comment, read before its replies are deleted
+    @Query("select distinct r.author.id from Reply r where r.parentComment.id = :parentCommentId")
+    List<Long> findAuthorIdsByParentCommentId(@Param("parentCommentId") long parentCommentId);
+
+    // The replies of a deleted comment in one set-based DELETE, served by the index of the parent_comment_id foreign key. Bulk statements skip the persistence context, no reply is loaded
+    @Transactional
+    @Modifying
+    @Query("delete from Reply r where r.parentComment.id = :parentCommentId")
+    int deleteAllByParentCommentId(@Param("parentCommentId") long parentCommentId);
+
+    // Purge of a deleted account in chunks, see AccountPurgeService. JPQL has no LIMIT, MySQL supports it in a single-table DELETE
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM replies WHERE author_user_id = :authorId ORDER BY id LIMIT :limit", nativeQuery = true)
+    int deleteChunkByAuthorId(@Param("authorId") long authorId, @Param("limit") int limit);
+
+    // Replies of the other users under the comments of the account. The chunk is read once and locked, the counters of its authors are subtracted (TPUserRepository.subtractRepliesByIds) and the rows deleted (deleteAllByIdIn) for exactly these ids - a reply added under the comments meanwhile waits for the next chunk instead of being deleted without being subtracted
+    @Query(value = """
+            SELECT r.id FROM replies r JOIN comments c ON c.id = r.parent_comment_id
+            WHERE c.author_user_id = :authorId ORDER BY r.id LIMIT :limit FOR UPDATE OF r
+            """, nativeQuery = true)
+    List<Long> findChunkOfIdsUnderCommentsOfAuthor(@Param("authorId") long authorId, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Reply r where r.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    long countByParentCommentId(long parentCommentId);
+
+    long countByAuthorId(long authorId);
+
+    // Validators for conditional GET requests - aggregates over the indexed columns, no entity is loaded
+    // the parent comment and its author are embedded in the reply representation, the reply counter of the parent comment changes with the replies of its siblings
+    @Query("select new org.trickyplay.trickyplayapi.general.records.ResourceVersion(count(r), max(r.updatedAt), max(a.updatedAt), max(c.updatedAt), max(ca.updatedAt), sum(c.replyCount)) from Reply r join r.author a join r.parentComment c join c.author ca where r.id = :id")
+    ResourceVersion findVersionById(@Param("id") long id);
+
+    @Query("select new org.trickyplay.trickyplayapi.general.records.ResourceVersion(count(r), max(r.updatedAt), max(a.updatedAt), max(c.updatedAt), max(ca.updatedAt), max(c.replyCount)) from Reply r join r.author a join r.parentComment c join c.author ca where c.id = :parentCommentId")
+    ResourceVersion findVersionByParentCommentId(@Param("parentCommentId") long parentCommentId);
+
+    // Replies embedded in the comments feed with replies - one statement for all comments of the page. ROW_NUMBER numbers the replies of every comment in the order of the (parent_comment_id, created_at, id) index, which covers the derived table, so only the first :limit replies per comment are read instead of all of them
+    @Query(value = """
+            SELECT x.id FROM (
+                SELECT r.id, ROW_NUMBER() OVER (PARTITION BY r.parent_comment_id ORDER BY r.created_at, r.id) AS reply_number
+                FROM replies r WHERE r.parent_comment_id IN (:parentCommentIds)
+            ) x WHERE x.reply_number <= :limit
+            """, nativeQuery = true)
+    List<Long> findFirstIdsByParentCommentIdIn(@Param("parentCommentIds") Collection<Long> parentCommentIds, @Param("limit") int limit);
+
+    // the replies selected above, the parent comment is not joined - it is the comment they are embedded in
+    @Query("select new org.trickyplay.trickyplayapi.replies.records.EmbeddedReplyView(r.id, r.body, r.createdAt, r.updatedAt, a.id, a.name, a.role, a.createdAt, a.updatedAt, r.parentComment.id) from Reply r join r.author a where r.id in :ids order by r.createdAt asc, r.id asc")
+    List<EmbeddedReplyView> findEmbeddedViewsByIdIn(@Param("ids") Collection<Long> ids);
+
     // The findAllRepliesWith query below is equivalent to the findAll query because the author field in the Reply entity is in the @ManyToOne relationship with the TPUser entity, and the default fetch type for @ManyToOne is fetch = FetchType.EAGER
     @Query("Select r from Reply r left join fetch r.author")
     Page<Reply> findAllRepliesWithAuthors(Pageable page);
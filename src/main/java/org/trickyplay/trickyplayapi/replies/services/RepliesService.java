@@ -3,19 +3,23 @@ package org.trickyplay.trickyplayapi.replies.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
 import org.trickyplay.trickyplayapi.general.exceptions.ReplyNotFoundException;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.replies.controllers.RepliesController;
 import org.trickyplay.trickyplayapi.replies.dtos.*;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
 import org.trickyplay.trickyplayapi.replies.records.RepliesPageArgs;
+import org.trickyplay.trickyplayapi.replies.records.ReplyView;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
 import org.trickyplay.trickyplayapi.users.controllers.UsersController;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
@@ -37,6 +41,8 @@ public class RepliesService {
     private final CommentRepository commentRepository;
     private final ReplyRepository replyRepository;
     private final TPUserRepository tPUserRepository;
+    private final TotalCountCache totalCountCache;
+    private final CommentsFeedCache commentsFeedCache;
 
     public GetRepliesResponse getRepliesByParentCommentId(long parentCommentId, RepliesPageArgs repliesPageArgs) {
         Pageable pageable = PageRequest.of(
@@ -45,18 +51,22 @@ public class RepliesService {
                 repliesPageArgs.orderDirection(),
                 repliesPageArgs.sortBy()
         );
-        Page<Reply> replyPage = replyRepository.findAllByParentCommentId(parentCommentId, pageable);
-        List<ReplyRepresentation> replies = ReplyUtils.mapToReplyDTOs(replyPage.getContent());
+        // Slice instead of Page - the total is taken from the count cache, so no COUNT query runs per request
+        // ReplyView projection instead of entities - the replies, their parent comments and all the authors are read in a single statement
+        Slice<ReplyView> replySlice = replyRepository.findSliceByParentCommentId(parentCommentId, pageable);
+        List<ReplyRepresentation> replies = ReplyUtils.mapViewsToReplyDTOs(replySlice.getContent());
 
         GetRepliesResponse getRepliesResponse = GetRepliesResponse.builder()
                 .replies(replies)
-                .pageSize(replyPage.getSize())
-                .totalElements(replyPage.getTotalElements())
-                .totalPages(replyPage.getTotalPages())
-                .pageSize(replyPage.getSize())
-                .pageNumber(replyPage.getNumber())
-                .isLast(replyPage.isLast())
+                .pageSize(replySlice.getSize())
+                .pageNumber(replySlice.getNumber())
+                .isLast(replySlice.isLast())
                 .build();
+        if (repliesPageArgs.includeTotals()) {
+            long totalElements = totalCountCache.get(TotalCountCache.repliesOfComment(parentCommentId), () -> replyRepository.countByParentCommentId(parentCommentId));
+            getRepliesResponse.setTotalElements(totalElements);
+            getRepliesResponse.setTotalPages(TotalCountCache.totalPages(totalElements, replySlice.getSize()));
+        }
 
         getRepliesResponse.add(linkTo(methodOn(RepliesController.class)
                 .getRepliesByParentCommentId(
@@ -64,7 +74,9 @@ public class RepliesService {
                         repliesPageArgs.pageNumber(),
                         repliesPageArgs.pageSize(),
                         repliesPageArgs.sortBy(),
-                        repliesPageArgs.orderDirection().name()
+                        repliesPageArgs.orderDirection().name(),
+                        repliesPageArgs.includeTotals(),
+                        null
                 )).withSelfRel());
         return getRepliesResponse;
     }
@@ -76,18 +88,22 @@ public class RepliesService {
                 repliesPageArgs.orderDirection(),
                 repliesPageArgs.sortBy()
         );
-        Page<Reply> replyPage = replyRepository.findAllByAuthorId(authorId, pageable);
-        List<ReplyRepresentation> replies = ReplyUtils.mapToReplyDTOs(replyPage.getContent());
+        // Slice instead of Page - the total is taken from the count cache, so no COUNT query runs per request
+        // ReplyView projection instead of entities - the replies, their parent comments and all the authors are read in a single statement
+        Slice<ReplyView> replySlice = replyRepository.findSliceByAuthorId(authorId, pageable);
+        List<ReplyRepresentation> replies = ReplyUtils.mapViewsToReplyDTOs(replySlice.getContent());
 
         GetRepliesResponse getRepliesResponse = GetRepliesResponse.builder()
                 .replies(replies)
-                .pageSize(replyPage.getSize())
-                .totalElements(replyPage.getTotalElements())
-                .totalPages(replyPage.getTotalPages())
-                .pageSize(replyPage.getSize())
-                .pageNumber(replyPage.getNumber())
-                .isLast(replyPage.isLast())
+                .pageSize(replySlice.getSize())
+                .pageNumber(replySlice.getNumber())
+                .isLast(replySlice.isLast())
                 .build();
+        if (repliesPageArgs.includeTotals()) {
+            long totalElements = totalCountCache.get(TotalCountCache.repliesOfAuthor(authorId), () -> replyRepository.countByAuthorId(authorId));
+            getRepliesResponse.setTotalElements(totalElements);
+            getRepliesResponse.setTotalPages(TotalCountCache.totalPages(totalElements, replySlice.getSize()));
+        }
 
         getRepliesResponse.add(linkTo(methodOn(UsersController.class)
                 .getUserReplies(
@@ -95,17 +111,28 @@ public class RepliesService {
                         repliesPageArgs.pageNumber(),
                         repliesPageArgs.pageSize(),
                         repliesPageArgs.sortBy(),
-                        repliesPageArgs.orderDirection().name()
+                        repliesPageArgs.orderDirection().name(),
+                        repliesPageArgs.includeTotals()
                 )).withSelfRel());
         return getRepliesResponse;
 
     }
 
+    public ResourceVersion getRepliesFeedVersion(long parentCommentId) {
+        return replyRepository.findVersionByParentCommentId(parentCommentId);
+    }
+
+    public ResourceVersion getReplyVersion(long id) {
+        return replyRepository.findVersionById(id);
+    }
+
     public ReplyRepresentation getSingleReply(long id) {
         return replyRepository.findById(id).map(ReplyUtils::mapToReplyDTO)
                 .orElseThrow(() -> new ReplyNotFoundException(id));
     }
 
+    // the reply and the counters of its parent comment and author are written in one transaction
+    @Transactional
     public ReplyRepresentation addReply(
             TPUserPrincipal principalRequestingToAddResource,
             AddReplyRequest addReplyRequest) {
@@ -117,6 +144,11 @@ public class RepliesService {
                 .parentComment(commentRepository.getReferenceById(addReplyRequest.getParentCommentId()))
                 .build();
         Reply savedReply = replyRepository.save(reply);
+        commentRepository.incrementReplyCount(addReplyRequest.getParentCommentId());
+        tPUserRepository.incrementReplyCount(principalRequestingToAddResource.getId());
+        totalCountCache.increment(TotalCountCache.repliesOfComment(addReplyRequest.getParentCommentId()));
+        totalCountCache.increment(TotalCountCache.repliesOfAuthor(principalRequestingToAddResource.getId()));
+        commentsFeedCache.invalidateComment(addReplyRequest.getParentCommentId());
         return ReplyUtils.mapToReplyDTO(savedReply);
     }
 
@@ -138,6 +170,7 @@ public class RepliesService {
         }
     }
 
+    @Transactional
     public DeleteReplyResponse deleteReply(
             TPUserPrincipal principalRequestingToDeleteResource,
             long idOfTheResourceToBeDeleted
@@ -149,12 +182,17 @@ public class RepliesService {
             DeleteReplyResponse deleteReplyResponse = DeleteReplyResponse.builder()
                     .message("Reply successfully removed").build();
             deleteReplyResponse.add(linkTo(methodOn(UsersController.class)
-                    .getUser(replyToDelete.getAuthor().getId()))
+                    .getUser(replyToDelete.getAuthor().getId(), null))
                     .withRel("author"));
             deleteReplyResponse.add(linkTo(methodOn(RepliesController.class)
-                    .getRepliesByParentCommentId(replyToDelete.getParentComment().getId(), 0, 10, "id", "Asc"))
+                    .getRepliesByParentCommentId(replyToDelete.getParentComment().getId(), 0, 10, "id", "Asc", true, null))
                     .withRel("collection"));
             replyRepository.deleteById(idOfTheResourceToBeDeleted);
+            commentRepository.decrementReplyCount(replyToDelete.getParentComment().getId());
+            tPUserRepository.decrementReplyCount(replyAuthor.getId());
+            totalCountCache.decrement(TotalCountCache.repliesOfComment(replyToDelete.getParentComment().getId()));
+            totalCountCache.decrement(TotalCountCache.repliesOfAuthor(replyAuthor.getId()));
+            commentsFeedCache.invalidateComment(replyToDelete.getParentComment().getId());
             return deleteReplyResponse;
         } else {
             throw new OperationNotAllowedException("You do not have permission to perform actions on this resource");
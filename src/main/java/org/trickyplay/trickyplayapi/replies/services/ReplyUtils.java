@@ -1,18 +1,16 @@
 package org.trickyplay.trickyplayapi.replies.services;
 
 import org.trickyplay.trickyplayapi.comments.services.CommentUtils;
-import org.trickyplay.trickyplayapi.replies.controllers.RepliesController;
+import org.trickyplay.trickyplayapi.general.links.LinkFactory;
 import org.trickyplay.trickyplayapi.replies.dtos.ReplyRepresentation;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
-import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+import org.trickyplay.trickyplayapi.replies.records.EmbeddedReplyView;
+import org.trickyplay.trickyplayapi.replies.records.ReplyView;
 import org.trickyplay.trickyplayapi.users.services.UserUtils;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
 public class ReplyUtils {
     public static List<ReplyRepresentation> mapToReplyDTOs(List<Reply> replies) {
         return replies.stream()
@@ -20,24 +18,38 @@ public class ReplyUtils {
                 .collect(Collectors.toList());
     }
 
+    public static List<ReplyRepresentation> mapViewsToReplyDTOs(List<ReplyView> replies) {
+        return replies.stream()
+                .map(ReplyUtils::mapToReplyDTO)
+                .collect(Collectors.toList());
+    }
+
     public static ReplyRepresentation mapToReplyDTO(Reply reply) {
+        return mapToReplyDTO(ReplyView.of(reply));
+    }
+
+    public static ReplyRepresentation mapToReplyDTO(ReplyView reply) {
+        ReplyRepresentation replyRepresentation = mapToEmbeddedReplyDTO(reply.embedded());
+        replyRepresentation.setParentComment(CommentUtils.mapToCommentDTO(reply.parentComment()));
+        return replyRepresentation;
+    }
+
+    // reply embedded in the representation of its parent comment, so the parent comment is not repeated
+    public static ReplyRepresentation mapToEmbeddedReplyDTO(EmbeddedReplyView reply) {
         ReplyRepresentation replyRepresentation = ReplyRepresentation.builder()
-                .id(reply.getId())
-                .body(reply.getBody())
-                .author(UserUtils.mapToTPUserPublicInfoDTO(reply.getAuthor()))
-                .createdAt(reply.getCreatedAt())
-                .updatedAt(reply.getUpdatedAt())
-                .parentComment(CommentUtils.mapToCommentDTO(reply.getParentComment()))
+                .id(reply.id())
+                .body(reply.body())
+                .author(UserUtils.mapToTPUserPublicInfoDTO(reply.authorId(), reply.authorName(), reply.authorRole(), reply.authorCreatedAt(), reply.authorUpdatedAt()))
+                .createdAt(reply.createdAt())
+                .updatedAt(reply.updatedAt())
                 .build();
 
-        replyRepresentation.add(linkTo(methodOn(RepliesController.class)
-                .getSingleReply(replyRepresentation.getId()))
+        // precompiled link templates instead of linkTo(methodOn(...)) - this runs for every reply of a page
+        replyRepresentation.add(LinkFactory.reply(replyRepresentation.getId())
                 .withSelfRel());
-        replyRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUser(replyRepresentation.getAuthor().getId()))
+        replyRepresentation.add(LinkFactory.user(replyRepresentation.getAuthor().getId())
                 .withRel("author"));
-        replyRepresentation.add(linkTo(methodOn(RepliesController.class)
-                .getRepliesByParentCommentId(reply.getParentComment().getId(), 0, 10, "id", "Asc"))
+        replyRepresentation.add(LinkFactory.repliesOfComment(reply.parentCommentId())
                 .withRel("collection"));
         return replyRepresentation;
     }
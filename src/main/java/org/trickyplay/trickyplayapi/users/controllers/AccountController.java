@@ -4,24 +4,38 @@ import io.micrometer.core.annotation.Timed;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.UUID;
 
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import org.trickyplay.trickyplayapi.general.exports.ExportFormat;
+import org.trickyplay.trickyplayapi.general.exports.ExportWriter;
 import org.trickyplay.trickyplayapi.users.dtos.DeleteAccountResponse;
 import org.trickyplay.trickyplayapi.users.dtos.EditAccountRequest;
+import org.trickyplay.trickyplayapi.users.dtos.ExportRepresentation;
+import org.trickyplay.trickyplayapi.users.enums.ExportStatus;
+import org.trickyplay.trickyplayapi.users.models.ActivitySummaryExport;
 import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
 import org.trickyplay.trickyplayapi.users.services.AccountService;
+import org.trickyplay.trickyplayapi.users.services.ActivityDataExportService;
+import org.trickyplay.trickyplayapi.users.services.ActivitySummaryExportService;
 import org.trickyplay.trickyplayapi.users.services.PDFGeneratorService;
 
 @Validated // validate parameters that are passed into a method
@@ -30,12 +44,16 @@ import org.trickyplay.trickyplayapi.users.services.PDFGeneratorService;
 public class AccountController {
     private final AccountService accountService;
     private final PDFGeneratorService pdfGeneratorService;
+    private final ActivitySummaryExportService activitySummaryExportService;
+    private final ActivityDataExportService activityDataExportService;
 
     private final Counter accountDeletedCounter;
 
-    public AccountController(MeterRegistry registry, AccountService accountService, PDFGeneratorService pdfGeneratorService) {
+    public AccountController(MeterRegistry registry, AccountService accountService, PDFGeneratorService pdfGeneratorService, ActivitySummaryExportService activitySummaryExportService, ActivityDataExportService activityDataExportService) {
         this.accountService = accountService;
         this.pdfGeneratorService = pdfGeneratorService;
+        this.activitySummaryExportService = activitySummaryExportService;
+        this.activityDataExportService = activityDataExportService;
 
         accountDeletedCounter = registry.counter("controllers.account-deleted");
     }
@@ -60,6 +78,62 @@ public class AccountController {
         this.pdfGeneratorService.export(principalId, response);
     }
 
+    // The activity summary rendered in the background, a repeated request for unchanged activity is served from the rendered file
+    @PostMapping("/export")
+    @PreAuthorize("isAuthenticated()")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ExportRepresentation requestExport() {
+        Object principal = SecurityContextHolder.getContext()
+                .getAuthentication()
+                .getPrincipal();
+        long principalId = ((TPUserPrincipal) principal).getId();
+
+        return mapToExportRepresentation(activitySummaryExportService.requestExport(principalId));
+    }
+
+    // the status of the export until it is done, then the PDF itself
+    @GetMapping("/export/{id}")
+    @PreAuthorize("isAuthenticated()")
+    public ExportRepresentation getExport(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Object principal = SecurityContextHolder.getContext()
+                .getAuthentication()
+                .getPrincipal();
+        long principalId = ((TPUserPrincipal) principal).getId();
+
+        ActivitySummaryExport export = activitySummaryExportService.getExport(id, principalId);
+        if (export.getStatus() == ExportStatus.DONE) {
+            activitySummaryExportService.transferTo(export, request, response);
+            return null; // the response is written already
+        }
+        return mapToExportRepresentation(export);
+    }
+
+    /**
+     * @param format         ndjson or csv
+     * @param afterCommentId id of the last comment received before the download was interrupted, 0 starts from the first one
+     * @param afterReplyId   id of the last reply received before the download was interrupted, 0 starts from the first one
+     */
+    @GetMapping("/activity")
+    @PreAuthorize("isAuthenticated()")
+    @Timed("export-activity-timer")
+    public void exportActivity(
+            @RequestParam(value = "format", defaultValue = "ndjson", required = false) @Pattern(regexp = "^(ndjson|csv)$", message = "invalid format") String format,
+            @RequestParam(value = "afterCommentId", defaultValue = "0", required = false) @Min(0) long afterCommentId,
+            @RequestParam(value = "afterReplyId", defaultValue = "0", required = false) @Min(0) long afterReplyId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        Object principal = SecurityContextHolder.getContext()
+                .getAuthentication()
+                .getPrincipal();
+        long principalId = ((TPUserPrincipal) principal).getId();
+
+        activityDataExportService.checkUserExists(principalId);
+        try (ExportWriter writer = ExportWriter.open(request, response, ExportFormat.of(format), "activity_" + principalId, ActivityDataExportService.COLUMNS)) {
+            activityDataExportService.exportActivity(principalId, afterCommentId, afterReplyId, writer);
+        }
+    }
+
     @GetMapping()
     @PreAuthorize("isAuthenticated()")
     public TPUserRepresentation getMyAccount(
@@ -106,4 +180,18 @@ public class AccountController {
 
         return accountService.editAccount(principalId, editAccountRequest);
     }
+
+    private static ExportRepresentation mapToExportRepresentation(ActivitySummaryExport export) {
+        ExportRepresentation exportRepresentation = ExportRepresentation.builder()
+                .id(export.getId())
+                .status(export.getStatus())
+                .createdAt(export.getCreatedAt())
+                .build();
+        // built from the mapping of the controller - getExport declares IOException, which methodOn would pass on to this method
+        exportRepresentation.add(linkTo(AccountController.class)
+                .slash("export")
+                .slash(export.getId())
+                .withSelfRel());
+        return exportRepresentation;
+    }
 }
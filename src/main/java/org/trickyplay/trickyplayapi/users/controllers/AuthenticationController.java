@@ -15,8 +15,8 @@ import org.springframework.web.bind.annotation.*;
 import org.trickyplay.trickyplayapi.general.exceptions.NameTakenException;
 import org.trickyplay.trickyplayapi.users.dtos.*;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
-import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 import org.trickyplay.trickyplayapi.users.services.AuthenticationService;
+import org.trickyplay.trickyplayapi.users.services.UsersService;
 
 import java.net.URI;
 
@@ -25,7 +25,7 @@ import java.net.URI;
 @RequestMapping("auth")
 public class AuthenticationController {
     private final AuthenticationService authenticationService;
-    private final TPUserRepository userRepository;
+    private final UsersService usersService;
 
     private final Counter usernameTakenCounter;
     private final Counter tokenRefreshedCounter;
@@ -33,9 +33,9 @@ public class AuthenticationController {
     private final Counter signedInCounter;
     private final Counter signedUpCounter;
 
-    public AuthenticationController(MeterRegistry registry, AuthenticationService authenticationService, TPUserRepository userRepository) {
+    public AuthenticationController(MeterRegistry registry, AuthenticationService authenticationService, UsersService usersService) {
         this.authenticationService = authenticationService;
-        this.userRepository = userRepository;
+        this.usersService = usersService;
 
         usernameTakenCounter = registry.counter("controllers.username-taken");
         tokenRefreshedCounter = registry.counter("controllers.token-refreshed");
@@ -66,7 +66,7 @@ public class AuthenticationController {
     //    @CookieValue(name = "JSESSIONID") String sessionId
     @PostMapping("/sign-up")
     public ResponseEntity<SignInResponse> signUp(@Valid @RequestBody SignUpRequest signUpRequest) {
-        if (userRepository.existsByName(signUpRequest.getUsername())) {
+        if (!usersService.isNameAvailableForSignUp(signUpRequest.getUsername())) {
             usernameTakenCounter.increment();
             throw new NameTakenException("This username is already taken");
         }
@@ -12,14 +12,17 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import org.trickyplay.trickyplayapi.comments.dtos.GetCommentsResponse;
 import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
 import org.trickyplay.trickyplayapi.comments.services.CommentsService;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.replies.dtos.GetRepliesResponse;
 import org.trickyplay.trickyplayapi.replies.records.RepliesPageArgs;
 import org.trickyplay.trickyplayapi.replies.services.RepliesService;
 import org.trickyplay.trickyplayapi.users.dtos.GetUsersResponse;
+import org.trickyplay.trickyplayapi.users.dtos.NameAvailabilityResponse;
 import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
 import org.trickyplay.trickyplayapi.users.records.UsersPageArgs;
 import org.trickyplay.trickyplayapi.users.services.PDFGeneratorService;
@@ -30,6 +33,9 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
 @Validated
 @RestController
 @RequestMapping("users")
@@ -46,19 +52,41 @@ public class UsersController {
             @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
-            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals // false skips counting the elements, totalElements and totalPages are left out
     ) {
 //        int pageNo = pageNumber >= 0 ? pageNumber : 0;
 //        Set<String> orderValues = Set.of("Asc", "Dsc");
 //        Sort.Direction sortDirection = orderValues.contains(orderDirection) ? Sort.Direction.fromString(orderDirection) : Sort.Direction.ASC;
         Sort.Direction sortDirection = Sort.Direction.fromString(orderDirection);
-        UsersPageArgs usersPageArgs = new UsersPageArgs(pageNumber, pageSize, sortBy, sortDirection);
+        UsersPageArgs usersPageArgs = new UsersPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
         return usersService.getUsers(usersPageArgs);
     }
 
+    // always asks the database, the Bloom filter of this instance may not know the names taken on the other instances yet
+    @GetMapping("/name-available")
+    @PreAuthorize("permitAll()")
+    public NameAvailabilityResponse isNameAvailable(
+            @RequestParam("name") @Pattern(regexp = "^[a-zA-Z0-9_]{2,16}$", message = "Username must contain between 2 and 16 characters. It can only consist of underscores, numbers, lowercase and uppercase letters.") String name
+    ) {
+        NameAvailabilityResponse nameAvailabilityResponse = NameAvailabilityResponse.builder()
+                .name(name)
+                .available(usersService.isNameAvailable(name))
+                .build();
+        nameAvailabilityResponse.add(linkTo(methodOn(UsersController.class)
+                .isNameAvailable(name))
+                .withSelfRel());
+        return nameAvailabilityResponse;
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")
-    public TPUserRepresentation getUser(@PathVariable @Min(0) long id) {
+    public TPUserRepresentation getUser(@PathVariable @Min(0) long id, WebRequest webRequest) {
+        ResourceVersion userVersion = usersService.getUserVersion(id);
+        // checkNotModified sets the ETag and Last-Modified headers, when it returns true the status is already 304 and returning null tells Spring MVC that the response is complete. A missing user falls through to getUser, which answers 404
+        if (userVersion.exists() && webRequest.checkNotModified(userVersion.etag("user", id), userVersion.lastModifiedMillis())) {
+            return null;
+        }
         return usersService.getUser(id);
     }
 
@@ -69,13 +97,14 @@ public class UsersController {
             @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
-            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals // false skips counting the elements, totalElements and totalPages are left out
     ) {
 //        int pageNo = pageNumber >= 0 ? pageNumber : 0;
 //        Set<String> orderValues = Set.of("Asc", "Dsc");
 //        Sort.Direction sortDirection = orderValues.contains(orderDirection) ? Sort.Direction.fromString(orderDirection) : Sort.Direction.ASC;
         Sort.Direction sortDirection = Sort.Direction.fromString(orderDirection);
-        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(pageNumber, pageSize, sortBy, sortDirection);
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
         return commentsService.getCommentsByAuthorId(id, commentsPageArgs);
     }
 
@@ -86,13 +115,14 @@ public class UsersController {
             @RequestParam(value = "pageNumber", defaultValue = "0", required = false) @Min(0) int pageNumber,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) @Min(1) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = "id", required = false) @Pattern(regexp = "^(id|createdAt|updatedAt)$", message = "invalid sort argument") String sortBy,
-            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "orderDirection", defaultValue = "Asc", required = false) @Pattern(regexp = "^(Asc|Dsc)$", message = "invalid order direction") String orderDirection, // Asc -sort descending, Dsc -sort ascending,
+            @RequestParam(value = "includeTotals", defaultValue = "true", required = false) boolean includeTotals // false skips counting the elements, totalElements and totalPages are left out
     ) {
 //        int pageNo = pageNumber >= 0 ? pageNumber : 0;
 //        Set<String> orderValues = Set.of("Asc", "Dsc");
 //        Sort.Direction sortDirection = orderValues.contains(orderDirection) ? Sort.Direction.fromString(orderDirection) : Sort.Direction.ASC;
         Sort.Direction sortDirection = Sort.Direction.fromString(orderDirection);
-        RepliesPageArgs repliesPageArgs = new RepliesPageArgs(pageNumber, pageSize, sortBy, sortDirection);
+        RepliesPageArgs repliesPageArgs = new RepliesPageArgs(pageNumber, pageSize, sortBy, sortDirection, includeTotals);
         return repliesService.getRepliesByAuthorId(id, repliesPageArgs);
     }
 
@@ -0,0 +1,21 @@
+package org.trickyplay.trickyplayapi.users.dtos;
+
+import lombok.*;
+
+import org.springframework.hateoas.RepresentationModel;
+
+import org.trickyplay.trickyplayapi.users.enums.ExportStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class ExportRepresentation extends RepresentationModel<ExportRepresentation> {
+    private UUID id;
+    private ExportStatus status;
+    private Instant createdAt;
+}
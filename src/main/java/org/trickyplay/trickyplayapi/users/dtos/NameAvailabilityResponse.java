@@ -0,0 +1,15 @@
+package org.trickyplay.trickyplayapi.users.dtos;
+
+import lombok.*;
+
+import org.springframework.hateoas.RepresentationModel;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class NameAvailabilityResponse extends RepresentationModel<NameAvailabilityResponse> {
+    private String name;
+    private boolean available;
+}
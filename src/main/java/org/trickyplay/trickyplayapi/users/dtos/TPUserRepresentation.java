@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.users.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 
 import org.springframework.hateoas.RepresentationModel;
@@ -25,4 +27,11 @@ public class TPUserRepresentation extends RepresentationModel {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    // present in the representations of users only, not in the authors embedded in comments and replies - the counters of an author change with every comment or reply they write anywhere, which would make the cached and validated comment representations stale
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long commentCount;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long replyCount;
 }
@@ -8,6 +8,12 @@ import lombok.NoArgsConstructor;
 
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 
 @Entity
@@ -26,14 +32,21 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotNull
-    @Column(unique = true, nullable = false)
+    // The token is only held in memory to be returned to the client, the table stores its SHA-256 hash. A fixed-width 32-byte key makes a smaller and faster unique index than the 36-character UUID, and a leaked table does not leak usable tokens
+    @Transient
     public String token;
 
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "token_hash", length = 32, unique = true, nullable = false)
+    private byte[] tokenHash;
+
     @NotNull
     @Column(nullable = false)
     public boolean revoked;
 
+    // Set together with revoked by the UPDATE statements of RefreshTokenRepository, the other instances poll the tokens revoked since their previous poll by it, see RefreshTokenService.pollRevocations
+    private Instant revokedAt;
+
     @NotNull
     @ManyToOne(optional = false) // From the JPA 2.0 spec @ManyToOne has default FetchType.EAGER.
     @JoinColumn(name = "owner_user_id", referencedColumnName = "id", nullable = false)
@@ -42,4 +55,19 @@ public class RefreshToken {
     @NotNull
     @Column(nullable = false)
     private Instant expiryDate; //ISO-8601 UTC
+
+    @PrePersist
+    void hashToken() {
+        if (tokenHash == null) {
+            tokenHash = hash(token);
+        }
+    }
+
+    public static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", ex);
+        }
+    }
 }
@@ -13,6 +13,7 @@ import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
 import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
@@ -40,6 +41,10 @@ public class TPUser {
     @Column(nullable = false, length = 32, unique = true)
     private String name;
 
+    // Lower-case copy of the name kept by normalizeName, availability checks compare it with = and use its unique index
+    @Column(nullable = false, length = 32, unique = true)
+    private String normalizedName;
+
     @NotNull
     @Column(nullable = false, length = 64)
     private String password;
@@ -61,6 +66,21 @@ public class TPUser {
     // From the JPA 2.0 spec @OneToMany has default FetchType.LAZY. OrphanRemoval attribute in @OneToMany and @OneToOne is by default false. By default, no operations are cascaded.
     private List<Reply> replies;
 
+    // Denormalized numbers of comments and replies of the user, changed only with atomic UPDATE statements (TPUserRepository.incrementCommentCount...). Left out of the INSERT and UPDATE statements of the entity, the database default is 0
+    @Column(insertable = false, updatable = false)
+    private long commentCount;
+
+    @Column(insertable = false, updatable = false)
+    private long replyCount;
+
+    // Access tokens issued before this moment are rejected, null when they were never revoked. Changed only with TPUserRepository.updateTokensValidAfter, see AccessTokenRevocationService
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime tokensValidAfter;
+
+    // The moment the user deleted the account, null for an active account. Set only with TPUserRepository.markDeleted, the row and the content of the user are removed later by DeletedAccountsPurgeJob
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     @NotNull
     @Column(nullable = false)
     private LocalDateTime createdAt;
@@ -68,4 +88,15 @@ public class TPUser {
     @NotNull
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeName() {
+        normalizedName = normalizeName(name);
+    }
+
+    // Locale.ROOT - the lower case of the name must not depend on the locale of the server (e.g. the Turkish dotless i)
+    public static String normalizeName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,8 @@
+package org.trickyplay.trickyplayapi.users.enums;
+
+public enum ExportStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,27 @@
+package org.trickyplay.trickyplayapi.users.models;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import org.trickyplay.trickyplayapi.users.enums.ExportStatus;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An activity summary requested with POST /account/export. The job lives in the memory of the instance that accepted it,
+ * the rendered file in its spool directory - a job id is only known to that instance.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ActivitySummaryExport {
+    private final UUID id;
+    private final long ownerId;
+    private final String version; // the state of the activity the file is rendered from, see ActivitySummaryExportService.version
+    private final Path file;
+    private final Instant createdAt;
+    @Setter
+    private volatile ExportStatus status = ExportStatus.QUEUED;
+}
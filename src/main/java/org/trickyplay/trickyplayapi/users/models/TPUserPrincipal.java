@@ -25,6 +25,9 @@ public class TPUserPrincipal implements UserDetails {
 
     private LocalDateTime updatedAt;
 
+    // false once the account is deleted, DaoAuthenticationProvider rejects the sign-in with DisabledException
+    private final boolean enabled;
+
     @Builder
     public TPUserPrincipal(Long id, String name, String password, String role, String createdAt, String updatedAt) {
         this.id = id;
@@ -33,6 +36,23 @@ public class TPUserPrincipal implements UserDetails {
         this.password = password;
         this.createdAt = LocalDateTime.parse(createdAt);
         this.updatedAt = LocalDateTime.parse(updatedAt);
+        this.enabled = true;
+    }
+
+    // principal read from a compact access token, the role and the dates are already parsed by JwtService
+    public TPUserPrincipal(Long id, String name, Role role, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, role, createdAt, updatedAt, true); // the tokens of a deleted account are revoked, see AccessTokenRevocationService
+    }
+
+    // principal of the owner of a refresh token, read with the token - see RefreshTokenEntry
+    public TPUserPrincipal(Long id, String name, Role role, LocalDateTime createdAt, LocalDateTime updatedAt, boolean enabled) {
+        this.id = id;
+        this.name = name;
+        this.password = null;
+        this.role = role;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.enabled = enabled;
     }
 
     @Builder
@@ -43,6 +63,7 @@ public class TPUserPrincipal implements UserDetails {
         this.id = user.getId();
         this.createdAt = user.getCreatedAt();
         this.updatedAt = user.getUpdatedAt();
+        this.enabled = user.getDeletedAt() == null;
 
         // if we kept the roles in a comma-separated string
         // this.authorities = Arrays.stream(user.getRoles().split(","))
@@ -87,6 +108,6 @@ public class TPUserPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true;
+        return this.enabled;
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package org.trickyplay.trickyplayapi.users.records;
+
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * The state of a refresh token and the public info of its owner, everything the refresh and sign-out paths need without
+ * the EAGER owner of the entity. The owner info goes into the access tokens issued with the refresh token.
+ *
+ * @param ownerId    id of the user the token was issued for
+ * @param expiryDate the token is rejected after this moment
+ * @param revoked    the token was revoked by a sign-out
+ * @param ownerEnabled false once the account of the owner is deleted
+ */
+public record RefreshTokenEntry(Long ownerId, Instant expiryDate, boolean revoked,
+                                String ownerName, Role ownerRole, LocalDateTime ownerCreatedAt, LocalDateTime ownerUpdatedAt,
+                                boolean ownerEnabled) {
+    public static RefreshTokenEntry of(TPUserPrincipal owner, Instant expiryDate, boolean revoked) {
+        return new RefreshTokenEntry(owner.getId(), expiryDate, revoked, owner.getName(), owner.getRole(), owner.getCreatedAt(), owner.getUpdatedAt(), owner.isEnabled());
+    }
+
+    public boolean isExpiredOrRevoked() {
+        return revoked || expiryDate.isBefore(Instant.now());
+    }
+
+    public RefreshTokenEntry asRevoked() {
+        return new RefreshTokenEntry(ownerId, expiryDate, true, ownerName, ownerRole, ownerCreatedAt, ownerUpdatedAt, ownerEnabled);
+    }
+
+    public TPUserPrincipal owner() {
+        return new TPUserPrincipal(ownerId, ownerName, ownerRole, ownerCreatedAt, ownerUpdatedAt, ownerEnabled);
+    }
+}
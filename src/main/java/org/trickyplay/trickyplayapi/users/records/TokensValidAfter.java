@@ -0,0 +1,11 @@
+package org.trickyplay.trickyplayapi.users.records;
+
+import java.time.LocalDateTime;
+
+/**
+ * @param userId     id of the user
+ * @param validAfter access tokens of the user issued before this moment (UTC) are rejected, null when they were never
+ *                   revoked
+ */
+public record TokensValidAfter(Long userId, LocalDateTime validAfter) {
+}
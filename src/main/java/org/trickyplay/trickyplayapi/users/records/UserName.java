@@ -0,0 +1,8 @@
+package org.trickyplay.trickyplayapi.users.records;
+
+/**
+ * @param id             id of the user
+ * @param normalizedName the lower-case name of the user
+ */
+public record UserName(Long id, String normalizedName) {
+}
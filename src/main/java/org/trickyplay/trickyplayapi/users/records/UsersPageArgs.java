@@ -2,6 +2,12 @@ package org.trickyplay.trickyplayapi.users.records;
 
 import org.springframework.data.domain.Sort;
 
+/**
+ * @param includeTotals when false the page is read as a Slice and totalElements/totalPages are left out of the response
+ */
 public record UsersPageArgs(int pageNumber, int pageSize, String sortBy,
-                            Sort.Direction orderDirection) {
+                            Sort.Direction orderDirection, boolean includeTotals) {
+    public UsersPageArgs(int pageNumber, int pageSize, String sortBy, Sort.Direction orderDirection) {
+        this(pageNumber, pageSize, sortBy, orderDirection, true);
+    }
 }
@@ -0,0 +1,24 @@
+package org.trickyplay.trickyplayapi.users.records;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Access token whose signature and expiration have been verified by JwtService.verify. Everything the authentication
+ * filter needs is read from the claims of that single parse, so the token is not parsed (and its HMAC computed) again.
+ *
+ * @param principal   the user the token was issued for
+ * @param issuedAt    the iat claim, compared with the moment the tokens of the user were revoked. The epoch when the
+ *                    token has none, so that any revocation rejects it
+ * @param expiresAt   the exp claim, always in the future when the token was verified
+ * @param authorities authorities granted by the role of the user
+ */
+public record VerifiedToken(TPUserPrincipal principal, Instant issuedAt, Instant expiresAt, List<SimpleGrantedAuthority> authorities) {
+    public VerifiedToken {
+        authorities = List.copyOf(authorities);
+    }
+}
@@ -1,10 +1,15 @@
 package org.trickyplay.trickyplayapi.users.repositories;
 
 import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +21,42 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Inte
             """)
     List<RefreshToken> findAllValidTokensByUser(Long id);
 
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    // The refresh path needs the state of the token and the public info of its owner, which goes into the new access token - both are read in one statement by the unique key instead of loading the EAGER owner of the entity
+    @Query("select new org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry(t.owner.id, t.expiryDate, t.revoked, u.name, u.role, u.createdAt, u.updatedAt, case when u.deletedAt is null then true else false end) from RefreshToken t join t.owner u where t.tokenHash = :tokenHash")
+    Optional<RefreshTokenEntry> findEntryByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    // Revokes by the unique key in a single UPDATE, returns 0 if there is no such token
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now where t.tokenHash = :tokenHash")
+    int revokeByTokenHash(@Param("tokenHash") byte[] tokenHash, @Param("now") Instant now);
+
+    // A single UPDATE instead of loading every token with its EAGER owner and saving them one by one. Tokens already loaded into the persistence context keep the old value of revoked
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now where t.owner.id = :ownerId and t.revoked = false")
+    int revokeAllValidTokensByOwnerId(@Param("ownerId") long ownerId, @Param("now") Instant now);
+
+    // Revocations made on any instance since the given moment, read through the refresh_tokens_revoked_at index by RefreshTokenService.pollRevocations
+    @Query("select t.tokenHash from RefreshToken t where t.revokedAt > :since")
+    List<byte[]> findTokenHashesRevokedSince(@Param("since") Instant since);
+
+    // Purge in chunks - a DELETE of every expired row at once would hold its locks and grow the undo log for as long as it runs. JPQL has no LIMIT, MySQL supports it in a single-table DELETE
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE expiry_date < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredTokens(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE revoked = true LIMIT :limit", nativeQuery = true)
+    int deleteRevokedTokens(@Param("limit") int limit);
+
+    // refresh tokens of a deleted account, see AccountPurgeService
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE owner_user_id = :ownerId LIMIT :limit", nativeQuery = true)
+    int deleteChunkByOwnerId(@Param("ownerId") long ownerId, @Param("limit") int limit);
 }
@@ -2,12 +2,20 @@ package org.trickyplay.trickyplayapi.users.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.records.TokensValidAfter;
+import org.trickyplay.trickyplayapi.users.records.UserName;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,15 +26,141 @@ public interface TPUserRepository extends JpaRepository<TPUser, Long> {
 
     List<TPUser> findAllByIdIn(List<Long> ids); // where x.id in ?1
 
+    // Slice only knows whether a next slice is available - Spring Data fetches pageSize + 1 rows and does not issue the COUNT query that Page requires
+    @Query("select u from TPUser u")
+    Slice<TPUser> findSliceOfUsers(Pageable page);
+
     boolean existsById(Long id); // the exists projection in repository query derivation is supported since Spring Data JPA 1.11
 
     boolean existsByName(String name);
 
+    // served by the unique index on normalized_name, see UserNameBloomFilter for the check that usually answers without it
+    boolean existsByNormalizedName(String normalizedName);
+
+    @Query("select u.normalizedName from TPUser u where u.id = :id")
+    Optional<String> findNormalizedNameById(@Param("id") long id);
+
+    // Keyset pagination over the names for the rebuild of UserNameBloomFilter, every batch continues after the last id of the previous one
+    @Query("select new org.trickyplay.trickyplayapi.users.records.UserName(u.id, u.normalizedName) from TPUser u where u.id > :afterId order by u.id")
+    List<UserName> findNamesAfterId(@Param("afterId") long afterId, Pageable page);
+
+    // Validator for conditional GET requests, no entity is loaded. The counters change without touching updatedAt - the comment counter is shifted, so that a deleted comment and an added reply do not cancel out
+    @Query("select new org.trickyplay.trickyplayapi.general.records.ResourceVersion(count(u), max(u.updatedAt), max(u.updatedAt), sum(u.commentCount * 4294967296L + u.replyCount)) from TPUser u where u.id = :id")
+    ResourceVersion findVersionById(@Param("id") long id);
+
+    // Denormalized counters - atomic UPDATE ... SET x = x + 1 statements, the row lock serializes concurrent writes of the same user. The persistence context is not touched, a TPUser that is already loaded keeps the old values
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.commentCount = u.commentCount + 1 where u.id = :id")
+    int incrementCommentCount(@Param("id") long id);
+
+    // comments added with a single multi-row INSERT
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.commentCount = u.commentCount + :count where u.id = :id")
+    int incrementCommentCountBy(@Param("id") long id, @Param("count") long count);
+
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.commentCount = u.commentCount - 1 where u.id = :id and u.commentCount > 0")
+    int decrementCommentCount(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.replyCount = u.replyCount + 1 where u.id = :id")
+    int incrementReplyCount(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.replyCount = u.replyCount - 1 where u.id = :id and u.replyCount > 0")
+    int decrementReplyCount(@Param("id") long id);
+
+    // Deleting a comment cascades to its replies, which are subtracted from the counters of their authors. It has to run before the replies are deleted
+    @Transactional
+    @Modifying
+    @Query("""
+            update TPUser u set u.replyCount = u.replyCount - (select count(r) from Reply r where r.author = u and r.parentComment.id = :commentId)
+            where u.id in (select r.author.id from Reply r where r.parentComment.id = :commentId)
+            """)
+    int subtractRepliesOfComment(@Param("commentId") long commentId);
+
+    // Purge of a deleted account, see AccountPurgeService. The replies of a chunk under the comments of the account are subtracted from the counters of their authors, for the ids ReplyRepository.findChunkOfIdsUnderCommentsOfAuthor has locked
+    @Transactional
+    @Modifying
+    @Query("""
+            update TPUser u set u.replyCount = u.replyCount - (select count(r) from Reply r where r.author = u and r.id in :replyIds)
+            where u.id in (select r.author.id from Reply r where r.id in :replyIds)
+            """)
+    int subtractRepliesByIds(@Param("replyIds") Collection<Long> replyIds);
+
+    // Repair of the drift of the counters, see CommentRepository.reconcileReplyCounts
+    @Transactional
+    @Modifying
+    @Query("""
+            update TPUser u set u.commentCount = (select count(c) from Comment c where c.author = u)
+            where u.id between :fromId and :toId
+            and u.commentCount <> (select count(c) from Comment c where c.author = u)
+            """)
+    int reconcileCommentCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update TPUser u set u.replyCount = (select count(r) from Reply r where r.author = u)
+            where u.id between :fromId and :toId
+            and u.replyCount <> (select count(r) from Reply r where r.author = u)
+            """)
+    int reconcileReplyCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("select coalesce(max(u.id), 0) from TPUser u")
+    long findMaxId();
+
+    // Revocation of the access tokens of the user, the moment only moves forward so that a delayed write does not undo a later revocation
+    @Transactional
+    @Modifying
+    @Query("""
+            update TPUser u set u.tokensValidAfter = :validAfter
+            where u.id = :id and (u.tokensValidAfter is null or u.tokensValidAfter < :validAfter)
+            """)
+    int updateTokensValidAfter(@Param("id") long id, @Param("validAfter") LocalDateTime validAfter);
+
+    // An empty result means that the user does not exist, a row with null that the tokens of the user were never revoked
+    @Query("select new org.trickyplay.trickyplayapi.users.records.TokensValidAfter(u.id, u.tokensValidAfter) from TPUser u where u.id = :id")
+    Optional<TokensValidAfter> findTokensValidAfterById(@Param("id") long id);
+
+    // Revocations polled by the instances, served by the index on tokens_valid_after
+    @Query("select new org.trickyplay.trickyplayapi.users.records.TokensValidAfter(u.id, u.tokensValidAfter) from TPUser u where u.tokensValidAfter > :since")
+    List<TokensValidAfter> findTokensValidAfterChangedSince(@Param("since") LocalDateTime since);
+
+    // Deletion of an account - the user is marked at once, the content and the row are removed by DeletedAccountsPurgeJob. Returns 0 if the user does not exist or is already marked
+    @Transactional
+    @Modifying
+    @Query("update TPUser u set u.deletedAt = :deletedAt where u.id = :id and u.deletedAt is null")
+    int markDeleted(@Param("id") long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Accounts still to be purged, the oldest deletions first - only those deleted before deletedBefore. Served by the index on deleted_at, a restarted instance resumes from it
+    @Query("select u.id from TPUser u where u.deletedAt is not null and u.deletedAt <= :deletedBefore order by u.deletedAt, u.id")
+    List<Long> findIdsOfDeletedUsers(@Param("deletedBefore") LocalDateTime deletedBefore, Pageable page);
+
+    @Query("select count(u) from TPUser u where u.deletedAt is not null")
+    long countDeletedUsers();
+
+    // SELECT ... FOR UPDATE on the row of the deleted user - the instances purge the same accounts, a chunk waits for the chunk of another instance to commit, so its counters are not subtracted twice. Empty once the user is purged
+    @Query(value = "SELECT id FROM users WHERE id = :id AND deleted_at IS NOT NULL FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockDeletedUserById(@Param("id") long id);
+
+    // The last step of the purge, a bulk DELETE does not cascade - the rows that reference the user are gone by then
+    @Transactional
+    @Modifying
+    @Query("delete from TPUser u where u.id = :id and u.deletedAt is not null")
+    int deleteDeletedUserById(@Param("id") long id);
+
     // case expression was added in JPA 2.0
     // "SELECT u.name, CASE WHEN (u.id >= 100) THEN 1 WHEN (u.id < 100) THEN 2 ELSE 0 END FROM TPUser u"
     // emulate existence fun by using a COUNT query: The COUNT query works fine in this particular case since we are matching a UNIQUE column value. However, generally, for queries that return result sets having more than one record, we should prefer using EXISTS instead of COUNT
     // @Query(value = "select count(u.id) = 1 from TPUser u where u.name = :name")
     // @Query(value = "SELECT CASE WHEN EXISTS (SELECT 1 FROM Users WHERE name = :name) THEN 'true' ELSE 'false' END ", nativeQuery = true)
-    @Query("select case when count(u)> 0 then true else false end from TPUser u where lower(u.name) like lower(:name)")
+    // compares the normalized name with =, lower(u.name) like lower(:name) could not use an index
+    @Query("select case when count(u)> 0 then true else false end from TPUser u where u.normalizedName = lower(:name)")
     boolean existsByNameCustomQuery(@Param("name") String name);
 }
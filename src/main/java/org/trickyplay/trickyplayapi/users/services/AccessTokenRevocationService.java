@@ -0,0 +1,128 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+import org.trickyplay.trickyplayapi.users.records.TokensValidAfter;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Revocation of the access tokens of a user (ban, sign-out of all sessions) before they expire. The moment after which
+ * the tokens of the user are valid again is stored in Users.tokens_valid_after and kept in memory, so the authentication
+ * filter compares it with the iat claim without a database round trip. The value of a user is loaded on the first
+ * request of the user, after that the changes made on any instance are picked up by AccessTokenRevocationPollingJob.
+ * The values are kept in a bounded Caffeine cache, which holds a single long per active user and does not lock on reads.
+ * An entry is dropped when the user has not sent a request for longer than the lifetime of an access token, so the
+ * users that stopped using the API do not accumulate - an evicted value is loaded again with the next request.
+ */
+@Slf4j
+@Service
+public class AccessTokenRevocationService {
+    // the rows changed shortly before the previous poll are read again - the clocks of the instances differ and a revocation may be committed after the poll started
+    static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+    // epoch second of the users whose tokens were never revoked
+    private static final long NEVER_REVOKED = Long.MIN_VALUE;
+    // epoch second of the users that do not exist anymore, none of their tokens is valid
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final TPUserRepository userRepository;
+    private final RefreshTokenCache refreshTokenCache;
+    private final ConcurrentMap<Long, Long> validAfterEpochSeconds;
+    private volatile LocalDateTime polledAt = LocalDateTime.now(ZoneOffset.UTC);
+
+    public AccessTokenRevocationService(TPUserRepository userRepository,
+                                        RefreshTokenCache refreshTokenCache,
+                                        MeterRegistry registry,
+                                        @Value("${application.security.jwt.access-token-expiration}") long accessTokenExpiration,
+                                        @Value("${application.security.token-revocation.maximum-size:100000}") long maximumSize) {
+        this.userRepository = userRepository;
+        this.refreshTokenCache = refreshTokenCache;
+        // an entry outlives the last token the user sent by the lifetime of a token, a token issued later loads the value again
+        Cache<Long, Long> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofMillis(accessTokenExpiration))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "access-token-revocations");
+        this.validAfterEpochSeconds = cache.asMap();
+    }
+
+    /**
+     * Rejects the access tokens of the user issued before the current second. The iat claim and tokens_valid_after have a
+     * resolution of seconds, so the boundary is the start of the second of the revocation: a token issued in an earlier
+     * second is rejected, a token issued in the same second is accepted. A user who signs out of all sessions and signs in
+     * again within the second keeps the new token, in exchange a token issued earlier in that second stays valid as well -
+     * at most one second of tokens, the refresh tokens of the user are revoked at the same time.
+     *
+     * @param userId id of the user
+     */
+    public void revokeAccessTokens(long userId) {
+        LocalDateTime validAfter = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        userRepository.updateTokensValidAfter(userId, validAfter);
+        long epochSecond = validAfter.toEpochSecond(ZoneOffset.UTC);
+        // other instances see the revocation after the commit as well, a rolled back ban must not lock the user out here
+        TransactionUtils.afterCommit(() -> validAfterEpochSeconds.merge(userId, epochSecond, Math::max));
+        log.info("Access tokens of the user {} issued before {} revoked", userId, validAfter);
+    }
+
+    /**
+     * @param userId   id of the user the token was issued for
+     * @param issuedAt the iat claim of the token
+     * @return true if the token was issued in a second before the revocation (see revokeAccessTokens) or the user was deleted
+     */
+    public boolean isRevoked(long userId, Instant issuedAt) {
+        Long validAfter = validAfterEpochSeconds.get(userId);
+        if (validAfter == null) {
+            // loaded outside of computeIfAbsent, which would block the other readers of the bin during the query
+            validAfter = userRepository.findTokensValidAfterById(userId)
+                    .map(tokensValidAfter -> toEpochSecond(tokensValidAfter.validAfter()))
+                    .orElse(DELETED);
+            Long current = validAfterEpochSeconds.putIfAbsent(userId, validAfter);
+            if (current != null) {
+                validAfter = current;
+            }
+        }
+        return issuedAt.getEpochSecond() < validAfter;
+    }
+
+    // Only the users already in the map are updated, the others load the current value on their first request.
+    // A ban, a sign-out of all sessions and a deleted account change the role or the state of the owner cached with the refresh tokens, these entries are loaded again as well
+    public int pollRevocations() {
+        LocalDateTime pollStartedAt = LocalDateTime.now(ZoneOffset.UTC);
+        List<TokensValidAfter> revocations = userRepository.findTokensValidAfterChangedSince(polledAt.minus(POLL_OVERLAP));
+        for (TokensValidAfter revocation : revocations) {
+            validAfterEpochSeconds.computeIfPresent(revocation.userId(),
+                    (userId, validAfter) -> Math.max(validAfter, toEpochSecond(revocation.validAfter())));
+            refreshTokenCache.invalidateOwner(revocation.userId());
+        }
+        polledAt = pollStartedAt;
+        return revocations.size();
+    }
+
+    // deleted accounts are rejected after the commit, without waiting for the next request of the user to load it
+    public void forgetDeletedUser(long userId) {
+        TransactionUtils.afterCommit(() -> validAfterEpochSeconds.put(userId, DELETED));
+    }
+
+    private static long toEpochSecond(LocalDateTime validAfter) {
+        return validAfter == null ? NEVER_REVOKED : validAfter.toEpochSecond(ZoneOffset.UTC);
+    }
+}
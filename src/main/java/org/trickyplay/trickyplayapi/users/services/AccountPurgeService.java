@@ -0,0 +1,108 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.utils.TransactionUtils;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Removes the content of the accounts marked as deleted (AccountService.deleteAccount) one chunk at a time, driven by
+ * DeletedAccountsPurgeJob. Every method is a short transaction that locks the row of the deleted user first, subtracts
+ * the chunk from the denormalized counters and deletes it with DELETE ... LIMIT n. The progress is the rows that are
+ * left, so a purge interrupted by a restart continues where it stopped and never subtracts a chunk twice.
+ * The order matters: the replies under the comments of the user have to be gone before the comments (foreign key), the
+ * row of the user goes last. The caches are invalidated once per account, when its row is deleted - not with every chunk.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountPurgeService {
+    private final TPUserRepository userRepository;
+    private final CommentRepository commentRepository;
+    private final ReplyRepository replyRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TotalCountCache totalCountCache;
+    private final CommentsFeedCache commentsFeedCache;
+    private final UserNameBloomFilter userNameBloomFilter;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+
+    // replies written by the user, subtracted from the counters of the comments they were written under
+    @Transactional
+    public int purgeChunkOfReplies(long userId, int limit) {
+        if (userRepository.lockDeletedUserById(userId).isEmpty()) {
+            return 0;
+        }
+        // the deleted user can not reply anymore, the ORDER BY id LIMIT n of both statements selects the same chunk
+        commentRepository.subtractChunkOfRepliesOfAuthor(userId, limit);
+        return replyRepository.deleteChunkByAuthorId(userId, limit);
+    }
+
+    // replies of the other users under the comments of the user, subtracted from the counters of their authors. The others
+    // can still reply while the purge runs, so the chunk is selected (and locked) once and both statements use its ids
+    @Transactional
+    public int purgeChunkOfRepliesToComments(long userId, int limit) {
+        if (userRepository.lockDeletedUserById(userId).isEmpty()) {
+            return 0;
+        }
+        List<Long> replyIds = replyRepository.findChunkOfIdsUnderCommentsOfAuthor(userId, limit);
+        if (replyIds.isEmpty()) {
+            return 0;
+        }
+        userRepository.subtractRepliesByIds(replyIds);
+        return replyRepository.deleteAllByIdIn(replyIds);
+    }
+
+    // a reply added under the comments after purgeChunkOfRepliesToComments finished fails the chunk on the foreign key, the next run removes it first
+    @Transactional
+    public int purgeChunkOfComments(long userId, int limit) {
+        if (userRepository.lockDeletedUserById(userId).isEmpty()) {
+            return 0;
+        }
+        return commentRepository.deleteChunkByAuthorId(userId, limit);
+    }
+
+    @Transactional
+    public int purgeChunkOfRefreshTokens(long userId, int limit) {
+        if (userRepository.lockDeletedUserById(userId).isEmpty()) {
+            return 0;
+        }
+        return refreshTokenRepository.deleteChunkByOwnerId(userId, limit);
+    }
+
+    /**
+     * The last step of the purge, after the replies, comments and refresh tokens of the user are gone. The name stays
+     * taken until now, so nobody signs up as the deleted user while their content is still shown under it.
+     *
+     * @param userId id of the deleted user
+     * @return false if the user was purged already (by another instance)
+     */
+    @Transactional
+    public boolean deleteUser(long userId) {
+        Optional<String> normalizedName = userRepository.findNormalizedNameById(userId);
+        if (userRepository.deleteDeletedUserById(userId) == 0) {
+            return false;
+        }
+        // the counts of games, comments and users and the cached feeds changed with the chunks of the whole purge
+        TransactionUtils.afterCommit(() -> {
+            normalizedName.ifPresent(userNameBloomFilter::remove);
+            totalCountCache.invalidateAll();
+            commentsFeedCache.invalidateAll();
+        });
+        accessTokenRevocationService.forgetDeletedUser(userId);
+        log.info("Account of the user {} purged", userId);
+        return true;
+    }
+}
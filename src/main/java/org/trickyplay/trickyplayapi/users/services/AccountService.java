@@ -3,11 +3,16 @@ package org.trickyplay.trickyplayapi.users.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.exceptions.NameTakenException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
 import org.trickyplay.trickyplayapi.users.controllers.AccountController;
 import org.trickyplay.trickyplayapi.users.controllers.AuthenticationController;
@@ -28,6 +33,10 @@ import java.time.ZoneOffset;
 public class AccountService {
     private final TPUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CommentsFeedCache commentsFeedCache;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final UserNameBloomFilter userNameBloomFilter;
 
     public TPUserRepresentation getAccount(long id) {
         return userRepository.findById(id)
@@ -35,8 +44,15 @@ public class AccountService {
                 .orElseThrow(() -> new UserNotFoundException(id));
     }
 
+    @Transactional
     public DeleteAccountResponse deleteAccount(long id) {
-        userRepository.deleteById(id);
+        // The account is only marked as deleted, its replies, comments and refresh tokens are removed a chunk at a time by DeletedAccountsPurgeJob (see AccountPurgeService).
+        // The cascading removal loaded every comment and reply of the user into the persistence context and deleted them row by row in one transaction, which held the locks of a busy account for as long as it ran
+        userRepository.markDeleted(id, LocalDateTime.now(ZoneOffset.UTC));
+        // the sign-in is rejected from now on (TPUserPrincipal.isEnabled), the sessions that are already open end with their tokens
+        refreshTokenService.revokeAllUserTokens(id);
+        accessTokenRevocationService.revokeAccessTokens(id);
+        accessTokenRevocationService.forgetDeletedUser(id);
         DeleteAccountResponse deleteAccountResponse = DeleteAccountResponse.builder()
                 .message("The account for user with id: " + id + " has been removed")
                 .build();
@@ -44,7 +60,7 @@ public class AccountService {
                 .deleteAccount())
                 .withSelfRel());
         deleteAccountResponse.add(linkTo(methodOn(UsersController.class)
-                .getUsers(0, 10, "id", "Asc"))
+                .getUsers(0, 10, "id", "Asc", true))
                 .withRel("collection"));
         deleteAccountResponse.add(linkTo(methodOn(AuthenticationController.class)
                 .signUp(new SignUpRequest("username", "password")))
@@ -55,15 +71,34 @@ public class AccountService {
     public TPUserRepresentation editAccount(long accountOwnerId, EditAccountRequest editAccountRequest) {
         TPUser user = userRepository.findById(accountOwnerId)
                 .orElseThrow(() -> new UserNotFoundException(accountOwnerId));
-        if (editAccountRequest.getNewUsername() != null) {
-            user.setName(editAccountRequest.getNewUsername());
+        String oldName = user.getName();
+        String newName = editAccountRequest.getNewUsername();
+        if (newName != null) {
+            // a change of the case only keeps the normalized name, which belongs to this user already
+            if (!TPUser.normalizeName(newName).equals(user.getNormalizedName())
+                    && userNameBloomFilter.mightContain(newName)
+                    && userRepository.existsByNormalizedName(TPUser.normalizeName(newName))) {
+                throw new NameTakenException("This username is already taken");
+            }
+            user.setName(newName);
             user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         }
         if (editAccountRequest.getNewPassword() != null) {
             user.setPassword(passwordEncoder.encode(editAccountRequest.getNewPassword()));
             user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         }
-        TPUser savedUser = userRepository.save(user);
+        TPUser savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException ex) {
+            // the name was taken by a concurrent sign-up or rename, the unique index on normalized_name rejects it
+            throw new NameTakenException("This username is already taken");
+        }
+        if (newName != null) {
+            userNameBloomFilter.rename(oldName, newName);
+            refreshTokenService.invalidateCachedOwner(accountOwnerId); // the name goes into the access tokens issued with the cached refresh tokens
+        }
+        commentsFeedCache.invalidateAuthor(accountOwnerId);
         return UserUtils.mapToTPUserPublicInfoDTO(savedUser);
     }
 }
@@ -0,0 +1,88 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
+import org.trickyplay.trickyplayapi.general.exports.ExportWriter;
+import org.trickyplay.trickyplayapi.replies.records.ReplyExportRow;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Machine-readable export of all comments and replies of a user - the comments first, then the replies, each ordered by id.
+ * The rows are read in seek-paginated chunks of projections, so no entity is ever managed and the persistence context does
+ * not grow; every chunk is written and flushed before the next one is read. There is no transaction spanning the export,
+ * a connection is held only for the duration of one chunk query.
+ * An interrupted download is resumed with the ids of the last comment and the last reply the client has received.
+ */
+@Slf4j
+@Service
+public class ActivityDataExportService {
+    public static final List<String> COLUMNS = List.of("type", "id", "body", "gameName", "parentCommentId", "createdAt", "updatedAt");
+
+    private final CommentRepository commentRepository;
+    private final ReplyRepository replyRepository;
+    private final TPUserRepository userRepository;
+    private final int chunkSize;
+
+    public ActivityDataExportService(CommentRepository commentRepository,
+                                     ReplyRepository replyRepository,
+                                     TPUserRepository userRepository,
+                                     @Value("${application.exports.chunk-size:1000}") int chunkSize) {
+        this.commentRepository = commentRepository;
+        this.replyRepository = replyRepository;
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    // checked before the response is opened, a missing user is still answered with 404
+    public void checkUserExists(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+    }
+
+    /**
+     * @param userId         author of the exported comments and replies
+     * @param afterCommentId the comments up to this id are skipped, 0 starts from the first one
+     * @param afterReplyId   the replies up to this id are skipped, 0 starts from the first one
+     * @param writer         NDJSON or CSV writer of the response
+     * @return number of the exported rows
+     */
+    public long exportActivity(long userId, long afterCommentId, long afterReplyId, ExportWriter writer) throws IOException {
+        long rows = 0;
+        long lastId = afterCommentId;
+        List<CommentExportRow> comments;
+        do {
+            comments = commentRepository.findExportRowsByAuthorIdAfterId(userId, lastId, PageRequest.of(0, chunkSize));
+            for (CommentExportRow comment : comments) {
+                writer.write("comment", comment.id(), comment.body(), comment.gameName(), null, comment.createdAt(), comment.updatedAt());
+                lastId = comment.id();
+            }
+            writer.flush();
+            rows += comments.size();
+        } while (comments.size() == chunkSize);
+
+        lastId = afterReplyId;
+        List<ReplyExportRow> replies;
+        do {
+            replies = replyRepository.findExportRowsByAuthorIdAfterId(userId, lastId, PageRequest.of(0, chunkSize));
+            for (ReplyExportRow reply : replies) {
+                writer.write("reply", reply.id(), reply.body(), null, reply.parentCommentId(), reply.createdAt(), reply.updatedAt());
+                lastId = reply.id();
+            }
+            writer.flush();
+            rows += replies.size();
+        } while (replies.size() == chunkSize);
+        return rows;
+    }
+}
@@ -0,0 +1,258 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.exceptions.ExportJobNotFoundException;
+import org.trickyplay.trickyplayapi.general.exceptions.ExportRejectedException;
+import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.enums.ExportStatus;
+import org.trickyplay.trickyplayapi.users.models.ActivitySummaryExport;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Activity summaries rendered off the request threads. POST /account/export queues a job on a small pool with a bounded
+ * queue (a full queue is answered with 503 and Retry-After) and GET /account/export/{id} reports its status until the file
+ * is ready in the spool directory.
+ * The file name is the version of the activity it was rendered from - the counters and the latest updatedAt of the user,
+ * of their comments and of their replies. As long as nothing changes, a repeated request is served from the same file without
+ * rendering, and a request made while the same version is being rendered joins that job. Files and jobs older than the
+ * time-to-live are deleted by ActivitySummaryExportJanitorJob.
+ */
+@Slf4j
+@Service
+public class ActivitySummaryExportService {
+    // Tomcat sends the file from the connector (sendfile), the bytes are not copied through the JVM at all
+    static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private final PDFGeneratorService pdfGeneratorService;
+    private final TPUserRepository userRepository;
+    private final CommentRepository commentRepository;
+    private final ReplyRepository replyRepository;
+    private final Path spoolDirectory;
+    private final Duration timeToLive;
+    private final Duration retryAfter;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, ActivitySummaryExport> exports = new ConcurrentHashMap<>();
+    private final Map<String, ActivitySummaryExport> rendering = new ConcurrentHashMap<>(); // by version
+    private final Timer renderTimer;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter rejectedCounter;
+
+    public ActivitySummaryExportService(PDFGeneratorService pdfGeneratorService,
+                                        TPUserRepository userRepository,
+                                        CommentRepository commentRepository,
+                                        ReplyRepository replyRepository,
+                                        @Value("${application.users.activity-summary.export.spool-directory:${java.io.tmpdir}/trickyplay-exports}") Path spoolDirectory,
+                                        @Value("${application.users.activity-summary.export.threads:2}") int threads,
+                                        @Value("${application.users.activity-summary.export.queue-capacity:16}") int queueCapacity,
+                                        @Value("${application.users.activity-summary.export.time-to-live:PT1H}") Duration timeToLive,
+                                        @Value("${application.users.activity-summary.export.retry-after:PT10S}") Duration retryAfter,
+                                        MeterRegistry registry) throws IOException {
+        this.pdfGeneratorService = pdfGeneratorService;
+        this.userRepository = userRepository;
+        this.commentRepository = commentRepository;
+        this.replyRepository = replyRepository;
+        this.spoolDirectory = Files.createDirectories(spoolDirectory);
+        this.timeToLive = timeToLive;
+        this.retryAfter = retryAfter;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "activity-summary-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("activity-summary.export.queue-length", executor, pool -> pool.getQueue().size())
+                .description("Activity summaries waiting for an export thread")
+                .register(registry);
+        this.renderTimer = Timer.builder("activity-summary.export.render")
+                .description("Time to render an activity summary to the spool directory")
+                .register(registry);
+        // the hit rate is hit / (hit + miss)
+        this.hitCounter = registry.counter("activity-summary.export.cache", "result", "hit");
+        this.missCounter = registry.counter("activity-summary.export.cache", "result", "miss");
+        this.rejectedCounter = registry.counter("activity-summary.export.rejected");
+    }
+
+    public ActivitySummaryExport requestExport(long userId) {
+        String version = version(userId);
+        ActivitySummaryExport export = new ActivitySummaryExport(UUID.randomUUID(), userId, version,
+                spoolDirectory.resolve(version + ".pdf"), Instant.now());
+        if (Files.exists(export.getFile())) {
+            hitCounter.increment();
+            export.setStatus(ExportStatus.DONE);
+            exports.put(export.getId(), export);
+            return export;
+        }
+        ActivitySummaryExport inProgress = rendering.putIfAbsent(version, export);
+        if (inProgress != null) {
+            hitCounter.increment();
+            return inProgress;
+        }
+        missCounter.increment();
+        exports.put(export.getId(), export);
+        try {
+            executor.execute(() -> render(export));
+        } catch (RejectedExecutionException ex) {
+            rendering.remove(version);
+            exports.remove(export.getId());
+            rejectedCounter.increment();
+            throw new ExportRejectedException(retryAfter);
+        }
+        return export;
+    }
+
+    // the exports of the other users are reported as missing, their ids are not revealed
+    public ActivitySummaryExport getExport(UUID id, long userId) {
+        ActivitySummaryExport export = exports.get(id);
+        if (export == null || export.getOwnerId() != userId) {
+            throw new ExportJobNotFoundException(id);
+        }
+        return export;
+    }
+
+    public void transferTo(ActivitySummaryExport export, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(export.getFile(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentType("application/pdf");
+            response.setHeader("Content-Disposition", "attachment; filename=activity-summary_" + export.getCreatedAt().getEpochSecond() + ".pdf");
+            response.setContentLengthLong(size);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, export.getFile().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+                request.setAttribute(SENDFILE_END_ATTRIBUTE, size);
+                return;
+            }
+            // without sendfile the servlet stream is not a channel the kernel can write to, transferTo still avoids the copies of a read/write loop
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        } catch (NoSuchFileException ex) {
+            exports.remove(export.getId()); // deleted by the janitor meanwhile
+            throw new ExportJobNotFoundException(export.getId());
+        }
+    }
+
+    public void purgeExpired() {
+        Instant threshold = Instant.now().minus(timeToLive);
+        int jobs = exports.size();
+        exports.values().removeIf(export -> export.getCreatedAt().isBefore(threshold)
+                && export.getStatus() != ExportStatus.QUEUED
+                && export.getStatus() != ExportStatus.RUNNING);
+        int files = 0;
+        try (DirectoryStream<Path> spooled = Files.newDirectoryStream(spoolDirectory)) {
+            for (Path file : spooled) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(threshold) && Files.deleteIfExists(file)) {
+                    files++;
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Could not purge the spool directory {}", spoolDirectory, ex);
+        }
+        log.info("Activity summary janitor removed {} jobs and {} files", jobs - exports.size(), files);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // The file is rendered under a temporary name and moved when complete, a file with the final name is never partial
+    private void render(ActivitySummaryExport export) {
+        export.setStatus(ExportStatus.RUNNING);
+        Path part = null;
+        try {
+            part = Files.createTempFile(spoolDirectory, export.getVersion(), ".part");
+            Timer.Sample sample = Timer.start();
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(part))) {
+                pdfGeneratorService.export(export.getOwnerId(), outputStream);
+            }
+            Files.move(part, export.getFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            sample.stop(renderTimer);
+            export.setStatus(ExportStatus.DONE);
+        } catch (Exception ex) {
+            log.error("Could not render the activity summary {} of user {}", export.getId(), export.getOwnerId(), ex);
+            export.setStatus(ExportStatus.FAILED);
+            deleteQuietly(part);
+        } finally {
+            rendering.remove(export.getVersion());
+        }
+    }
+
+    // The counters change with every created and deleted comment and reply, the dates with every edit and with a rename of the user
+    String version(long userId) {
+        ResourceVersion userVersion = userRepository.findVersionById(userId);
+        if (!userVersion.exists()) {
+            throw new UserNotFoundException(userId);
+        }
+        return userId
+                + "-" + millis(userVersion.updatedAt())
+                + "-" + userVersion.counters()
+                + "-" + millis(commentRepository.findLatestUpdatedAtByAuthorId(userId))
+                + "-" + millis(replyRepository.findLatestUpdatedAtByAuthorId(userId));
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete {}", file, ex);
+        }
+    }
+}
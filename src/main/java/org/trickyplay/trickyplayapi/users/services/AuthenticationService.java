@@ -3,6 +3,7 @@ package org.trickyplay.trickyplayapi.users.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -14,6 +15,10 @@ import org.springframework.transaction.annotation.Transactional;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
+import org.trickyplay.trickyplayapi.general.exceptions.NameTakenException;
 import org.trickyplay.trickyplayapi.general.exceptions.RefreshTokenExpiredOrRevokedException;
 import org.trickyplay.trickyplayapi.general.exceptions.RefreshTokenNotFoundException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
@@ -23,7 +28,7 @@ import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
-import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
 import java.time.LocalDateTime;
@@ -35,10 +40,13 @@ import java.time.ZoneOffset;
 public class AuthenticationService {
     private final TPUserRepository userRepository;
     private final RefreshTokenService refreshTokenService;
-    private final RefreshTokenRepository tokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final TotalCountCache totalCountCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final UserNameBloomFilter userNameBloomFilter;
 
     public SignInResponse signIn(SignInRequest signInRequest) {
         // ref: https://docs.spring.io/spring-security/site/docs/3.0.x/reference/technical-overview.html
@@ -91,7 +99,7 @@ public class AuthenticationService {
         var principal = (TPUserPrincipal) authentication.getPrincipal();
 
         var accessToken = jwtService.issueToken(principal);
-        var refreshToken = refreshTokenService.createAndSaveRefreshToken(principal.getId());
+        var refreshToken = refreshTokenService.createAndSaveRefreshToken(principal);
         // log.debug("Successfully authenticated. Security context contains: " + SecurityContextHolder.getContext().getAuthentication());
         SignInResponse signInResponse = SignInResponse.builder()
                 .accessToken(accessToken)
@@ -120,11 +128,10 @@ public class AuthenticationService {
     }
 
     public SignOutResponse singleSessionLogout(String refreshToken) {
-        RefreshToken storedToken = tokenRepository.findByToken(refreshToken)
-                .orElseThrow(() -> new RefreshTokenNotFoundException(refreshToken));
-
-        storedToken.setRevoked(true);
-        tokenRepository.save(storedToken);
+        // a single UPDATE by the hash, the entry cached by RefreshTokenCache is revoked with it
+        if (!refreshTokenService.revokeToken(refreshToken)) {
+            throw new RefreshTokenNotFoundException(refreshToken);
+        }
         SecurityContextHolder.clearContext();
 
         SignOutResponse signOutResponse = SignOutResponse.builder()
@@ -144,6 +151,8 @@ public class AuthenticationService {
         TPUser user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
         int numberOfRevokedUsers = refreshTokenService.revokeAllUserTokens(user);
+        accessTokenRevocationService.revokeAccessTokens(userId); // revoked refresh tokens do not stop the access tokens issued with them
+        verifiedTokenCache.invalidateUser(userId);
         String message = "successfully signed out of all sessions";
         if (numberOfRevokedUsers == 0) {
             message = "not a single account was signed out";
@@ -179,7 +188,15 @@ public class AuthenticationService {
         // Role roles = roleRepository.findByName("USER").get();
         // user.setRoles(Collections.singletonList(roles));
 
-        TPUser savedUser = userRepository.save(user);
+        TPUser savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException ex) {
+            // the name was taken on another instance after the availability check, the unique index on normalized_name rejects it
+            throw new NameTakenException("This username is already taken");
+        }
+        userNameBloomFilter.add(savedUser.getName());
+        totalCountCache.increment(TotalCountCache.users());
         TPUserPrincipal principal = new TPUserPrincipal(savedUser);
         String jwtToken = jwtService.issueToken(principal);
         RefreshToken refreshToken = refreshTokenService.createAndSaveRefreshToken(savedUser);
@@ -220,16 +237,21 @@ public class AuthenticationService {
 
     public RefreshTokenResponse refreshAccessToken(RefreshTokenRequest refreshTokenRequest) {
         // new ObjectMapper().writeValue(response.getOutputStream(), authResponse);
-        RefreshToken refreshToken = refreshTokenService
-                .findByToken(refreshTokenRequest.getRefreshToken())
+        // the entry usually comes from RefreshTokenCache, neither refresh_tokens nor users is queried. The revocations made on other instances are polled into the cache, see RefreshTokenService.pollRevocations
+        RefreshTokenEntry refreshToken = refreshTokenService
+                .findEntry(refreshTokenRequest.getRefreshToken())
                 .orElseThrow(() -> new RefreshTokenNotFoundException(refreshTokenRequest.getRefreshToken()));
 
-        if (refreshTokenService.verifyIfTokenExpiredOrRevoked(refreshToken)) {
+        if (refreshToken.isExpiredOrRevoked()) {
             throw new RefreshTokenExpiredOrRevokedException(refreshTokenRequest.getRefreshToken());
         }
 
-        TPUser owner = refreshToken.owner;
-        TPUserPrincipal principal = new TPUserPrincipal(owner);
+        // the name and role of the owner were read with the token, the entries of an owner whose name or role changed are dropped from the cache
+        TPUserPrincipal principal = refreshToken.owner();
+        // the account was deleted - its tokens are revoked as well, this covers an entry read before the revocation
+        if (!principal.isEnabled()) {
+            throw new RefreshTokenExpiredOrRevokedException(refreshTokenRequest.getRefreshToken());
+        }
         String accessToken = jwtService.issueToken(principal);
         RefreshTokenResponse refreshTokenResponse = new RefreshTokenResponse(accessToken);
         refreshTokenResponse.add(linkTo(methodOn(AuthenticationController.class)
@@ -7,46 +7,89 @@ import io.jsonwebtoken.security.SignatureException;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
 
 import java.security.Key;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.function.Function;
 
 @Service
 @Slf4j
 public class JwtService {
-    private String secretKey;
-    private long jwtExpiration;
+    // Claims of the compact format (version 2). The id is only in sub, the authorities are derived from the role on the server and the dates of the account are epoch seconds.
+    // Version 1 used userId, userName, userRole, userCreatedAt and userUpdatedAt with ISO dates and the list of authorities, the tokens of both versions are accepted
+    static final String VERSION_CLAIM = "v";
+    static final int COMPACT_VERSION = 2;
+    static final String NAME_CLAIM = "n";
+    static final String ROLE_CLAIM = "r";
+    static final String CREATED_AT_CLAIM = "ca";
+    static final String UPDATED_AT_CLAIM = "ua";
+
+    // The signing key and the parser are derived from the secret once, decoding the secret and building a parser for every token was repeated on every authenticated request.
+    // Both are kept in one immutable holder behind a volatile field, so a reload swaps them atomically - a thread never verifies with the parser of one secret and signs with the key of another
+    private record SigningMaterial(Key signInKey, JwtParser parser) {
+    }
+
+    private volatile SigningMaterial signingMaterial;
+    private final long jwtExpiration;
+    // false issues the tokens of version 1, for a rolling deployment in which instances that can not read the compact format still serve requests
+    private final boolean compactClaims;
+
+    public JwtService(String secretKey, long jwtExpiration) {
+        this(secretKey, jwtExpiration, true);
+    }
 
+    @Autowired
     public JwtService(@Value("${application.security.jwt.secret-key}") String secretKey,
-                      @Value("${application.security.jwt.access-token-expiration}") long jwtExpiration){
-        this.secretKey = secretKey;
+                      @Value("${application.security.jwt.access-token-expiration}") long jwtExpiration,
+                      @Value("${application.security.jwt.compact-claims:true}") boolean compactClaims){
+        this.signingMaterial = createSigningMaterial(secretKey);
         this.jwtExpiration = jwtExpiration;
+        this.compactClaims = compactClaims;
     }
 
-    private Key getSignInKey() {
+    /**
+     * Replaces the signing key and the parser, e.g. after the secret was rotated (JwtSigningKeyEndpoint). Access tokens
+     * issued with the previous secret are rejected from now on, the clients get new ones with their refresh tokens, which
+     * are not JWTs.
+     *
+     * @param secretKey the new Base64 encoded secret
+     */
+    public void reloadSecretKey(String secretKey) {
+        this.signingMaterial = createSigningMaterial(secretKey);
+        log.info("JWT signing key reloaded");
+    }
+
+    private static SigningMaterial createSigningMaterial(String secretKey) {
         // ref: https://www.wikiwand.com/en/Base64
         // BASE64- Group of binary-to-text encoding schemes using 64 symbols that represent binary data (more specifically, a sequence of 8-bit bytes) in sequences of 24 bits that can be represented by four 6-bit Base64 digits.
         byte[] keyBytes = Decoders.BASE64.decode(secretKey);
 
         // ref: https://www.wikiwand.com/en/JSON_Web_Token
         // Token signature is calculated by encoding the header and payload using Base64url Encoding RFC 4648 and concatenating the two together with a period separator. That string is then run through the cryptographic algorithm specified in the header.
-        return Keys.hmacShaKeyFor(keyBytes); // Computes a Hash-based Message Authentication Code (HMAC) by using the SHA256 hash function.
-    }
+        Key signInKey = Keys.hmacShaKeyFor(keyBytes); // Computes a Hash-based Message Authentication Code (HMAC) by using the SHA256 hash function.
 
-    private Claims extractAllClaims(String token) {
         // previous versions of the library used the Jwts.parser() method
         // in previous versions of the library Jwts.parser() that returns new JwtParser instance was recommended to use, now it is deprecated
         // Jwts.parser().setSigningKey(getSignInKey()).parseClaimsJws(token).getBody(); -deprecated, use parserBuilder() instead
+        // The JwtParser returned by JwtParserBuilder.build() is immutable and thread-safe, so one instance is shared by all requests
+        JwtParser parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        return new SigningMaterial(signInKey, parser);
+    }
 
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+    private Claims extractAllClaims(String token) {
+        return signingMaterial.parser()
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -70,13 +113,11 @@ public class JwtService {
     }
 
     public String extractTPUserName(String token) {
-        final Claims claims = extractAllClaims(token);
-        return (String) claims.get("userName");
+        return nameOf(extractAllClaims(token));
     }
 
     public Role extractTPUserRole(String token) {
-        final Claims claims = extractAllClaims(token);
-        return Role.valueOf((String) claims.get("userRole"));
+        return Role.valueOf(roleOf(extractAllClaims(token)));
     }
 
     public Date extractExpiration(String token) {
@@ -84,8 +125,45 @@ public class JwtService {
     }
 
     public TPUserPrincipal extractPrincipal(String token) {
-        final Claims claims = extractAllClaims(token);
+        return mapToPrincipal(extractAllClaims(token));
+    }
 
+    /**
+     * Verifies the signature and the expiration of the token and reads the principal, all from a single parse.
+     *
+     * @param token compact JWS from the Authorization header
+     * @return the verified token
+     * @throws ExpiredJwtException      the token has expired
+     * @throws SignatureException       the signature does not match the signing key
+     * @throws MalformedJwtException    the token is not a valid JWS or its claims do not describe a user
+     * @throws UnsupportedJwtException  the token is not a signed JWT
+     * @throws IllegalArgumentException the token is null, empty or only whitespace
+     */
+    public VerifiedToken verify(String token) {
+        // parseClaimsJws checks the signature and then the exp claim, an expired token throws ExpiredJwtException
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration() == null) {
+            throw new UnsupportedJwtException("JWT without the exp claim is not accepted");
+        }
+        TPUserPrincipal principal;
+        try {
+            principal = mapToPrincipal(claims);
+        } catch (RuntimeException ex) { // missing claim, unknown role, unparsable date
+            throw new MalformedJwtException("JWT claims do not describe a user", ex);
+        }
+        Instant issuedAt = claims.getIssuedAt() == null ? Instant.EPOCH : claims.getIssuedAt().toInstant();
+        return new VerifiedToken(principal, issuedAt, claims.getExpiration().toInstant(), principal.getAuthorities());
+    }
+
+    private static TPUserPrincipal mapToPrincipal(Claims claims) {
+        if (isCompact(claims)) {
+            return new TPUserPrincipal(
+                    Long.parseLong(claims.getSubject()),
+                    claims.get(NAME_CLAIM, String.class),
+                    Role.valueOf(claims.get(ROLE_CLAIM, String.class)),
+                    LocalDateTime.ofEpochSecond(claims.get(CREATED_AT_CLAIM, Long.class), 0, ZoneOffset.UTC),
+                    LocalDateTime.ofEpochSecond(claims.get(UPDATED_AT_CLAIM, Long.class), 0, ZoneOffset.UTC));
+        }
         return TPUserPrincipal.builder()
                 .id(Long.parseLong(claims.getSubject()))
                 .name((String) claims.get("userName"))
@@ -96,6 +174,18 @@ public class JwtService {
                 .build();
     }
 
+    private static boolean isCompact(Claims claims) {
+        return claims.get(VERSION_CLAIM) != null;
+    }
+
+    private static String nameOf(Claims claims) {
+        return isCompact(claims) ? claims.get(NAME_CLAIM, String.class) : (String) claims.get("userName");
+    }
+
+    private static String roleOf(Claims claims) {
+        return isCompact(claims) ? claims.get(ROLE_CLAIM, String.class) : (String) claims.get("userRole");
+    }
+
     public String issueToken(TPUserPrincipal userDetails) {
         return issueToken(new HashMap<>(), userDetails);
     }
@@ -134,26 +224,32 @@ public class JwtService {
         // JJwt is fully RFC specification compliant on all implemented functionality, tested against RFC-specified test vectors
         //SignatureAlgorithm.HS256 creates header- (alg: HS256), that means algorithm HMAC using SHA-256
         //  signature by RSA algorithm is binary data, even if we decode the signature field by base64url, what we can get is binary data
-        List<String> authorities = new ArrayList<>();
-        userDetails.getAuthorities().forEach(a -> authorities.add(a.getAuthority()));
-        Map<String, Object> additionalClaims = new HashMap<>();
-        additionalClaims.put("authorities", authorities);
-
-        return Jwts.builder().setClaims(extraClaims)
+        JwtBuilder builder = Jwts.builder().setClaims(extraClaims)
                 // .setIssuer()
                 // .setAudience()
                 // .setSubject(String.format("%s,%s", user.getId(), user.getName()))
                 // .setId(UUID.randomUUID().toString()) //not needed for now
                 .setSubject(userDetails.getId().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis())) // Instant.now()
-                .setExpiration(new Date(System.currentTimeMillis() + expiration)) // Instant.now().plusMillis(expiration) or Instant.now().toEpochMilli() + expiration
-                .claim("userId", userDetails.getId().toString())
-                .claim("userName", userDetails.getName())
-                .claim("userRole", userDetails.getRole().name())
-                .claim("userCreatedAt", userDetails.getCreatedAt().toString())
-                .claim("userUpdatedAt", userDetails.getUpdatedAt().toString())
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
-                .addClaims(additionalClaims)
+                .setExpiration(new Date(System.currentTimeMillis() + expiration)); // Instant.now().plusMillis(expiration) or Instant.now().toEpochMilli() + expiration
+        if (compactClaims) {
+            // the token is sent with every authenticated request, short claim names and numeric dates roughly halve the payload
+            builder.claim(VERSION_CLAIM, COMPACT_VERSION)
+                    .claim(NAME_CLAIM, userDetails.getName())
+                    .claim(ROLE_CLAIM, userDetails.getRole().name())
+                    .claim(CREATED_AT_CLAIM, userDetails.getCreatedAt().toEpochSecond(ZoneOffset.UTC))
+                    .claim(UPDATED_AT_CLAIM, userDetails.getUpdatedAt().toEpochSecond(ZoneOffset.UTC));
+        } else {
+            List<String> authorities = new ArrayList<>();
+            userDetails.getAuthorities().forEach(a -> authorities.add(a.getAuthority()));
+            builder.claim("userId", userDetails.getId().toString())
+                    .claim("userName", userDetails.getName())
+                    .claim("userRole", userDetails.getRole().name())
+                    .claim("userCreatedAt", userDetails.getCreatedAt().toString())
+                    .claim("userUpdatedAt", userDetails.getUpdatedAt().toString())
+                    .claim("authorities", authorities);
+        }
+        return builder.signWith(signingMaterial.signInKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -168,7 +264,7 @@ public class JwtService {
         // For example, let's say that you require that the JWT you are parsing has a specific sub (subject) value, otherwise you may not trust the token. You can do that by using one of the various require* methods
 
         try {
-            Jwts.parser().setSigningKey(getSignInKey()).parseClaimsJws(token);
+            signingMaterial.parser().parseClaimsJws(token);
 
             // token is trustworthy and has not been tampered with
             return true;
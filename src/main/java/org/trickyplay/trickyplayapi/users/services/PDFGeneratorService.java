@@ -8,18 +8,17 @@
  */
 package org.trickyplay.trickyplayapi.users.services;
 
-import java.awt.*;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
 import jakarta.servlet.http.HttpServletResponse;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import com.lowagie.text.pdf.PdfWriter;
@@ -33,10 +32,10 @@ import com.lowagie.text.Paragraph;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
 
-import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
-import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.replies.records.ReplyExportRow;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
@@ -48,144 +47,142 @@ import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PDFGeneratorService {
+    // The fonts and the column layouts do not depend on the user, they are built once. Standard Helvetica is not embedded in the document
+    private static final Font FONT_TITLE = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
+    private static final Font FONT_SUBTITLE = FontFactory.getFont(FontFactory.HELVETICA, 12);
+    private static final Font FONT_TABLE_HEADER = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8);
+    private static final Font FONT_TABLE_CELL = FontFactory.getFont(FontFactory.HELVETICA, 8);
+    private static final TableTemplate USER_DETAILS_TABLE = new TableTemplate(new float[]{20F, 30F, 20F, 20F, 10F},
+            "id", "username", "created at", "last updated at", "role");
+    private static final TableTemplate CREATED_COMMENTS_TABLE = new TableTemplate(new float[]{8F, 40F, 12F, 20F, 20F},
+            "id", "body", "gameName", "created at", "last updated at");
+    private static final TableTemplate CREATED_REPLIES_TABLE = new TableTemplate(new float[]{10F, 40F, 10F, 20F, 20F},
+            "id", "body", "parent comment id", "created at", "last updated at");
+
     private final CommentRepository commentRepository;
     private final ReplyRepository replyRepository;
     private final TPUserRepository tPUserRepository;
+    private final int chunkSize;
+
+    public PDFGeneratorService(CommentRepository commentRepository,
+                               ReplyRepository replyRepository,
+                               TPUserRepository tPUserRepository,
+                               @Value("${application.users.activity-summary.chunk-size:500}") int chunkSize) {
+        this.commentRepository = commentRepository;
+        this.replyRepository = replyRepository;
+        this.tPUserRepository = tPUserRepository;
+        this.chunkSize = chunkSize;
+    }
 
     public void export(long userId, HttpServletResponse response) throws IOException {
-        Pageable pageable = PageRequest.of(
-                0,
-                200,
-                Sort.Direction.ASC,
-                "id"
-        );
+        export(userId, response.getOutputStream());
+    }
 
+    // All comments and replies of the user are written, however many there are. They are read in keyset chunks and every chunk is
+    // added to an incomplete table (LargeElement) - the document lays out the rows, writes the finished pages to the stream and
+    // drops the rows, so the heap holds one chunk and one page regardless of the size of the summary
+    public void export(long userId, OutputStream outputStream) throws IOException {
         TPUser user = tPUserRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Page<Comment> commentPage = commentRepository.findAllByAuthorId(userId, pageable);
-        Page<Reply> replyPage = replyRepository.findAllByAuthorId(userId, pageable);
-
-        Font fontTitle = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
-        fontTitle.setSize(18);
-        Font fontSubtitle = FontFactory.getFont(FontFactory.HELVETICA);
-        fontSubtitle.setSize(12);
-        Font fontTableHeader = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8);
-        Font fontTableCell = FontFactory.getFont(FontFactory.HELVETICA, 8);
-        Font fontWarning = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.RED);
 
         Document document = new Document(PageSize.A4);
-        PdfWriter.getInstance(document, response.getOutputStream());
-        float width = document.getPageSize().getWidth();
-        float height = document.getPageSize().getHeight();
+        PdfWriter.getInstance(document, outputStream);
+        float width = document.getPageSize().getWidth() - 72;
         document.open();
 
-        Paragraph paragraph = new Paragraph("TrickyPlay", fontTitle);
+        Paragraph paragraph = new Paragraph("TrickyPlay", FONT_TITLE);
         paragraph.setAlignment(Paragraph.ALIGN_CENTER);
         document.add(paragraph);
 
-        Paragraph paragraph2 = new Paragraph("Activity summary", fontSubtitle);
+        Paragraph paragraph2 = new Paragraph("Activity summary", FONT_SUBTITLE);
         paragraph2.setAlignment(Paragraph.ALIGN_CENTER);
         paragraph2.setSpacingAfter(15);
         paragraph2.setSpacingBefore(5);
         document.add(paragraph2);
 
-        PdfPTable table = null;
-
-        Paragraph paragraph3 = new Paragraph("User details", fontSubtitle);
-        paragraph3.setAlignment(Paragraph.ALIGN_LEFT);
-        paragraph3.setSpacingAfter(5);
-        paragraph3.setSpacingBefore(10);
-        document.add(paragraph3);
-        float[] userDetailsColumnDefinitionSize = {20F, 30F, 20F, 20F, 10F};
-        table = new PdfPTable(userDetailsColumnDefinitionSize);
-        table.getDefaultCell().setBorder(1);
-        table.setHorizontalAlignment(0);
-        table.setTotalWidth(width - 72);
-        table.setLockedWidth(true);
-        table.addCell(new PdfPCell(new Phrase("id", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("username", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("created at", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("last updated at", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("role", fontTableHeader)));
-        table.addCell(new Phrase(user.getId().toString(), fontTableCell));
-        table.addCell(new Phrase(user.getName(), fontTableCell));
-        table.addCell(new Phrase(user.getCreatedAt().toString(), fontTableCell));
-        table.addCell(new Phrase(user.getUpdatedAt().toString(), fontTableCell));
-        table.addCell(new Phrase(user.getRole().name(), fontTableCell));
+        document.add(section("User details"));
+        PdfPTable table = USER_DETAILS_TABLE.newTable(width);
+        table.addCell(new Phrase(user.getId().toString(), FONT_TABLE_CELL));
+        table.addCell(new Phrase(user.getName(), FONT_TABLE_CELL));
+        table.addCell(new Phrase(user.getCreatedAt().toString(), FONT_TABLE_CELL));
+        table.addCell(new Phrase(user.getUpdatedAt().toString(), FONT_TABLE_CELL));
+        table.addCell(new Phrase(user.getRole().name(), FONT_TABLE_CELL));
+        table.setComplete(true);
         table.setSpacingAfter(20);
         document.add(table);
 
-        if (!commentPage.isLast()) {
-            Paragraph commentsWarningParagraph = new Paragraph("The user has posted more than 50 comments. To reduce the size of the PDF document, we have included only the first 50, if you want to receive the document with all comments, please contact the administration", fontWarning);
-            commentsWarningParagraph.setAlignment(Paragraph.ALIGN_LEFT);
-            commentsWarningParagraph.setSpacingAfter(5);
-            commentsWarningParagraph.setSpacingBefore(5);
-            document.add(commentsWarningParagraph);
-        }
-
-        Paragraph paragraph4 = new Paragraph("Created comments", fontSubtitle);
-        paragraph4.setAlignment(Paragraph.ALIGN_LEFT);
-        paragraph4.setSpacingAfter(5);
-        paragraph4.setSpacingBefore(10);
-        document.add(paragraph4);
-        float[] createdCommentsColumnDefinitionSize = {8F, 40F, 12F, 20F, 20F};
-        table = new PdfPTable(createdCommentsColumnDefinitionSize);
-        table.getDefaultCell().setBorder(1);
-        table.setHorizontalAlignment(0);
-        table.setTotalWidth(width - 72);
-        table.setLockedWidth(true);
-        table.addCell(new PdfPCell(new Phrase("id", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("body", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("gameName", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("created at", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("last updated at", fontTableHeader)));
+        document.add(section("Created comments"));
+        table = CREATED_COMMENTS_TABLE.newTable(width);
+        long lastId = 0;
+        List<CommentExportRow> comments;
+        do {
+            comments = commentRepository.findExportRowsByAuthorIdAfterId(userId, lastId, PageRequest.of(0, chunkSize));
+            for (CommentExportRow comment : comments) {
+                table.addCell(new Phrase(comment.id().toString(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(comment.body(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(comment.gameName(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(comment.createdAt().toString(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(comment.updatedAt().toString(), FONT_TABLE_CELL));
+                lastId = comment.id();
+            }
+            document.add(table); // flushes the rows added so far, the header row is kept and repeated on every page
+        } while (comments.size() == chunkSize);
+        table.setComplete(true);
+        table.setSpacingAfter(20); // the spacing follows every add of the table, so it is set for the last one only
+        document.add(table);
 
-        for (Comment comment : commentPage.getContent()) {
-            table.addCell(new Phrase(comment.getId().toString(), fontTableCell));
-            table.addCell(new Phrase(comment.getBody(), fontTableCell));
-            table.addCell(new Phrase(comment.getGameName(), fontTableCell));
-            table.addCell(new Phrase(comment.getCreatedAt().toString(), fontTableCell));
-            table.addCell(new Phrase(comment.getUpdatedAt().toString(), fontTableCell));
-        }
+        document.add(section("Created replies"));
+        table = CREATED_REPLIES_TABLE.newTable(width);
+        lastId = 0;
+        List<ReplyExportRow> replies;
+        do {
+            replies = replyRepository.findExportRowsByAuthorIdAfterId(userId, lastId, PageRequest.of(0, chunkSize));
+            for (ReplyExportRow reply : replies) {
+                table.addCell(new Phrase(reply.id().toString(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(reply.body(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(reply.parentCommentId().toString(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(reply.createdAt().toString(), FONT_TABLE_CELL));
+                table.addCell(new Phrase(reply.updatedAt().toString(), FONT_TABLE_CELL));
+                lastId = reply.id();
+            }
+            document.add(table);
+        } while (replies.size() == chunkSize);
+        table.setComplete(true);
         table.setSpacingAfter(20);
         document.add(table);
 
-        if (!replyPage.isLast()) {
-            Paragraph repliesWarningParagraph = new Paragraph("The user has posted more than 50 replies. To reduce the size of the PDF document, we have included only the first 50, if you want to receive the document with all replies, please contact the administration", fontWarning);
-            repliesWarningParagraph.setAlignment(Paragraph.ALIGN_LEFT);
-            repliesWarningParagraph.setSpacingAfter(5);
-            repliesWarningParagraph.setSpacingBefore(5);
-            document.add(repliesWarningParagraph);
-        }
+        document.close();
+    }
+
+    private static Paragraph section(String title) {
+        Paragraph paragraph = new Paragraph(title, FONT_SUBTITLE);
+        paragraph.setAlignment(Paragraph.ALIGN_LEFT);
+        paragraph.setSpacingAfter(5);
+        paragraph.setSpacingBefore(10);
+        return paragraph;
+    }
 
-        Paragraph paragraph5 = new Paragraph("Created replies", fontSubtitle);
-        paragraph5.setAlignment(Paragraph.ALIGN_LEFT);
-        paragraph5.setSpacingAfter(5);
-        paragraph5.setSpacingBefore(10);
-        document.add(paragraph5);
-        float[] createdRepliesColumnDefinitionSize = {10F, 40F, 10F, 20F, 20F};
-        table = new PdfPTable(createdRepliesColumnDefinitionSize);
-        table.getDefaultCell().setBorder(1);
-        table.setHorizontalAlignment(0);
-        table.setTotalWidth(width - 72);
-        table.setLockedWidth(true);
-        table.addCell(new PdfPCell(new Phrase("id", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("body", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("parent comment id", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("created at", fontTableHeader)));
-        table.addCell(new PdfPCell(new Phrase("last updated at", fontTableHeader)));
-        for (Reply reply : replyPage.getContent()) {
-            table.addCell(new Phrase(reply.getId().toString(), fontTableCell));
-            table.addCell(new Phrase(reply.getBody(), fontTableCell));
-            table.addCell(new Phrase(reply.getParentComment().getId().toString(), fontTableCell));
-            table.addCell(new Phrase(reply.getCreatedAt().toString(), fontTableCell));
-            table.addCell(new Phrase(reply.getUpdatedAt().toString(), fontTableCell));
+    // Column widths and header cells of a table. PdfPTable copies the cells it is given, so the header cells can be shared
+    private record TableTemplate(float[] columnWidths, PdfPCell[] headerCells) {
+        TableTemplate(float[] columnWidths, String... headers) {
+            this(columnWidths, Arrays.stream(headers)
+                    .map(header -> new PdfPCell(new Phrase(header, FONT_TABLE_HEADER)))
+                    .toArray(PdfPCell[]::new));
         }
-        table.setSpacingAfter(20);
-        document.add(table);
 
-        document.close();
+        PdfPTable newTable(float totalWidth) {
+            PdfPTable table = new PdfPTable(columnWidths);
+            table.getDefaultCell().setBorder(1);
+            table.setHorizontalAlignment(0);
+            table.setTotalWidth(totalWidth);
+            table.setLockedWidth(true);
+            for (PdfPCell headerCell : headerCells) {
+                table.addCell(headerCell);
+            }
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            return table;
+        }
     }
 
     // Playground
@@ -8,12 +8,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
 import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,14 +27,18 @@ import java.util.UUID;
 public class RefreshTokenService {
     private final RefreshTokenRepository refreshTokenRepository;
     private final TPUserRepository userRepository;
+    private final RefreshTokenCache refreshTokenCache;
     private final long refreshExpiration;
+    private volatile Instant polledAt = Instant.now();
 
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, TPUserRepository userRepository, @Value("${application.security.jwt.refresh-token-expiration}") long refreshExpiration) {
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, TPUserRepository userRepository, RefreshTokenCache refreshTokenCache, @Value("${application.security.jwt.refresh-token-expiration}") long refreshExpiration) {
         this.refreshExpiration = refreshExpiration;
         this.refreshTokenRepository = refreshTokenRepository;
         this.userRepository = userRepository;
+        this.refreshTokenCache = refreshTokenCache;
     }
 
+    // the owner is only a reference here, so the entry is not cached - the first refresh reads it with its owner
     public RefreshToken createAndSaveRefreshToken(Long id) {
         RefreshToken refreshToken = RefreshToken.builder()
                 .owner(userRepository.getReferenceById(id))
@@ -41,6 +49,17 @@ public class RefreshTokenService {
         return refreshTokenRepository.save(refreshToken);
     }
 
+    // sign-in, the public info of the owner is taken from the authenticated principal
+    public RefreshToken createAndSaveRefreshToken(TPUserPrincipal owner) {
+        RefreshToken refreshToken = RefreshToken.builder()
+                .owner(userRepository.getReferenceById(owner.getId()))
+                .token(UUID.randomUUID().toString())
+                .expiryDate(Instant.now().plusMillis(refreshExpiration))
+                .revoked(false)
+                .build();
+        return cache(refreshTokenRepository.save(refreshToken), owner);
+    }
+
     @Transactional(propagation = Propagation.REQUIRED)
     public RefreshToken createAndSaveRefreshToken(TPUser owner) {
         RefreshToken refreshToken = RefreshToken.builder()
@@ -49,11 +68,37 @@ public class RefreshTokenService {
                 .expiryDate(Instant.now().plusMillis(refreshExpiration))
                 .revoked(false)
                 .build();
-        return refreshTokenRepository.save(refreshToken);
+        return cache(refreshTokenRepository.save(refreshToken), new TPUserPrincipal(owner));
     }
 
     public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+        return refreshTokenRepository.findByTokenHash(RefreshToken.hash(token));
+    }
+
+    /**
+     * Looks the token up in RefreshTokenCache first, the database is queried only for the tokens not cached on this instance
+     *
+     * @param token the refresh token sent by the client
+     * @return the expiry date and the revocation flag of the token and the public info of its owner, empty if there is no such token
+     */
+    public Optional<RefreshTokenEntry> findEntry(String token) {
+        byte[] tokenHash = RefreshToken.hash(token);
+        return refreshTokenCache.get(tokenHash, () -> refreshTokenRepository.findEntryByTokenHash(tokenHash));
+    }
+
+    /**
+     * Revokes the token in the database and in RefreshTokenCache (write-through)
+     *
+     * @param token the refresh token sent by the client
+     * @return false if there is no such token
+     */
+    public boolean revokeToken(String token) {
+        byte[] tokenHash = RefreshToken.hash(token);
+        if (refreshTokenRepository.revokeByTokenHash(tokenHash, Instant.now()) == 0) {
+            return false;
+        }
+        refreshTokenCache.revoke(tokenHash);
+        return true;
     }
 
     public Boolean deleteTokenIfExpired(RefreshToken token) {
@@ -76,11 +121,39 @@ public class RefreshTokenService {
      * @return returns the number of revoked tokens
      */
     public int revokeAllUserTokens(TPUser user) {
-        var validUserTokens = refreshTokenRepository.findAllValidTokensByUser(user.getId());
-        if (validUserTokens.isEmpty()) return 0;
+        return revokeAllUserTokens(user.getId());
+    }
+
+    // the same by the id of the owner, for the callers that do not load the user
+    public int revokeAllUserTokens(long ownerId) {
+        int revoked = refreshTokenRepository.revokeAllValidTokensByOwnerId(ownerId, Instant.now());
+        refreshTokenCache.revokeAllOfOwner(ownerId);
+        return revoked;
+    }
+
+    // the public info of the owner cached with the tokens changed on this instance
+    public void invalidateCachedOwner(long ownerId) {
+        refreshTokenCache.invalidateOwner(ownerId);
+    }
+
+    /**
+     * Revokes the tokens revoked on the other instances since the previous poll in RefreshTokenCache, driven by
+     * AccessTokenRevocationPollingJob. The revocations committed shortly before the previous poll are read again, the
+     * clocks of the instances differ.
+     *
+     * @return number of the revocations read
+     */
+    public int pollRevocations() {
+        Instant pollStartedAt = Instant.now();
+        List<byte[]> revokedTokenHashes = refreshTokenRepository.findTokenHashesRevokedSince(polledAt.minus(AccessTokenRevocationService.POLL_OVERLAP));
+        refreshTokenCache.revokeAll(revokedTokenHashes);
+        polledAt = pollStartedAt;
+        return revokedTokenHashes.size();
+    }
 
-        validUserTokens.forEach(token -> token.setRevoked(true));
-        refreshTokenRepository.saveAll(validUserTokens);
-        return validUserTokens.size();
+    private RefreshToken cache(RefreshToken refreshToken, TPUserPrincipal owner) {
+        refreshTokenCache.put(RefreshToken.hash(refreshToken.getToken()),
+                RefreshTokenEntry.of(owner, refreshToken.getExpiryDate(), refreshToken.isRevoked()));
+        return refreshToken;
     }
 }
@@ -1,15 +1,14 @@
 package org.trickyplay.trickyplayapi.users.services;
 
-import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+import org.trickyplay.trickyplayapi.general.links.LinkFactory;
 import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
 public class UserUtils {
     private UserUtils() {
     }
@@ -21,25 +20,30 @@ public class UserUtils {
     }
 
     public static TPUserRepresentation mapToTPUserPublicInfoDTO(TPUser user) {
+        TPUserRepresentation tpUserRepresentation = mapToTPUserPublicInfoDTO(user.getId(), user.getName(), user.getRole(), user.getCreatedAt(), user.getUpdatedAt());
+        tpUserRepresentation.setCommentCount(user.getCommentCount());
+        tpUserRepresentation.setReplyCount(user.getReplyCount());
+        return tpUserRepresentation;
+    }
+
+    // used with the author columns of the comment and reply projections, which do not load the TPUser entity
+    public static TPUserRepresentation mapToTPUserPublicInfoDTO(Long id, String name, Role role, LocalDateTime createdAt, LocalDateTime updatedAt) {
         TPUserRepresentation tpUserRepresentation = TPUserRepresentation.builder()
-                .id(user.getId())
-                .name(user.getName())
-                .role(user.getRole())
-                .createdAt(user.getCreatedAt())
-                .updatedAt(user.getUpdatedAt())
+                .id(id)
+                .name(name)
+                .role(role)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
                 .build();
 
-        tpUserRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUser(tpUserRepresentation.getId()))
+        // precompiled link templates instead of linkTo(methodOn(...)) - this runs for every user of a page and for the author of every comment and reply
+        tpUserRepresentation.add(LinkFactory.user(tpUserRepresentation.getId())
                 .withSelfRel());
-        tpUserRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUsers(0, 10, "id", "Asc"))
+        tpUserRepresentation.add(LinkFactory.users()
                 .withRel("collection"));
-        tpUserRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUserComments(tpUserRepresentation.getId(), 0, 10, "id", "Asc"))
+        tpUserRepresentation.add(LinkFactory.commentsOfUser(tpUserRepresentation.getId())
                 .withRel("comments-by"));
-        tpUserRepresentation.add(linkTo(methodOn(UsersController.class)
-                .getUserReplies(tpUserRepresentation.getId(), 0, 10, "id", "Asc"))
+        tpUserRepresentation.add(LinkFactory.repliesOfUser(tpUserRepresentation.getId())
                 .withRel("replies-by"));
         return tpUserRepresentation;
     }
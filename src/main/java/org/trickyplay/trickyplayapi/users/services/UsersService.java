@@ -3,13 +3,19 @@ package org.trickyplay.trickyplayapi.users.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
 import org.trickyplay.trickyplayapi.users.controllers.UsersController;
 import org.trickyplay.trickyplayapi.users.dtos.GetUsersResponse;
 import org.trickyplay.trickyplayapi.users.dtos.TPUserRepresentation;
@@ -30,6 +36,12 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequiredArgsConstructor
 public class UsersService {
     private final TPUserRepository userRepository;
+    private final TotalCountCache totalCountCache;
+    private final CommentsFeedCache commentsFeedCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RefreshTokenCache refreshTokenCache;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final UserNameBloomFilter userNameBloomFilter;
 
     public GetUsersResponse getUsers(UsersPageArgs usersPageArgs) {
         Pageable pageable = PageRequest.of(
@@ -38,29 +50,37 @@ public class UsersService {
                 usersPageArgs.orderDirection(),
                 usersPageArgs.sortBy()
         );
-        Page<TPUser> userPage = userRepository.findAll(pageable);
-        List<TPUserRepresentation> users = UserUtils.mapToTPUserPublicInfoDTOs(userPage.getContent());
+        // Slice instead of Page - the total is taken from the count cache, so no COUNT query runs per request
+        Slice<TPUser> userSlice = userRepository.findSliceOfUsers(pageable);
+        List<TPUserRepresentation> users = UserUtils.mapToTPUserPublicInfoDTOs(userSlice.getContent());
 
         GetUsersResponse getUsersResponse = GetUsersResponse.builder()
                 .users(users)
-                .pageSize(userPage.getSize())
-                .totalElements(userPage.getTotalElements())
-                .totalPages(userPage.getTotalPages())
-                .pageSize(userPage.getSize())
-                .pageNumber(userPage.getNumber())
-                .isLast(userPage.isLast())
+                .pageSize(userSlice.getSize())
+                .pageNumber(userSlice.getNumber())
+                .isLast(userSlice.isLast())
                 .build();
+        if (usersPageArgs.includeTotals()) {
+            long totalElements = totalCountCache.get(TotalCountCache.users(), userRepository::count);
+            getUsersResponse.setTotalElements(totalElements);
+            getUsersResponse.setTotalPages(TotalCountCache.totalPages(totalElements, userSlice.getSize()));
+        }
         getUsersResponse.add(linkTo(methodOn(UsersController.class)
                 .getUsers(
                         usersPageArgs.pageNumber(),
                         usersPageArgs.pageSize(),
                         usersPageArgs.sortBy(),
-                        usersPageArgs.orderDirection().name()
+                        usersPageArgs.orderDirection().name(),
+                        usersPageArgs.includeTotals()
                 )).withSelfRel());
 
         return getUsersResponse;
     }
 
+    public ResourceVersion getUserVersion(long id) {
+        return userRepository.findVersionById(id);
+    }
+
     public TPUserRepresentation getUser(long id) {
         return userRepository.findById(id)
                 .map(UserUtils::mapToTPUserPublicInfoDTO)
@@ -76,6 +96,9 @@ public class UsersService {
         user.setRole(Role.ADMIN);
         user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         TPUser savedUser = userRepository.save(user);
+        commentsFeedCache.invalidateAuthor(savedUser.getId()); // the role is embedded in the comments of the user
+        verifiedTokenCache.invalidateUser(savedUser.getId()); // the role is embedded in the cached principals of the user
+        refreshTokenCache.invalidateOwner(savedUser.getId()); // and in the access tokens issued with the cached refresh tokens
         return UserUtils.mapToTPUserPublicInfoDTO(savedUser);
     }
 
@@ -88,6 +111,10 @@ public class UsersService {
         user.setRole(Role.BANNED);
         user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         TPUser savedUser = userRepository.save(user);
+        accessTokenRevocationService.revokeAccessTokens(savedUser.getId()); // the access tokens issued before the ban still carry the previous role
+        commentsFeedCache.invalidateAuthor(savedUser.getId()); // the role is embedded in the comments of the user
+        verifiedTokenCache.invalidateUser(savedUser.getId()); // the role is embedded in the cached principals of the user
+        refreshTokenCache.invalidateOwner(savedUser.getId()); // and in the access tokens issued with the cached refresh tokens
         return UserUtils.mapToTPUserPublicInfoDTO(savedUser);
     }
 
@@ -100,6 +127,9 @@ public class UsersService {
         user.setRole(Role.USER);
         user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
         TPUser savedUser = userRepository.save(user);
+        commentsFeedCache.invalidateAuthor(savedUser.getId()); // the role is embedded in the comments of the user
+        verifiedTokenCache.invalidateUser(savedUser.getId()); // the role is embedded in the cached principals of the user
+        refreshTokenCache.invalidateOwner(savedUser.getId()); // and in the access tokens issued with the cached refresh tokens
         return UserUtils.mapToTPUserPublicInfoDTO(savedUser);
     }
 
@@ -110,4 +140,28 @@ public class UsersService {
     public boolean checkIfUserExistsByName(String name) {
         return userRepository.existsByName(name);
     }
+
+    /**
+     * Names differing only in case are the same name. Always looked up by the unique index on normalized_name - the Bloom
+     * filter of this instance misses the names taken on the other instances since its last rebuild, the public check
+     * would report them free
+     *
+     * @param name the name to check
+     * @return true if no user has the name
+     */
+    public boolean isNameAvailable(String name) {
+        return !userRepository.existsByNormalizedName(TPUser.normalizeName(name));
+    }
+
+    /**
+     * The check before a sign-up. A name the Bloom filter has never seen is free without a query, the other ones are looked
+     * up by the unique index on normalized_name. A name taken on another instance since the last rebuild of the filter
+     * passes here and is rejected by the unique index on insert (AuthenticationService.signUp)
+     *
+     * @param name the name to check
+     * @return true if no user has the name, as far as this instance knows
+     */
+    public boolean isNameAvailableForSignUp(String name) {
+        return !userNameBloomFilter.mightContain(name) || !userRepository.existsByNormalizedName(TPUser.normalizeName(name));
+    }
 }
@@ -1,10 +1,17 @@
 package org.trickyplay.trickyplayapi;
 
+import org.junit.jupiter.api.BeforeEach;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.test.context.ActiveProfiles;
 
 import org.testcontainers.containers.MySQLContainer;
 
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+
 // Every integration test should extend BaseIntegrationTest class. This way, you centralize the configuration.
 // It may be useful to cache the image beforehand using docker pull mysql:8.1 to avoid issues with the download
 
@@ -27,6 +34,27 @@ public abstract class BaseIntegrationTest {
                 .start();
     }
 
+    // The application context is cached and shared between test classes, while the data of every test is rolled back. In-process caches would otherwise carry the state of previous tests. The bean is absent in slices such as @DataJpaTest
+    @Autowired(required = false)
+    private TotalCountCache totalCountCache;
+    @Autowired(required = false)
+    private CommentsFeedCache commentsFeedCache;
+    @Autowired(required = false)
+    private RefreshTokenCache refreshTokenCache;
+
+    @BeforeEach
+    void clearInProcessCaches() {
+        if (totalCountCache != null) {
+            totalCountCache.invalidateAll();
+        }
+        if (commentsFeedCache != null) {
+            commentsFeedCache.invalidateAll();
+        }
+        if (refreshTokenCache != null) {
+            refreshTokenCache.invalidateAll();
+        }
+    }
+
     // ref: https://danielme.com/2023/04/13/testing-spring-boot-docker-with-testcontainers-and-junit-5-mysql-and-other-images/
     // Spring Boot requires the connection parameters for the MySQL server running inside the container to create the DataSource bean for the tests. The testing setup must replace the values you already have in the application.properties file corresponding to the database used by the project. Testcontainers exposes the ports published by the container on host random free ports. The goal is to ensure that running services don’t already use the chosen ports—two processes can’t listen on the same port. You have to figure out the port number and find a way to declare it in the Spring configuration. Since this number is variable, it isn’t feasible to define it in a configuration file or in the @SpringBootTest annotation by using the properties attribute. You solve the first challenge by asking mySQLContainer for the port through which Testcontainers exposes the standard MySQL port:
     // int port = mySQLContainer.getMappedPort(3306); // getMappedPort is a method provided by GenericContainer
@@ -9,6 +9,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -30,6 +31,7 @@ import org.trickyplay.trickyplayapi.users.services.JwtService;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 //    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
 
@@ -261,6 +263,107 @@ class CommentsControllerIntegrationTest extends BaseIntegrationTest {
                 .andReturn();
     }
 
+    @Test
+    @Transactional
+    void given_1User1CommentSavedInDB_when_commentsGetEndpointIsHitWithMatchingIfNoneMatch_then_returnNotModifiedResponse() throws Exception {
+        TPUser tpUserStub = TPUser.builder()
+                .name("testUser")
+                .role(Role.USER)
+                .updatedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .password(passwordEncoder.encode("123ASDasd"))
+                .build();
+
+        Comment commentStub = Comment.builder()
+                .body("first test content")
+                .gameName("Snake")
+                .author(tpUserStub)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        tpUserRepository.save(tpUserStub);
+        Comment savedCommentStub = commentsRepository.save(commentStub);
+
+        MvcResult firstResult = mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/{id}", savedCommentStub.getId())
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = firstResult.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/{id}", savedCommentStub.getId())
+                                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/feed")
+                                .param("gameName", "Snake")
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, org.hamcrest.Matchers.not(etag)));
+    }
+
+    @Test
+    @Transactional
+    void given_1User1CommentSavedInDB_when_feedIsHitWithMatchingIfNoneMatch_then_returnNotModifiedResponse() throws Exception {
+        TPUser tpUserStub = TPUser.builder()
+                .name("testUser")
+                .role(Role.USER)
+                .updatedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .password(passwordEncoder.encode("123ASDasd"))
+                .build();
+
+        Comment commentStub = Comment.builder()
+                .body("first test content")
+                .gameName("Snake")
+                .author(tpUserStub)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        tpUserRepository.save(tpUserStub);
+        commentsRepository.save(commentStub);
+
+        MvcResult firstResult = mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/feed")
+                                .param("gameName", "Snake")
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn();
+        String etag = firstResult.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/feed")
+                                .param("gameName", "Snake")
+                                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        // another page of the same data is another representation
+        mockMvc.perform(
+                        MockMvcRequestBuilders.get("/comments/feed")
+                                .param("gameName", "Snake")
+                                .param("pageSize", "5")
+                                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
     @Test
     @Transactional
     void given_1User1CommentSavedInDB_when_commentsGetEndpointIsHitWithAbsentIdAsPathVar_then_returnNotFoundResponse() throws Exception {
@@ -398,6 +501,95 @@ class CommentsControllerIntegrationTest extends BaseIntegrationTest {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    // addComments tests -----------------------------------------------
+    @Test
+    @Transactional
+    void given_1UserSavedInDB_when_commentsBatchPostEndpointIsHitWithValidRequestBody_then_returnCreatedCommentRepresentationsInRequestOrder() throws Exception {
+        TPUser tpUserStub = TPUser.builder()
+                .name("testUser")
+                .role(Role.USER)
+                .updatedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .password(passwordEncoder.encode("123ASDasd"))
+                .build();
+        Long tpUserStubId = tpUserRepository.save(tpUserStub).getId();
+
+        TPUserPrincipal principal = TPUserPrincipal.builder()
+                .id(tpUserStubId)
+                .name(tpUserStub.getName())
+                .password(null)
+                .role(Role.USER.name())
+                .createdAt(tpUserStub.getCreatedAt().toString())
+                .updatedAt(tpUserStub.getUpdatedAt().toString())
+                .build();
+        var accessToken = jwtService.issueToken(principal);
+
+        List<AddCommentRequest> addCommentRequests = List.of(
+                AddCommentRequest.builder().body("first queued comment").gameName("Snake").build(),
+                AddCommentRequest.builder().body("second queued comment").gameName("TicTacToe").build()
+        );
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/comments/batch")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addCommentRequests)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments[0].body").value("first queued comment"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments[0].gameName").value("Snake"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments[0].author.id").value(tpUserStubId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments[1].body").value("second queued comment"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.comments[1].gameName").value("TicTacToe"))
+                .andReturn();
+
+        long firstId = ((Number) JsonPath.read(result.getResponse().getContentAsString(), "$.comments[0].id")).longValue();
+        long secondId = ((Number) JsonPath.read(result.getResponse().getContentAsString(), "$.comments[1].id")).longValue();
+        assertThat(secondId).isGreaterThan(firstId);
+        assertThat(commentsRepository.findById(firstId)).hasValueSatisfying(comment -> assertThat(comment.getBody()).isEqualTo("first queued comment"));
+        assertThat(commentsRepository.findById(secondId)).hasValueSatisfying(comment -> assertThat(comment.getGameName()).isEqualTo("TicTacToe"));
+    }
+
+    @Test
+    @Transactional
+    void given_1UserSavedInDB_when_commentsBatchPostEndpointIsHitWithOneInvalidComment_then_returnBadRequestResponseAndPersistNothing() throws Exception {
+        TPUser tpUserStub = TPUser.builder()
+                .name("testUser")
+                .role(Role.USER)
+                .updatedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .password(passwordEncoder.encode("123ASDasd"))
+                .build();
+        Long tpUserStubId = tpUserRepository.save(tpUserStub).getId();
+
+        TPUserPrincipal principal = TPUserPrincipal.builder()
+                .id(tpUserStubId)
+                .name(tpUserStub.getName())
+                .password(null)
+                .role(Role.USER.name())
+                .createdAt(tpUserStub.getCreatedAt().toString())
+                .updatedAt(tpUserStub.getUpdatedAt().toString())
+                .build();
+        var accessToken = jwtService.issueToken(principal);
+
+        List<AddCommentRequest> addCommentRequests = List.of(
+                AddCommentRequest.builder().body("valid queued comment").gameName("Snake").build(),
+                AddCommentRequest.builder().body("").gameName("InvalidGameName").build()
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/comments/batch")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addCommentRequests)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.post("/comments/batch")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        assertThat(commentsRepository.countByAuthorId(tpUserStubId)).isZero();
+    }
+
     // editComment tests ----------------------------------------------------
     @Test
     @Transactional
@@ -12,13 +12,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 
 import org.trickyplay.trickyplayapi.BaseIntegrationTest;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
 
@@ -34,6 +37,9 @@ class CommentRepositoryIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TestEntityManager entityManager; // TestEntityManager provides a subset of EntityManager methods that are useful for tests as well as helper methods for common testing tasks such as persist or find.
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void testMySQLContainerIsRunning() {
         assertThat(mySQLContainer.isRunning()).isTrue();
@@ -366,4 +372,98 @@ class CommentRepositoryIntegrationTest extends BaseIntegrationTest {
         assertThat(commentsPage.isLast())
                 .isFalse();
     }
+
+    @Test
+    void given_4CommentsWithEqualCreatedAtSavedInDB_when_seekingByCreatedAtCursor_then_returnRowsAfterCursorOrderedById() {
+        TPUser tpUser = TPUser.builder()
+                .name("testUser")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        entityManager.persist(tpUser);
+
+        // equal timestamps force the id tie-breaker to decide the order
+        LocalDateTime createdAt = LocalDateTime.of(2023, 8, 1, 12, 0);
+        List<Comment> comments = List.of("first", "second", "third", "fourth").stream()
+                .map(body -> entityManager.persist(Comment.builder()
+                        .author(tpUser)
+                        .gameName("Snake")
+                        .body(body + " comment body")
+                        .createdAt(createdAt)
+                        .updatedAt(createdAt)
+                        .build()))
+                .toList();
+
+        Pageable window = PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "createdAt").and(Sort.by(Sort.Direction.ASC, "id")));
+        List<CommentView> afterFirst = commentRepository.findAllByGameNameAfterCreatedAtCursor("Snake", createdAt, comments.get(0).getId(), window);
+
+        assertThat(afterFirst)
+                .extracting(CommentView::id)
+                .containsExactly(comments.get(1).getId(), comments.get(2).getId());
+
+        Pageable reversedWindow = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+        List<CommentView> beforeLast = commentRepository.findAllByGameNameBeforeCreatedAtCursor("Snake", createdAt, comments.get(3).getId(), reversedWindow);
+
+        assertThat(beforeLast)
+                .extracting(CommentView::id)
+                .containsExactly(comments.get(2).getId(), comments.get(1).getId());
+    }
+
+    // EXPLAIN tests -------------------------------------------------------------
+    // The statements below mirror the SQL generated for findAllByGameName and findAllByAuthorId with the sort keys allowed by the controllers.
+    // type=ALL means a full table scan, "Using filesort" in the Extra column means the rows were sorted after being read - both defeat the composite indexes from 04-create-composite-indexes.xml, and so does type=index
+    @Test
+    void given_commentsOfSeveralGamesSavedInDB_when_explainingFeedQueries_then_noFullScanOrFilesortIsReported() {
+        persistCommentsOfSeveralGamesAndAuthors();
+
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.game_name = 'Snake' ORDER BY c.created_at ASC, c.id ASC LIMIT 11", "comments_game_name_created_at");
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.game_name = 'Snake' ORDER BY c.created_at DESC, c.id DESC LIMIT 11", "comments_game_name_created_at");
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.game_name = 'Snake' ORDER BY c.updated_at ASC, c.id ASC LIMIT 11", "comments_game_name_updated_at");
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.game_name = 'Snake' ORDER BY c.id ASC LIMIT 11", "comments_game_name_id");
+    }
+
+    @Test
+    void given_commentsOfSeveralAuthorsSavedInDB_when_explainingAuthorQueries_then_noFullScanOrFilesortIsReported() {
+        Long authorId = persistCommentsOfSeveralGamesAndAuthors();
+
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.author_user_id = " + authorId + " ORDER BY c.created_at ASC, c.id ASC LIMIT 11", "comments_author_created_at");
+        assertIndexedWithoutFilesort("EXPLAIN SELECT * FROM comments c WHERE c.author_user_id = " + authorId + " ORDER BY c.id DESC LIMIT 11", "comments_users");
+    }
+
+    private Long persistCommentsOfSeveralGamesAndAuthors() {
+        List<TPUser> users = List.of("firstUser", "secondUser", "thirdUser").stream()
+                .map(name -> entityManager.persist(TPUser.builder()
+                        .name(name)
+                        .password("123TestUserPassword")
+                        .role(Role.USER)
+                        .refreshTokens(null)
+                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                        .build()))
+                .toList();
+        List<String> gameNames = List.of("Snake", "TicTacToe", "Minesweeper");
+        for (int i = 0; i < 60; i++) {
+            entityManager.persist(Comment.builder()
+                    .author(users.get(i % users.size()))
+                    .gameName(gameNames.get(i % gameNames.size()))
+                    .body("comment body " + i)
+                    .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusMinutes(i))
+                    .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusMinutes(i))
+                    .build());
+        }
+        entityManager.flush();
+        return users.get(0).getId();
+    }
+
+    // type=index would be a walk over the whole index (e.g. PRIMARY), only a lookup by the equality column reads just the rows of the page
+    private void assertIndexedWithoutFilesort(String explainStatement, String expectedKey) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList(explainStatement);
+        assertThat(plan).hasSize(1);
+        assertThat(plan.get(0).get("type")).isIn("ref", "range");
+        assertThat(plan.get(0).get("key")).isEqualTo(expectedKey);
+        assertThat(String.valueOf(plan.get(0).get("Extra"))).doesNotContain("filesort");
+    }
 }
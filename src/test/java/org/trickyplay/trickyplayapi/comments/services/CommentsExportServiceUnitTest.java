@@ -0,0 +1,89 @@
+package org.trickyplay.trickyplayapi.comments.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.Mockito;
+
+import org.springframework.data.domain.Pageable;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
+import org.trickyplay.trickyplayapi.comments.records.CommentPosition;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.exceptions.InvalidCursorException;
+import org.trickyplay.trickyplayapi.general.exports.ExportFormat;
+import org.trickyplay.trickyplayapi.general.exports.ExportWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class CommentsExportServiceUnitTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private CommentRepository commentRepository;
+    private CommentsExportService commentsExportService;
+
+    @BeforeEach
+    void setUp() {
+        commentRepository = Mockito.mock(CommentRepository.class);
+        commentsExportService = new CommentsExportService(commentRepository, 2);
+    }
+
+    @Test
+    void given_3CommentsInRange_when_exportGameCommentsIsCalled_then_seekAfterTheLastCommentOfEveryChunk() throws Exception {
+        CommentExportRow first = row(1L, FROM);
+        CommentExportRow second = row(7L, FROM.plusDays(1));
+        CommentExportRow third = row(4L, FROM.plusDays(2));
+        Mockito.when(commentRepository.findExportRowsByGameNameAfterCursor(Mockito.eq("Snake"), Mockito.eq(TO), Mockito.eq(FROM), Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        Mockito.when(commentRepository.findExportRowsByGameNameAfterCursor(Mockito.eq("Snake"), Mockito.eq(TO), Mockito.eq(second.createdAt()), Mockito.eq(7L), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(third));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long rows;
+        try (ExportWriter writer = new ExportWriter(outputStream, ExportFormat.CSV, CommentsExportService.COLUMNS)) {
+            rows = commentsExportService.exportGameComments("Snake", TO, commentsExportService.startAfter("Snake", FROM, 0), writer);
+        }
+
+        assertThat(rows).isEqualTo(3);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8).split("\r\n"))
+                .extracting(line -> line.split(",")[0])
+                .containsExactly("id", "1", "7", "4");
+    }
+
+    @Test
+    void given_idOfLastReceivedComment_when_startAfterIsCalled_then_resumeFromItsCreatedAt() {
+        Mockito.when(commentRepository.findPositionById(7L)).thenReturn(Optional.of(new CommentPosition("Snake", FROM.plusDays(1))));
+        Mockito.when(commentRepository.findPositionById(3L)).thenReturn(Optional.of(new CommentPosition("Snake", FROM.minusDays(1))));
+
+        assertThat(commentsExportService.startAfter("Snake", FROM, 7L)).isEqualTo(new CommentsExportService.Cursor(FROM.plusDays(1), 7L));
+        assertThat(commentsExportService.startAfter("Snake", FROM, 3L)).isEqualTo(new CommentsExportService.Cursor(FROM, 0L));
+    }
+
+    @Test
+    void given_idOfNotExistingComment_when_startAfterIsCalled_then_throwInvalidCursorException() {
+        Mockito.when(commentRepository.findPositionById(12345L)).thenReturn(Optional.empty());
+
+        assertThrows(InvalidCursorException.class, () -> commentsExportService.startAfter("Snake", FROM, 12345L));
+    }
+
+    @Test
+    void given_idOfCommentOfAnotherGame_when_startAfterIsCalled_then_throwInvalidCursorException() {
+        Mockito.when(commentRepository.findPositionById(7L)).thenReturn(Optional.of(new CommentPosition("TicTacToe", FROM.plusDays(1))));
+
+        assertThrows(InvalidCursorException.class, () -> commentsExportService.startAfter("Snake", FROM, 7L));
+    }
+
+    private static CommentExportRow row(long id, LocalDateTime createdAt) {
+        return new CommentExportRow(id, "comment " + id, "Snake", 1L, createdAt, createdAt);
+    }
+}
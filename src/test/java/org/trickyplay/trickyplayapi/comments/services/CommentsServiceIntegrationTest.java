@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.Test;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManager;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Sort;
@@ -18,6 +23,7 @@ import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
 import org.trickyplay.trickyplayapi.general.exceptions.CommentNotFoundException;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
+import org.trickyplay.trickyplayapi.replies.dtos.ReplyRepresentation;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
@@ -43,6 +49,8 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
     private CommentsService commentsService;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
 
     @Test
     void testMySQLContainerIsRunning() {
@@ -106,6 +114,50 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(getCommentsResponse.getComments().get(2).getId()).isEqualTo(savedThirdCommentStub.getId());
     }
 
+    @Test
+    @Transactional
+    void given_2Users3CommentsSavedInDB_when_getCommentsByGameNameIsCalled_then_pageIsReadWithSingleStatement() {
+        // given
+        TPUser firstTPUserStub = tpUserRepository.save(TPUser.builder()
+                .name("firstTestUser")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        TPUser secondTPUserStub = tpUserRepository.save(TPUser.builder()
+                .name("secondTestUser")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.ADMIN)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        List.of(firstTPUserStub, secondTPUserStub, firstTPUserStub).forEach(author -> commentRepository.save(Comment.builder()
+                .author(author)
+                .gameName("Snake")
+                .body("comment body of " + author.getName())
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build()));
+        // an empty persistence context - loading entities would have to select every author again
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "createdAt", Sort.Direction.DESC, false);
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+
+        // then
+        assertThat(getCommentsResponse.getComments())
+                .hasSize(3)
+                .extracting(comment -> comment.getAuthor().getName())
+                .containsOnly("firstTestUser", "secondTestUser");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
     // getCommentsByAuthorId tests -----------------------------------------------
     @Test
     @Transactional
@@ -228,10 +280,10 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
         );
     }
 
-    // getCommentsWithReplies tests ------------------------------------------
+    // getCommentsWithRepliesByGameName tests ------------------------------------------
     @Test
     @Transactional
-    void given_1Comment2RepliesSavedInDB_when_getCommentsWithRepliesIsCalled_then_returnListOfCommentsWithTheirRepliesAttached() {
+    void given_1Comment2RepliesSavedInDB_when_getCommentsWithRepliesByGameNameIsCalled_then_returnCommentsWithTheirRepliesEmbedded() {
         // given
         TPUser tPUserStub = TPUser.builder()
                 .name("firstTestUser")
@@ -268,11 +320,21 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
         Reply savedSecondReplyStub = replyRepository.save(secondReplyStub);
 
         // when
-        List<Comment> comments = commentsService.getCommentsWithReplies(0, 10, "id", Sort.Direction.ASC);
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsWithRepliesByGameName("Snake", commentsPageArgs, 3);
 
         // then
-        assertThat(comments).hasSize(1);
-        assertThat(comments.get(0).getReplies()).hasSize(2);
+        assertThat(getCommentsResponse.getComments()).hasSize(1);
+        assertThat(getCommentsResponse.getTotalElements()).isEqualTo(1);
+        assertThat(getCommentsResponse.getComments().get(0).getReplies())
+                .extracting(ReplyRepresentation::getId)
+                .containsExactly(savedFirstReplyStub.getId(), savedSecondReplyStub.getId());
+
+        // the limit is applied per comment by the database, the oldest reply is kept
+        GetCommentsResponse limitedResponse = commentsService.getCommentsWithRepliesByGameName("Snake", commentsPageArgs, 1);
+        assertThat(limitedResponse.getComments().get(0).getReplies())
+                .extracting(ReplyRepresentation::getId)
+                .containsExactly(savedFirstReplyStub.getId());
     }
 
     // addComment tests ----------------------------------------------------
@@ -311,6 +373,53 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(commentRepresentation.getGameName()).isEqualTo("Snake");
     }
 
+    // addComments tests ----------------------------------------------------
+    @Test
+    @Transactional
+    void given_1UserSavedInDB_when_addCommentsIsCalled_then_commentsAreInsertedWithConsecutiveIdsAndCounterOfAuthorIsUpdated() {
+        // given
+        TPUser tPUserStub = TPUser.builder()
+                .name("firstTestUser")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        TPUser savedUserStub = tpUserRepository.save(tPUserStub);
+        List<AddCommentRequest> addCommentRequests = List.of(
+                AddCommentRequest.builder().gameName("Snake").body("first queued comment").build(),
+                AddCommentRequest.builder().gameName("Minesweeper").body("second queued comment").build(),
+                AddCommentRequest.builder().gameName("Snake").body("third queued comment").build()
+        );
+
+        // when
+        AddCommentsResponse addCommentsResponse = commentsService.addComments(
+                TPUserPrincipal.builder()
+                        .id(savedUserStub.getId())
+                        .name(savedUserStub.getName())
+                        .role(savedUserStub.getRole().name())
+                        .updatedAt(savedUserStub.getUpdatedAt().toString())
+                        .createdAt(savedUserStub.getCreatedAt().toString())
+                        .build(),
+                addCommentRequests
+        );
+        // the rows and the counter are written with plain statements, which bypass the entities managed by the persistence context of the test
+        entityManager.clear();
+
+        // then
+        List<CommentRepresentation> comments = addCommentsResponse.getComments();
+        assertThat(comments).extracting(CommentRepresentation::getBody)
+                .containsExactly("first queued comment", "second queued comment", "third queued comment");
+        assertThat(comments.get(1).getId()).isEqualTo(comments.get(0).getId() + 1);
+        assertThat(comments.get(2).getId()).isEqualTo(comments.get(1).getId() + 1);
+        assertThat(commentRepository.findAllByIdIn(comments.stream().map(CommentRepresentation::getId).toList()))
+                .extracting(Comment::getGameName)
+                .containsExactlyInAnyOrder("Snake", "Minesweeper", "Snake");
+        assertThat(commentRepository.countByGameName("Snake")).isEqualTo(2);
+        assertThat(tpUserRepository.findById(savedUserStub.getId()).orElseThrow().getCommentCount()).isEqualTo(3);
+    }
+
     // editComment tests ----------------------------------------------------
     @Test
     @Transactional
@@ -493,6 +602,41 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(deleteCommentResponse.getMessage()).isEqualTo("Comment successfully removed");
     }
 
+    @Test
+    @Transactional
+    void given_2CommentsWith1And100RepliesSavedInDB_when_deleteCommentIsCalled_then_executeTheSameNumberOfStatementsForBoth() {
+        // given
+        TPUser savedUserStub = tpUserRepository.save(TPUser.builder()
+                .name("firstTestUser")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        Comment quietComment = saveCommentWithReplies(savedUserStub, 1);
+        Comment popularComment = saveCommentWithReplies(savedUserStub, 100);
+        TPUserPrincipal principal = new TPUserPrincipal(savedUserStub);
+        // an empty persistence context - nothing is deleted through the loaded entities
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        commentsService.deleteComment(principal, quietComment.getId());
+        long quietCommentStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        commentsService.deleteComment(principal, popularComment.getId());
+        long popularCommentStatements = statistics.getPrepareStatementCount();
+
+        // then
+        assertThat(popularCommentStatements).isEqualTo(quietCommentStatements);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getEntityDeleteCount()).isZero();
+        assertThat(commentRepository.existsById(popularComment.getId())).isFalse();
+        assertThat(replyRepository.countByParentCommentId(popularComment.getId())).isZero();
+    }
+
     @Test
     @Transactional
     void given_1Comment2UsersSavedInDB_when_deleteCommentIsCalledWithSavedCommentIdAndUserWhoIsNotItsAuthor_then_operationNotAllowedExceptionsIsThrew() {
@@ -582,4 +726,24 @@ class CommentsServiceIntegrationTest extends BaseIntegrationTest {
                 "Expected editComment() to throw, but it didn't"
         );
     }
-}
\ No newline at end of file
+
+    private Comment saveCommentWithReplies(TPUser author, int replies) {
+        Comment comment = commentRepository.save(Comment.builder()
+                .author(author)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build());
+        for (int i = 0; i < replies; i++) {
+            replyRepository.save(Reply.builder()
+                    .author(author)
+                    .parentComment(comment)
+                    .body("reply body " + i)
+                    .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                    .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                    .build());
+        }
+        return comment;
+    }
+}
@@ -9,15 +9,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.springframework.data.domain.*;
 
 import org.trickyplay.trickyplayapi.comments.dtos.*;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.records.CommentOwnership;
+import org.trickyplay.trickyplayapi.comments.records.CommentView;
+import org.trickyplay.trickyplayapi.comments.records.CommentsCursor;
 import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
 import org.trickyplay.trickyplayapi.general.exceptions.CommentNotFoundException;
+import org.trickyplay.trickyplayapi.general.exceptions.InvalidCursorException;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
+import org.trickyplay.trickyplayapi.replies.dtos.ReplyRepresentation;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.replies.records.EmbeddedReplyView;
+import org.trickyplay.trickyplayapi.replies.records.ReplyView;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
@@ -37,6 +48,10 @@ class CommentsServiceUnitTest {
     private ReplyRepository replyRepository;
     @Mock
     private TPUserRepository tpUserRepository;
+    @Spy
+    private TotalCountCache totalCountCache = new TotalCountCache(new SimpleMeterRegistry());
+    @Spy
+    private CommentsFeedCache commentsFeedCache = new CommentsFeedCache(new SimpleMeterRegistry());
     @InjectMocks
     private CommentsService commentsService;
 
@@ -110,10 +125,12 @@ class CommentsServiceUnitTest {
 
         List<Comment> snakeComments = List.of(firstCommentStub, secondCommentStub, thirdCommentStub);
         Pageable page0Size10 = PageRequest.of(0, 10);
-        Page<Comment> commentsPageStub = new PageImpl<>(snakeComments, page0Size10, snakeComments.size());
+        Page<CommentView> commentsPageStub = new PageImpl<>(snakeComments.stream().map(CommentView::of).toList(), page0Size10, snakeComments.size());
 
-        Mockito.when(commentRepository.findAllByGameName("Snake", PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
+        Mockito.when(commentRepository.findSliceByGameName("Snake", PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
                 .thenReturn(commentsPageStub);
+        Mockito.when(commentRepository.countByGameName("Snake"))
+                .thenReturn(3L);
 
         // when
         CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
@@ -131,6 +148,211 @@ class CommentsServiceUnitTest {
         assertThat(getCommentsResponse.getComments().get(0).getAuthor().getId()).isEqualTo(firstTPUserStub.getId());
     }
 
+    @Test
+    void given_3CommentsMockedInRepository_when_getCommentsByGameNameIsCalledWithoutTotals_then_countIsNotQueried() {
+        // given
+        TPUser tPUserStub = TPUser.builder()
+                .id(1L)
+                .name("user")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+
+        List<Comment> snakeComments = List.of(1L, 2L, 3L).stream()
+                .map(id -> Comment.builder()
+                        .id(id)
+                        .author(tPUserStub)
+                        .gameName("Snake")
+                        .body("comment body " + id)
+                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                        .build())
+                .toList();
+        Slice<CommentView> commentsSliceStub = new SliceImpl<>(snakeComments.stream().map(CommentView::of).toList(), PageRequest.of(0, 3), true);
+
+        Mockito.when(commentRepository.findSliceByGameName("Snake", PageRequest.of(0, 3, Sort.Direction.ASC, "id")))
+                .thenReturn(commentsSliceStub);
+
+        // when
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 3, "id", Sort.Direction.ASC, false);
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+
+        // then
+        assertThat(getCommentsResponse.getComments()).hasSize(3);
+        assertThat(getCommentsResponse.isLast()).isFalse();
+        assertThat(getCommentsResponse.getTotalElements()).isNull();
+        assertThat(getCommentsResponse.getTotalPages()).isNull();
+        Mockito.verify(commentRepository, Mockito.never()).countByGameName(Mockito.any());
+    }
+
+    @Test
+    void given_cachedTotal_when_getCommentsByGameNameIsCalledAgainAfterAddComment_then_totalIsIncrementedWithoutCounting() {
+        // given
+        TPUser tPUserStub = TPUser.builder()
+                .id(1L)
+                .name("user")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        Comment commentStub = Comment.builder()
+                .id(1L)
+                .author(tPUserStub)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build();
+
+        Mockito.when(commentRepository.findSliceByGameName(Mockito.eq("Snake"), Mockito.any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(CommentView.of(commentStub)), PageRequest.of(0, 10), false));
+        Mockito.when(commentRepository.countByGameName("Snake"))
+                .thenReturn(1L);
+        Mockito.when(tpUserRepository.getReferenceById(tPUserStub.getId())).thenReturn(tPUserStub);
+        Mockito.when(commentRepository.save(Mockito.any(Comment.class))).thenReturn(commentStub);
+
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
+
+        // when
+        commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+        commentsService.addComment(
+                TPUserPrincipal.builder()
+                        .name(tPUserStub.getName())
+                        .id(tPUserStub.getId())
+                        .role(Role.USER.name())
+                        .createdAt(tPUserStub.getCreatedAt().toString())
+                        .updatedAt(tPUserStub.getUpdatedAt().toString())
+                        .build(),
+                new AddCommentRequest("new comment body", "Snake")
+        );
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+
+        // then
+        assertThat(getCommentsResponse.getTotalElements()).isEqualTo(2);
+        Mockito.verify(commentRepository, Mockito.times(1)).countByGameName("Snake");
+    }
+
+    @Test
+    void given_cachedFirstPage_when_getCommentsByGameNameIsCalledBeforeAndAfterEditComment_then_databaseIsQueriedOnlyAfterTheEdit() {
+        // given
+        TPUser tPUserStub = TPUser.builder()
+                .id(1L)
+                .name("user")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        Comment commentStub = Comment.builder()
+                .id(1L)
+                .author(tPUserStub)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build();
+
+        // the projection is a snapshot, so it is read from the stub on every query to reflect the edit
+        Mockito.when(commentRepository.findSliceByGameName(Mockito.eq("Snake"), Mockito.any(Pageable.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(List.of(CommentView.of(commentStub)), PageRequest.of(0, 10), false));
+        Mockito.when(commentRepository.countByGameName("Snake"))
+                .thenReturn(1L);
+        Mockito.when(commentRepository.findById(commentStub.getId())).thenReturn(Optional.of(commentStub));
+
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
+
+        // when
+        GetCommentsResponse firstResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+        GetCommentsResponse cachedResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+        commentsService.editComment(
+                TPUserPrincipal.builder()
+                        .name(tPUserStub.getName())
+                        .id(tPUserStub.getId())
+                        .role(Role.USER.name())
+                        .createdAt(tPUserStub.getCreatedAt().toString())
+                        .updatedAt(tPUserStub.getUpdatedAt().toString())
+                        .build(),
+                commentStub.getId(),
+                EditCommentRequest.builder()
+                        .newCommentBody("new comment body")
+                        .build()
+        );
+        GetCommentsResponse responseAfterEdit = commentsService.getCommentsByGameName("Snake", commentsPageArgs);
+
+        // then
+        // the cached data is shared, every request gets its own response and links
+        assertThat(cachedResponse).isNotSameAs(firstResponse);
+        assertThat(cachedResponse).isEqualTo(firstResponse);
+        assertThat(cachedResponse.getComments().get(0)).isNotSameAs(firstResponse.getComments().get(0));
+        assertThat(responseAfterEdit.getComments().get(0).getBody()).isEqualTo("new comment body");
+        Mockito.verify(commentRepository, Mockito.times(2)).findSliceByGameName(Mockito.eq("Snake"), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    void given_3CommentsMockedInRepository_when_getCommentsByGameNameIsCalledWithEmptyAfterCursor_then_returnFirstWindowWithNextLinkAndNoTotals() {
+        // given
+        TPUser tPUserStub = TPUser.builder()
+                .id(1L)
+                .name("user")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+
+        List<Comment> snakeComments = List.of(1L, 2L, 3L).stream()
+                .map(id -> Comment.builder()
+                        .id(id)
+                        .author(tPUserStub)
+                        .gameName("Snake")
+                        .body("comment body " + id)
+                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                        .build())
+                .toList();
+
+        Mockito.when(commentRepository.findWindowByGameName("Snake", PageRequest.of(0, 3, Sort.by(Sort.Direction.ASC, "id"))))
+                .thenReturn(snakeComments.stream().map(CommentView::of).toList());
+
+        // when
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 2, "id", Sort.Direction.ASC);
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsByGameName("Snake", commentsPageArgs, "", null);
+
+        // then
+        assertThat(getCommentsResponse.getComments())
+                .hasSize(2)
+                .extracting(CommentRepresentation::getId)
+                .containsExactly(1L, 2L);
+        assertThat(getCommentsResponse.isLast()).isFalse();
+        assertThat(getCommentsResponse.getTotalElements()).isNull();
+        assertThat(getCommentsResponse.getTotalPages()).isNull();
+        assertThat(getCommentsResponse.getPageNumber()).isNull();
+        assertThat(getCommentsResponse.getLink("next")).isPresent();
+        assertThat(getCommentsResponse.getLink("prev")).isEmpty();
+        Mockito.verify(commentRepository, Mockito.never()).findSliceByGameName(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void given_cursorIssuedForAnotherSortColumn_when_getCommentsByGameNameIsCalled_then_throwInvalidCursorException() {
+        String idCursor = new CommentsCursor("id", "5", 5L).encode();
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "createdAt", Sort.Direction.ASC);
+
+        // when, then
+        assertThrows(InvalidCursorException.class, () ->
+                commentsService.getCommentsByGameName("Snake", commentsPageArgs, idCursor, null)
+        );
+        assertThrows(InvalidCursorException.class, () ->
+                commentsService.getCommentsByGameName("Snake", commentsPageArgs, "not-a-cursor", null)
+        );
+    }
+
     // getCommentsByAuthorId tests -----------------------------------------------
     @Test
     void given_1User3CommentsMockedInRepository_when_getCommentsByAuthorIdIsCalled_then_returnCorrespondingGetCommentsResponse() {
@@ -175,10 +397,12 @@ class CommentsServiceUnitTest {
 
         List<Comment> firstUserComments = List.of(firstCommentStub, secondCommentStub, thirdCommentStub);
         Pageable page0Size10 = PageRequest.of(0, 10);
-        Page<Comment> commentsPageStub = new PageImpl<>(firstUserComments, page0Size10, firstUserComments.size());
+        Page<CommentView> commentsPageStub = new PageImpl<>(firstUserComments.stream().map(CommentView::of).toList(), page0Size10, firstUserComments.size());
 
-        Mockito.when(commentRepository.findAllByAuthorId(tPUserStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id"))) // Mockito.any(Pageable.class)
+        Mockito.when(commentRepository.findSliceByAuthorId(tPUserStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id"))) // Mockito.any(Pageable.class)
                 .thenReturn(commentsPageStub);
+        Mockito.when(commentRepository.countByAuthorId(tPUserStub.getId()))
+                .thenReturn(3L);
 
         // when
         CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
@@ -240,9 +464,9 @@ class CommentsServiceUnitTest {
         assertThrows(CommentNotFoundException.class, () -> commentsService.getSingleComment(1000L));
     }
 
-    // getCommentsWithReplies tests ------------------------------------------
+    // getCommentsWithRepliesByGameName tests ------------------------------------------
     @Test
-    void given_1CommentWith1ReplyAnd1CommentWith2RepliesMockedInRepositories_when_getCommentsWithRepliesIsCalled_then_returnListOfAllCommentsWithTheirRepliesAttached() {
+    void given_1CommentWith3RepliesAnd1CommentWith1ReplyMockedInRepositories_when_getCommentsWithRepliesByGameNameIsCalled_then_returnCommentsWithTheirFirstRepliesEmbedded() {
         // given
         TPUser tPUserStub = TPUser.builder()
                 .id(1L)
@@ -263,79 +487,70 @@ class CommentsServiceUnitTest {
                 .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
                 .build();
 
-        Comment secondCommentStub =Comment.builder()
+        Comment secondCommentStub = Comment.builder()
                 .id(2L)
                 .author(tPUserStub)
                 .gameName("Snake")
-                .body("first comment body")
+                .body("second comment body")
                 .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
                 .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
                 .build();
 
-        Reply firstReplyStub = Reply.builder()
-                .id(0L)
-                .author(tPUserStub)
-                .parentComment(Comment.builder()
-                        .id(1L)
-                        .author(tPUserStub)
-                        .gameName("Snake")
-                        .body("first comment body")
-                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
-                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
-                        .build())
-                .body("first reply body")
-                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
-                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(2))
-                .build();
-
-        Reply secondReplyStub = Reply.builder()
-                .id(1L)
-                .author(tPUserStub)
-                .parentComment(Comment.builder()
-                        .id(1L)
-                        .author(tPUserStub)
-                        .gameName("Snake")
-                        .body("first comment body")
-                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
-                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
-                        .build())
-                .body("second reply body")
-                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
-                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(2))
-                .build();
-
-        Reply thirdReplyStub = Reply.builder()
-                .id(2L)
+        Comment thirdCommentStub = Comment.builder()
+                .id(3L)
                 .author(tPUserStub)
-                .parentComment(Comment.builder()
-                        .id(2L)
-                        .author(tPUserStub)
-                        .gameName("Snake")
-                        .body("first comment body")
-                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
-                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
-                        .build())
-                .body("first reply body")
-                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
-                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(2))
+                .gameName("Snake")
+                .body("third comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
                 .build();
 
-        List<Comment> snakeComments = List.of(firstCommentStub, secondCommentStub);
-        Pageable page0Size10 = PageRequest.of(0, 10);
-        Page<Comment> commentsPageStub = new PageImpl<>(snakeComments, page0Size10, snakeComments.size());
-        Mockito.when(commentRepository.findAll(PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
-                .thenReturn(commentsPageStub);
-        Mockito.when(replyRepository.findAllByParentCommentIdIn(List.of(firstCommentStub.getId(), secondCommentStub.getId()))).thenReturn((List.of(firstReplyStub, secondReplyStub, thirdReplyStub)));
+        // the repository limits the replies per comment (repliesLimit 2) and returns them ordered by createdAt
+        List<EmbeddedReplyView> repliesStub = List.of(
+                        replyStub(10L, firstCommentStub, tPUserStub),
+                        replyStub(11L, secondCommentStub, tPUserStub),
+                        replyStub(12L, firstCommentStub, tPUserStub)
+                ).stream()
+                .map(reply -> ReplyView.of(reply).embedded())
+                .toList();
+
+        List<CommentView> snakeComments = List.of(firstCommentStub, secondCommentStub, thirdCommentStub).stream()
+                .map(CommentView::of)
+                .toList();
+        Mockito.when(commentRepository.findSliceByGameName("Snake", PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
+                .thenReturn(new SliceImpl<>(snakeComments, PageRequest.of(0, 10), false));
+        Mockito.when(replyRepository.findFirstIdsByParentCommentIdIn(List.of(1L, 2L, 3L), 2))
+                .thenReturn(List.of(10L, 11L, 12L));
+        Mockito.when(replyRepository.findEmbeddedViewsByIdIn(List.of(10L, 11L, 12L)))
+                .thenReturn(repliesStub);
 
         // when
-        List<Comment> comments = commentsService.getCommentsWithReplies(0, 10, "id", Sort.Direction.ASC);
+        CommentsPageArgs commentsPageArgs = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC, false);
+        GetCommentsResponse getCommentsResponse = commentsService.getCommentsWithRepliesByGameName("Snake", commentsPageArgs, 2);
 
         // then
-        assertThat(comments)
-                .hasSize(2)
-                .doesNotHaveDuplicates()
-                .doesNotContainNull();
-        assertThat(comments.stream().filter(comment -> comment.getId() == firstCommentStub.getId()).findAny().get().getReplies()).hasSize(2);
+        assertThat(getCommentsResponse.getComments()).hasSize(3);
+        assertThat(getCommentsResponse.getComments().get(0).getReplies())
+                .extracting(ReplyRepresentation::getId)
+                .containsExactly(10L, 12L);
+        assertThat(getCommentsResponse.getComments().get(0).getReplies().get(0).getParentComment()).isNull();
+        assertThat(getCommentsResponse.getComments().get(1).getReplies())
+                .extracting(ReplyRepresentation::getId)
+                .containsExactly(11L);
+        assertThat(getCommentsResponse.getComments().get(2).getReplies()).isEmpty();
+        Mockito.verify(replyRepository, Mockito.times(1)).findFirstIdsByParentCommentIdIn(Mockito.any(), Mockito.eq(2));
+        Mockito.verify(replyRepository, Mockito.times(1)).findEmbeddedViewsByIdIn(Mockito.any());
+    }
+
+    private static Reply replyStub(long id, Comment parentComment, TPUser author) {
+        return Reply.builder()
+                .id(id)
+                .author(author)
+                .parentComment(parentComment)
+                .body("reply body " + id)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(2))
+                .build();
     }
 
     // addComment tests ----------------------------------------------------
@@ -386,6 +601,7 @@ class CommentsServiceUnitTest {
         // then
         assertThat(commentRepresentation.getGameName()).isEqualTo("Snake");
         assertThat(commentRepresentation.getBody()).isEqualTo("new comment body");
+        Mockito.verify(tpUserRepository, Mockito.times(1)).incrementCommentCount(tPUserStub.getId());
     }
 
     // editComment tests ----------------------------------------------------
@@ -531,8 +747,7 @@ class CommentsServiceUnitTest {
                 .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
                 .build();
 
-        Mockito.when(commentRepository.findById(commentStub.getId())).thenReturn(Optional.ofNullable(commentStub));
-        Mockito.doNothing().when(commentRepository).deleteById(Mockito.any());
+        Mockito.when(commentRepository.findOwnershipById(commentStub.getId())).thenReturn(Optional.of(new CommentOwnership(tPUserStub.getId(), commentStub.getGameName())));
 
         // when
         DeleteCommentResponse deleteCommentResponse = commentsService.deleteComment(
@@ -548,6 +763,40 @@ class CommentsServiceUnitTest {
 
         // then
         assertThat(deleteCommentResponse.getMessage()).isEqualTo("Comment successfully removed");
+        // the counters of the reply authors are updated while the replies exist, the replies go before the comment that they reference
+        InOrder inOrder = Mockito.inOrder(tpUserRepository, replyRepository, commentRepository);
+        inOrder.verify(tpUserRepository).subtractRepliesOfComment(commentStub.getId());
+        inOrder.verify(replyRepository).deleteAllByParentCommentId(commentStub.getId());
+        inOrder.verify(commentRepository).deleteByIdInBulk(commentStub.getId());
+        // no entity is loaded or removed one by one
+        Mockito.verify(commentRepository, Mockito.never()).findById(Mockito.any());
+        Mockito.verify(commentRepository, Mockito.never()).deleteById(Mockito.any());
+        Mockito.verify(tpUserRepository, Mockito.times(1)).decrementCommentCount(commentStub.getAuthor().getId());
+    }
+
+    @Test
+    void given_cachedReplyTotalsOf2Authors_when_deleteCommentIsCalled_then_invalidateOnlyTheTotalOfTheAuthorWhoReplied() {
+        // given - user 2 replied under the comment, user 3 did not
+        Mockito.when(commentRepository.findOwnershipById(1L)).thenReturn(Optional.of(new CommentOwnership(1L, "Snake")));
+        Mockito.when(replyRepository.findAuthorIdsByParentCommentId(1L)).thenReturn(List.of(2L));
+        totalCountCache.get(TotalCountCache.repliesOfAuthor(2L), () -> 5);
+        totalCountCache.get(TotalCountCache.repliesOfAuthor(3L), () -> 7);
+
+        // when
+        commentsService.deleteComment(
+                TPUserPrincipal.builder()
+                        .name("user")
+                        .id(1L)
+                        .role(Role.USER.name())
+                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10).toString())
+                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9).toString())
+                        .build(),
+                1L
+        );
+
+        // then - the total of user 2 is counted again, the one of user 3 is still cached
+        assertThat(totalCountCache.get(TotalCountCache.repliesOfAuthor(2L), () -> 4)).isEqualTo(4);
+        assertThat(totalCountCache.get(TotalCountCache.repliesOfAuthor(3L), () -> 0)).isEqualTo(7);
     }
 
     @Test
@@ -572,7 +821,7 @@ class CommentsServiceUnitTest {
                 .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
                 .build();
 
-        Mockito.when(commentRepository.findById(commentStub.getId())).thenReturn(Optional.ofNullable(commentStub));
+        Mockito.when(commentRepository.findOwnershipById(commentStub.getId())).thenReturn(Optional.of(new CommentOwnership(tPUserStub.getId(), commentStub.getGameName())));
 
         // when, then
         OperationNotAllowedException thrown = assertThrows(OperationNotAllowedException.class, () ->
@@ -591,7 +840,7 @@ class CommentsServiceUnitTest {
 
     @Test
     void given_mockedRepositoryThatReturnsEmptyOptional_when_deleteCommentIsCalled_then_throwCommentNotFoundExceptions() {
-        Mockito.when(commentRepository.findById(Mockito.any())).thenReturn(Optional.empty());
+        Mockito.when(commentRepository.findOwnershipById(Mockito.anyLong())).thenReturn(Optional.empty());
 
         // when, then
         CommentNotFoundException thrown = assertThrows(CommentNotFoundException.class, () ->
@@ -0,0 +1,66 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.data.domain.Sort;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentsFeedPage;
+import org.trickyplay.trickyplayapi.comments.records.CommentsPageArgs;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class CommentsFeedCacheUnitTest {
+    private static final CommentsPageArgs FIRST_PAGE = new CommentsPageArgs(0, 10, "id", Sort.Direction.ASC);
+
+    private final CommentsFeedCache commentsFeedCache = new CommentsFeedCache(new SimpleMeterRegistry());
+
+    @Test
+    void given_emptyCache_when_getIsCalledTwice_then_loadThePageOnce() {
+        CommentsFeedPage page = page(1L);
+
+        CommentsFeedPage first = commentsFeedCache.get("Snake", FIRST_PAGE, () -> page);
+        CommentsFeedPage second = commentsFeedCache.get("Snake", FIRST_PAGE, () -> page(2L));
+
+        assertThat(first).isSameAs(page);
+        assertThat(second).isSameAs(page);
+    }
+
+    @Test
+    void given_gameInvalidatedWhileThePageIsLoaded_when_getIsCalledAgain_then_loadThePageAgain() {
+        CommentsFeedPage stalePage = page(1L);
+        CommentsFeedPage currentPage = page(2L);
+
+        // the write commits after the loader has read the page
+        CommentsFeedPage first = commentsFeedCache.get("Snake", FIRST_PAGE, () -> {
+            commentsFeedCache.invalidateGame("Snake");
+            return stalePage;
+        });
+        CommentsFeedPage second = commentsFeedCache.get("Snake", FIRST_PAGE, () -> currentPage);
+
+        assertThat(first).isSameAs(stalePage);
+        assertThat(second).isSameAs(currentPage);
+    }
+
+    @Test
+    void given_cachedFeedVersion_when_replyIsAddedToAnyComment_then_loadTheVersionAgain() {
+        ResourceVersion before = new ResourceVersion(1L, LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 1, 0, 0), 0L);
+        ResourceVersion after = new ResourceVersion(1L, LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 1, 0, 0), 1L);
+        commentsFeedCache.getVersion("Snake", () -> before);
+
+        commentsFeedCache.invalidateComment(1L);
+
+        assertThat(commentsFeedCache.getVersion("Snake", () -> after)).isSameAs(after);
+    }
+
+    private static CommentsFeedPage page(long totalElements) {
+        return new CommentsFeedPage(List.of(), 10, 0, true, totalElements, 1);
+    }
+}
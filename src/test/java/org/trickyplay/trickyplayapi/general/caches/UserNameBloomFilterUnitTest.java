@@ -0,0 +1,71 @@
+package org.trickyplay.trickyplayapi.general.caches;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.Mockito;
+
+import org.springframework.data.domain.Pageable;
+
+import org.trickyplay.trickyplayapi.users.records.UserName;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class UserNameBloomFilterUnitTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TPUserRepository userRepository;
+    private UserNameBloomFilter userNameBloomFilter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(TPUserRepository.class);
+        userNameBloomFilter = new UserNameBloomFilter(userRepository, 1000, 0.01, 2, registry);
+    }
+
+    @Test
+    void given_filterNotBuiltYet_when_mightContainIsCalled_then_returnTrue() {
+        assertThat(userNameBloomFilter.mightContain("anyName")).isTrue();
+    }
+
+    @Test
+    void given_3UsersInRepository_when_rebuildIsCalled_then_readThemInBatchesAndRecognizeTheirNamesInAnyCase() {
+        Mockito.when(userRepository.findNamesAfterId(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(new UserName(1L, "first"), new UserName(2L, "second")));
+        Mockito.when(userRepository.findNamesAfterId(Mockito.eq(2L), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(new UserName(5L, "third")));
+
+        userNameBloomFilter.rebuild();
+
+        assertThat(userNameBloomFilter.mightContain("First")).isTrue();
+        assertThat(userNameBloomFilter.mightContain("SECOND")).isTrue();
+        assertThat(userNameBloomFilter.mightContain("third")).isTrue();
+        assertThat(userNameBloomFilter.mightContain("fourth")).isFalse();
+        assertThat(registry.get("users.name-filter.checks").tag("result", "absent").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void given_builtFilter_when_nameIsAddedRenamedAndRemoved_then_reflectEveryChange() {
+        Mockito.when(userRepository.findNamesAfterId(Mockito.anyLong(), Mockito.any(Pageable.class))).thenReturn(List.of());
+        userNameBloomFilter.rebuild();
+
+        userNameBloomFilter.add("NewUser");
+        assertThat(userNameBloomFilter.mightContain("newuser")).isTrue();
+
+        userNameBloomFilter.rename("NewUser", "RenamedUser");
+        assertThat(userNameBloomFilter.mightContain("newuser")).isFalse();
+        assertThat(userNameBloomFilter.mightContain("renameduser")).isTrue();
+
+        userNameBloomFilter.rename("RenamedUser", "RENAMEDUSER");
+        assertThat(userNameBloomFilter.mightContain("renameduser")).isTrue();
+
+        userNameBloomFilter.remove("RenamedUser");
+        assertThat(userNameBloomFilter.mightContain("renameduser")).isFalse();
+    }
+}
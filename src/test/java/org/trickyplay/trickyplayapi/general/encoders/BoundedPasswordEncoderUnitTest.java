@@ -0,0 +1,85 @@
+package org.trickyplay.trickyplayapi.general.encoders;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.trickyplay.trickyplayapi.general.exceptions.PasswordHashingRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPasswordEncoderUnitTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    void given_boundedPasswordEncoder_when_encodeAndMatchesAreCalled_then_verifyPasswordAndRecordDurations() {
+        passwordEncoder = new BoundedPasswordEncoder(4, Duration.ZERO, 2, 8, Duration.ofSeconds(1), registry);
+
+        String encodedPassword = passwordEncoder.encode("password1234PASSWORD");
+
+        assertThat(encodedPassword).startsWith("$2a$04$");
+        assertThat(passwordEncoder.matches("password1234PASSWORD", encodedPassword)).isTrue();
+        assertThat(passwordEncoder.matches("wrongPassword", encodedPassword)).isFalse();
+        assertThat(registry.get("password-encoder.duration").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(registry.get("password-encoder.duration").tag("operation", "matches").timer().count()).isEqualTo(2);
+        assertThat(registry.get("password-encoder.wait").timer().count()).isEqualTo(3);
+        assertThat(registry.get("password-encoder.queue-depth").gauge().value()).isZero();
+    }
+
+    @Test
+    void given_fullQueue_when_encodeIsCalled_then_throwPasswordHashingRejectedException() throws Exception {
+        passwordEncoder = new BoundedPasswordEncoder(12, Duration.ZERO, 1, 1, Duration.ofSeconds(3), registry);
+        int callers = 8;
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(callerPool.submit(() -> {
+                start.await();
+                try {
+                    passwordEncoder.encode("password1234PASSWORD");
+                } catch (PasswordHashingRejectedException ex) {
+                    assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(3));
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        callerPool.shutdown();
+
+        // one hash runs and one waits in the queue, the other callers are rejected without waiting
+        assertThat(rejected.get()).isGreaterThanOrEqualTo(callers - 2);
+        assertThat(registry.get("password-encoder.rejected").counter().count()).isEqualTo(rejected.get());
+    }
+
+    @Test
+    void given_zeroCalibrationTarget_when_calibrateIsCalled_then_returnMinimalStrength() {
+        passwordEncoder = new BoundedPasswordEncoder(4, Duration.ZERO, 1, 1, Duration.ofSeconds(1), registry);
+
+        assertThat(BoundedPasswordEncoder.calibrate(Duration.ZERO)).isEqualTo(BoundedPasswordEncoder.MIN_STRENGTH);
+        assertThat(BoundedPasswordEncoder.calibrate(Duration.ofMillis(50))).isBetween(BoundedPasswordEncoder.MIN_STRENGTH, BoundedPasswordEncoder.MAX_STRENGTH);
+    }
+}
@@ -0,0 +1,100 @@
+package org.trickyplay.trickyplayapi.general.exports;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class ExportWriterUnitTest {
+    private static final List<String> COLUMNS = List.of("id", "body", "createdAt");
+    private static final LocalDateTime DATE = LocalDateTime.of(2023, 10, 19, 11, 34, 43);
+
+    @Test
+    void given_csvFormat_when_rowsAreWritten_then_writeHeaderAndQuoteSpecialCharacters() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(outputStream, ExportFormat.CSV, COLUMNS)) {
+            writer.write(1L, "plain", DATE);
+            writer.write(2L, "with, comma and \"quotes\"\nand a new line", null);
+        }
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,body,createdAt\r\n"
+                        + "1,plain,2023-10-19T11:34:43\r\n"
+                        + "2,\"with, comma and \"\"quotes\"\"\nand a new line\",\r\n");
+    }
+
+    @Test
+    void given_csvFormat_when_textStartingWithFormulaCharacterIsWritten_then_prefixItWithApostrophe() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(outputStream, ExportFormat.CSV, COLUMNS)) {
+            writer.write(1L, "=HYPERLINK(\"http://example.com\")", DATE);
+            writer.write(2L, "+1", DATE);
+            writer.write(-3L, "-1", DATE);
+            writer.write(4L, "@SUM(A1:A2)", DATE);
+            writer.write(5L, "a = b", DATE);
+        }
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,body,createdAt\r\n"
+                        + "1,\"'=HYPERLINK(\"\"http://example.com\"\")\",2023-10-19T11:34:43\r\n"
+                        + "2,'+1,2023-10-19T11:34:43\r\n"
+                        + "-3,'-1,2023-10-19T11:34:43\r\n"
+                        + "4,'@SUM(A1:A2),2023-10-19T11:34:43\r\n"
+                        + "5,a = b,2023-10-19T11:34:43\r\n");
+    }
+
+    @Test
+    void given_ndjsonFormat_when_rowsAreWritten_then_writeOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(outputStream, ExportFormat.NDJSON, COLUMNS)) {
+            writer.write(1L, "line\nbreak", DATE);
+            writer.write(2L, "second", null);
+        }
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(1L);
+        assertThat(first.get("body").asText()).isEqualTo("line\nbreak");
+        assertThat(first.get("createdAt").asText()).isEqualTo("2023-10-19T11:34:43");
+        assertThat(new ObjectMapper().readTree(lines[1]).get("createdAt").isNull()).isTrue();
+    }
+
+    @Test
+    void given_clientAcceptingGzip_when_exportIsFlushed_then_sendCompressedChunkBeforeClose() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ExportWriter writer = ExportWriter.open(request, response, ExportFormat.NDJSON, "export", COLUMNS);
+        writer.write(1L, "first chunk", DATE);
+        writer.flush();
+        int flushedBytes = response.getContentAsByteArray().length;
+        writer.close();
+
+        assertThat(flushedBytes).isPositive();
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=export.ndjson");
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).contains("\"body\":\"first chunk\"");
+        }
+    }
+}
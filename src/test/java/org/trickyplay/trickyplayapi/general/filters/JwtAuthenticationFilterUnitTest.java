@@ -0,0 +1,146 @@
+package org.trickyplay.trickyplayapi.general.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.Mockito;
+
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.services.AccessTokenRevocationService;
+import org.trickyplay.trickyplayapi.users.services.JwtService;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class JwtAuthenticationFilterUnitTest {
+    private final String secretKey = "ESCTr+2uf8DKNIKHkRqdN6eM3V7nM1YM6b5Y1obBF4o=";
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AccessTokenRevocationService accessTokenRevocationService = Mockito.mock(AccessTokenRevocationService.class);
+    private final TPUserPrincipal principal = TPUserPrincipal.builder()
+            .id(1L)
+            .name("user")
+            .role(Role.USER.name())
+            .createdAt("2024-02-06T04:22:07")
+            .updatedAt("2024-02-06T04:22:07")
+            .build();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void given_validAccessToken_when_requestIsFiltered_then_principalIsAuthenticatedAndSuccessIsTimed() throws Exception {
+        // given
+        JwtService jwtService = new JwtService(secretKey, 60_000);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, new VerifiedTokenCache(false, 100, registry), accessTokenRevocationService, registry);
+        MockHttpServletRequest request = requestWithBearer(jwtService.issueToken(principal));
+
+        // when
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        assertThat(((TPUserPrincipal) authentication.getPrincipal()).getId()).isEqualTo(1L);
+        assertThat(authentication.getAuthorities()).hasSameElementsAs(Role.USER.getAuthorities());
+        assertThat(timerCount(JwtAuthenticationFilter.SUCCESS)).isEqualTo(1);
+    }
+
+    @Test
+    void given_expiredAccessToken_when_requestIsFiltered_then_requestIsNotAuthenticatedAndExpiryIsTimed() throws Exception {
+        // given
+        JwtService jwtService = new JwtService(secretKey, -60_000);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, new VerifiedTokenCache(false, 100, registry), accessTokenRevocationService, registry);
+        MockHttpServletRequest request = requestWithBearer(jwtService.issueToken(principal));
+
+        // when
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(timerCount(JwtAuthenticationFilter.EXPIRED)).isEqualTo(1);
+        assertThat(timerCount(JwtAuthenticationFilter.SUCCESS)).isZero();
+    }
+
+    @Test
+    void given_accessTokenSignedWithAnotherKey_when_requestIsFiltered_then_requestIsNotAuthenticatedAndInvalidSignatureIsTimed() throws Exception {
+        // given
+        String tokenSignedWithAnotherKey = new JwtService("q2Zy2lWm1I6Ch2cQ8nYpxA8cF1Q0qKb0tB3kqXkT3nE=", 60_000).issueToken(principal);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(new JwtService(secretKey, 60_000), new VerifiedTokenCache(false, 100, registry), accessTokenRevocationService, registry);
+
+        // when
+        filter.doFilter(requestWithBearer(tokenSignedWithAnotherKey), new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(timerCount(JwtAuthenticationFilter.INVALID_SIGNATURE)).isEqualTo(1);
+    }
+
+    @Test
+    void given_accessTokenOfUserWhoseTokensWereRevoked_when_requestIsFiltered_then_requestIsNotAuthenticatedAndRevocationIsTimed() throws Exception {
+        // given
+        JwtService jwtService = new JwtService(secretKey, 60_000);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, new VerifiedTokenCache(false, 100, registry), accessTokenRevocationService, registry);
+        Mockito.when(accessTokenRevocationService.isRevoked(eq(1L), any(Instant.class))).thenReturn(true);
+
+        // when
+        filter.doFilter(requestWithBearer(jwtService.issueToken(principal)), new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(timerCount(JwtAuthenticationFilter.REVOKED)).isEqualTo(1);
+        assertThat(timerCount(JwtAuthenticationFilter.SUCCESS)).isZero();
+    }
+
+    @Test
+    void given_verifiedTokenCacheEnabled_when_sameTokenIsFilteredTwice_then_secondVerificationIsServedFromCache() throws Exception {
+        // given
+        JwtService jwtService = new JwtService(secretKey, 60_000);
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(true, 100, registry);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, verifiedTokenCache, accessTokenRevocationService, registry);
+        String token = jwtService.issueToken(principal);
+
+        // when
+        filter.doFilter(requestWithBearer(token), new MockHttpServletResponse(), new MockFilterChain());
+        SecurityContextHolder.clearContext();
+        filter.doFilter(requestWithBearer(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+        assertThat(timerCount(JwtAuthenticationFilter.SUCCESS)).isEqualTo(2);
+        assertThat(registry.get("jwt.verified-token-cache.size").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("jwt.verified-token-cache.hit-rate").gauge().value()).isEqualTo(0.5);
+
+        // when
+        verifiedTokenCache.invalidateUser(1L);
+
+        // then
+        assertThat(registry.get("jwt.verified-token-cache.size").gauge().value()).isZero();
+    }
+
+    private static MockHttpServletRequest requestWithBearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/comments/feed");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private long timerCount(String outcome) {
+        return registry.get("jwt.verification").tag("outcome", outcome).timer().count();
+    }
+}
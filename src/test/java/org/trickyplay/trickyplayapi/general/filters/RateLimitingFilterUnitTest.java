@@ -0,0 +1,209 @@
+package org.trickyplay.trickyplayapi.general.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import org.trickyplay.trickyplayapi.general.configs.RateLimitConfigurationProperties;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class RateLimitingFilterUnitTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private RateLimitingFilter rateLimitingFilter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitConfigurationProperties properties = new RateLimitConfigurationProperties();
+        properties.setRoutes(List.of(
+                new RateLimitConfigurationProperties.Route("POST", "/auth/sign-in", 3, 2, Duration.ofMinutes(1), RateLimitConfigurationProperties.UserKey.USERNAME),
+                new RateLimitConfigurationProperties.Route("POST", "/comments", 10, 2, Duration.ofMinutes(1), RateLimitConfigurationProperties.UserKey.PRINCIPAL)));
+        rateLimitingFilter = new RateLimitingFilter(properties, new ObjectMapper(), registry, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void given_signInRouteLimitedTo3PerMinute_when_4RequestsAreSentFromOneAddress_then_rejectTheFourthWith429() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = send("POST", "/auth/sign-in", "10.0.0.1", null);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(RateLimitingFilter.LIMIT_HEADER)).isEqualTo("3");
+            assertThat(response.getHeader(RateLimitingFilter.REMAINING_HEADER)).isEqualTo(String.valueOf(2 - i));
+        }
+
+        MockHttpServletResponse rejected = send("POST", "/auth/sign-in", "10.0.0.1", null);
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(rejected.getHeader(RateLimitingFilter.REMAINING_HEADER)).isEqualTo("0");
+        assertThat(registry.get("rate-limit.requests").tag("route", "POST /auth/sign-in").tag("outcome", "allowed").counter().count()).isEqualTo(3);
+        assertThat(registry.get("rate-limit.requests").tag("route", "POST /auth/sign-in").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void given_drainedBucket_when_aThirdOfThePeriodPasses_then_allowOneMoreRequest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("POST", "/auth/sign-in", "10.0.0.1", null);
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+
+        assertThat(send("POST", "/auth/sign-in", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/auth/sign-in", "10.0.0.1", null).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void given_drainedBucketOfOneAddress_when_requestIsSentFromAnotherAddress_then_allowIt() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            send("POST", "/auth/sign-in", "10.0.0.1", null);
+        }
+
+        assertThat(send("POST", "/auth/sign-in", "10.0.0.2", null).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void given_commentsRouteLimitedTo2PerUser_when_3CommentsAreSentByOneUser_then_rejectTheThirdOne() throws Exception {
+        authenticate(1L);
+        assertThat(send("POST", "/comments", "10.0.0.1", "Bearer header.payload.signature1").getStatus()).isEqualTo(200);
+        // a refreshed token of the same user draws from the same bucket
+        assertThat(send("POST", "/comments", "10.0.0.1", "Bearer header.payload.signature2").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = send("POST", "/comments", "10.0.0.1", "Bearer header.payload.signature3");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(RateLimitingFilter.LIMIT_HEADER)).isEqualTo("2");
+        authenticate(2L);
+        assertThat(send("POST", "/comments", "10.0.0.1", "Bearer header.payload.signature4").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void given_commentsRouteLimitedTo10PerIp_when_requestsWithUnverifiedTokensAreSent_then_limitThemPerIpOnly() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = send("POST", "/comments", "10.0.0.1", "Bearer header.payload.random" + i);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(RateLimitingFilter.LIMIT_HEADER)).isEqualTo("10");
+        }
+
+        assertThat(send("POST", "/comments", "10.0.0.1", "Bearer header.payload.random10").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void given_signInLimitedTo2PerUsername_when_3AttemptsForOneAccountComeFromDifferentAddresses_then_rejectTheThirdOne() throws Exception {
+        assertThat(signIn("10.0.0.1", "Alice").getStatus()).isEqualTo(200);
+        assertThat(signIn("10.0.0.2", "alice").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = signIn("10.0.0.3", "Alice");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(RateLimitingFilter.LIMIT_HEADER)).isEqualTo("2");
+        assertThat(signIn("10.0.0.3", "Bob").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void given_signInRequest_when_itIsAllowed_then_passTheBodyOnUnchanged() throws Exception {
+        String body = "{\"username\":\"Alice\",\"password\":\"password1\"}";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/sign-in");
+        request.setRemoteAddr("10.0.0.1");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain filterChain = new MockFilterChain();
+
+        rateLimitingFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(new String(filterChain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+    }
+
+    @Test
+    void given_signInRequest_when_itsBodyIsTooLarge_then_rejectItWith413() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/sign-in");
+        request.setRemoteAddr("10.0.0.1");
+        request.setContent(new byte[RateLimitingFilter.MAXIMUM_BUFFERED_BODY + 1]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitingFilter.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(413);
+    }
+
+    @Test
+    void given_limitedRoutes_when_requestOfUnlistedRouteIsSent_then_passItThroughWithoutHeaders() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = send("GET", "/comments", "10.0.0.1", null);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(RateLimitingFilter.LIMIT_HEADER)).isNull();
+        }
+    }
+
+    @Test
+    void given_concurrentRequests_when_tryAcquireIsCalled_then_allowExactlyTheCapacity() throws Exception {
+        RateLimitingFilter.Limit limit = RateLimitingFilter.Limit.of(100, TimeUnit.MINUTES.toNanos(1));
+        AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        AtomicLong allowed = new AtomicLong();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    if (RateLimitingFilter.tryAcquire(theoreticalArrival, limit, 0) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(allowed.get()).isEqualTo(100);
+    }
+
+    private MockHttpServletResponse signIn(String remoteAddress, String username) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/sign-in");
+        request.setRemoteAddr(remoteAddress);
+        request.setContent(("{\"username\":\"" + username + "\",\"password\":\"password1\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitingFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    // what JwtAuthenticationFilter does for a verified access token
+    private static void authenticate(long userId) {
+        TPUserPrincipal principal = new TPUserPrincipal(userId, "user" + userId, Role.USER, LocalDateTime.now(), LocalDateTime.now());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String remoteAddress, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddress);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitingFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
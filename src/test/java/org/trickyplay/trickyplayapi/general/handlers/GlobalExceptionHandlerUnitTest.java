@@ -0,0 +1,44 @@
+package org.trickyplay.trickyplayapi.general.handlers;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+import org.trickyplay.trickyplayapi.general.exceptions.PasswordHashingRejectedException;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GlobalExceptionHandlerUnitTest {
+    private final GlobalExceptionHandler globalExceptionHandler = new GlobalExceptionHandler();
+
+    // handleInternalAuthenticationServiceException tests -----------------------------------------------
+    @Test
+    void given_passwordHashingRejectedWrappedByAuthenticationProvider_when_handleInternalAuthenticationServiceExceptionIsCalled_then_returnServiceUnavailableWithRetryAfter() {
+        PasswordHashingRejectedException rejected = new PasswordHashingRejectedException(Duration.ofSeconds(3));
+        InternalAuthenticationServiceException ex = new InternalAuthenticationServiceException(rejected.getMessage(), rejected);
+
+        ResponseEntity<Map<String, String>> response = globalExceptionHandler.handleInternalAuthenticationServiceException(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        assertThat(response.getBody()).containsEntry("message", rejected.getMessage());
+    }
+
+    @Test
+    void given_otherCauseWrappedByAuthenticationProvider_when_handleInternalAuthenticationServiceExceptionIsCalled_then_rethrowIt() {
+        InternalAuthenticationServiceException ex = new InternalAuthenticationServiceException("database down", new IllegalStateException("database down"));
+
+        InternalAuthenticationServiceException thrown = assertThrows(InternalAuthenticationServiceException.class,
+                () -> globalExceptionHandler.handleInternalAuthenticationServiceException(ex));
+
+        assertSame(ex, thrown);
+    }
+}
@@ -0,0 +1,84 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.BaseIntegrationTest;
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+@SpringBootTest
+class CountersReconciliationJobIntegrationTest extends BaseIntegrationTest {
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ReplyRepository replyRepository;
+    @Autowired
+    private TPUserRepository tpUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CountersReconciliationJob countersReconciliationJob;
+
+    @Test
+    @Transactional
+    void given_1User1Comment2RepliesSavedInDBBypassingTheServices_when_reconcileIsCalled_then_countersAreEqualToTheNumberOfRows() {
+        // given - the repositories insert the rows without updating the counters, which stay at the default 0
+        TPUser tPUserStub = TPUser.builder()
+                .name("user")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        Comment commentStub = Comment.builder()
+                .author(tPUserStub)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build();
+        tpUserRepository.save(tPUserStub);
+        commentRepository.save(commentStub);
+        for (int i = 0; i < 2; i++) {
+            replyRepository.save(Reply.builder()
+                    .author(tPUserStub)
+                    .parentComment(commentStub)
+                    .body("reply body " + i)
+                    .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                    .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                    .build());
+        }
+
+        // when
+        countersReconciliationJob.reconcile();
+        entityManager.flush();
+        entityManager.clear();
+
+        // then
+        assertThat(commentRepository.findById(commentStub.getId()).orElseThrow().getReplyCount()).isEqualTo(2);
+        TPUser reconciledUser = tpUserRepository.findById(tPUserStub.getId()).orElseThrow();
+        assertThat(reconciledUser.getCommentCount()).isEqualTo(1);
+        assertThat(reconciledUser.getReplyCount()).isEqualTo(2);
+    }
+}
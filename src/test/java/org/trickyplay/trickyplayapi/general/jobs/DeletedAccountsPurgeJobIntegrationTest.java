@@ -0,0 +1,152 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.BaseIntegrationTest;
+import org.trickyplay.trickyplayapi.comments.entities.Comment;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.replies.entities.Reply;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+import org.trickyplay.trickyplayapi.users.services.AccountPurgeService;
+import org.trickyplay.trickyplayapi.users.services.AccountService;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+// chunks of 1 row, so that every step of the purge takes several chunks. The accounts are purged right after the deletion (users.deleted_at is rounded to whole seconds, hence the negative delay)
+@SpringBootTest(properties = {"application.users.account-purge.chunk-size=1", "application.users.account-purge.pause=0", "application.users.account-purge.delay=-PT1S"})
+class DeletedAccountsPurgeJobIntegrationTest extends BaseIntegrationTest {
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ReplyRepository replyRepository;
+    @Autowired
+    private TPUserRepository tpUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CountersReconciliationJob countersReconciliationJob;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private DeletedAccountsPurgeJob deletedAccountsPurgeJob;
+    @Autowired
+    private AccountPurgeService accountPurgeService;
+
+    @Test
+    @Transactional
+    void given_deletedUserWith2CommentsAndReplies_when_purgeIsCalled_then_removeTheContentAndUpdateTheCountersOfOtherUsers() {
+        // given - the deleted user replied under the comment of the other user, the other user replied twice under the comment of the deleted one
+        TPUser deletedUser = tpUserRepository.save(user("deletedUser"));
+        TPUser otherUser = tpUserRepository.save(user("otherUser"));
+        Comment commentOfDeletedUser = commentRepository.save(comment(deletedUser));
+        commentRepository.save(comment(deletedUser));
+        Comment commentOfOtherUser = commentRepository.save(comment(otherUser));
+        replyRepository.save(reply(otherUser, commentOfDeletedUser));
+        replyRepository.save(reply(otherUser, commentOfDeletedUser));
+        replyRepository.save(reply(deletedUser, commentOfOtherUser));
+        countersReconciliationJob.reconcile();
+        entityManager.flush();
+        entityManager.clear();
+
+        // when - the account is marked at once, the purge removes its content later
+        accountService.deleteAccount(deletedUser.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(tpUserRepository.findById(deletedUser.getId()).orElseThrow().getDeletedAt()).isNotNull();
+        assertThat(commentRepository.countByAuthorId(deletedUser.getId())).isEqualTo(2);
+
+        deletedAccountsPurgeJob.purge();
+        entityManager.flush();
+        entityManager.clear();
+
+        // then
+        assertThat(tpUserRepository.findById(deletedUser.getId())).isEmpty();
+        assertThat(commentRepository.countByAuthorId(deletedUser.getId())).isZero();
+        assertThat(replyRepository.countByAuthorId(deletedUser.getId())).isZero();
+        assertThat(replyRepository.countByAuthorId(otherUser.getId())).isZero();
+        assertThat(commentRepository.findById(commentOfOtherUser.getId()).orElseThrow().getReplyCount()).isZero();
+        TPUser remainingUser = tpUserRepository.findById(otherUser.getId()).orElseThrow();
+        assertThat(remainingUser.getCommentCount()).isEqualTo(1);
+        assertThat(remainingUser.getReplyCount()).isZero();
+        assertThat(tpUserRepository.countDeletedUsers()).isZero();
+    }
+
+    @Test
+    @Transactional
+    void given_replyAddedUnderCommentOfDeletedUserDuringThePurge_when_purgeIsCalled_then_subtractEveryDeletedReply() {
+        // given
+        TPUser deletedUser = tpUserRepository.save(user("deletedUser"));
+        TPUser otherUser = tpUserRepository.save(user("otherUser"));
+        Comment commentOfDeletedUser = commentRepository.save(comment(deletedUser));
+        replyRepository.save(reply(otherUser, commentOfDeletedUser));
+        replyRepository.save(reply(otherUser, commentOfDeletedUser));
+        countersReconciliationJob.reconcile();
+        accountService.deleteAccount(deletedUser.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        // when - the first chunk is purged, then the other user replies again (as RepliesService.addReply does)
+        assertThat(accountPurgeService.purgeChunkOfRepliesToComments(deletedUser.getId(), 1)).isEqualTo(1);
+        replyRepository.save(reply(otherUser, commentRepository.getReferenceById(commentOfDeletedUser.getId())));
+        tpUserRepository.incrementReplyCount(otherUser.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        deletedAccountsPurgeJob.purge();
+        entityManager.flush();
+        entityManager.clear();
+
+        // then - the reply count of the other user matches the replies left, none
+        assertThat(replyRepository.countByAuthorId(otherUser.getId())).isZero();
+        assertThat(tpUserRepository.findById(otherUser.getId()).orElseThrow().getReplyCount()).isZero();
+        assertThat(tpUserRepository.findById(deletedUser.getId())).isEmpty();
+    }
+
+    private TPUser user(String name) {
+        return TPUser.builder()
+                .name(name)
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+    }
+
+    private static Comment comment(TPUser author) {
+        return Comment.builder()
+                .author(author)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build();
+    }
+
+    private static Reply reply(TPUser author, Comment parentComment) {
+        return Reply.builder()
+                .author(author)
+                .parentComment(parentComment)
+                .body("reply body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package org.trickyplay.trickyplayapi.general.jobs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.BaseIntegrationTest;
+import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+@SpringBootTest
+class RefreshTokensPurgeJobIntegrationTest extends BaseIntegrationTest {
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private TPUserRepository tpUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @Transactional
+    void given_1Valid3Expired1RevokedRefreshTokensSavedInDB_when_purgeIsCalledWithChunksOf2_then_onlyTheValidTokenIsLeft() {
+        // given
+        TPUser tPUserSaved = tpUserRepository.save(TPUser.builder()
+                .name("user")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        RefreshToken validTokenSaved = refreshTokenRepository.save(refreshTokenStub(tPUserSaved, "valid", false, Instant.now().plus(1, ChronoUnit.DAYS)));
+        for (int i = 0; i < 3; i++) {
+            refreshTokenRepository.save(refreshTokenStub(tPUserSaved, "expired" + i, false, Instant.now().minus(1, ChronoUnit.DAYS)));
+        }
+        refreshTokenRepository.save(refreshTokenStub(tPUserSaved, "revoked", true, Instant.now().plus(1, ChronoUnit.DAYS)));
+        entityManager.flush();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RefreshTokensPurgeJob refreshTokensPurgeJob = new RefreshTokensPurgeJob(refreshTokenRepository, meterRegistry, 2, 0);
+
+        // when
+        refreshTokensPurgeJob.purge();
+        entityManager.clear();
+
+        // then
+        assertThat(refreshTokenRepository.findAll()).extracting(RefreshToken::getId).containsExactly(validTokenSaved.getId());
+        assertThat(meterRegistry.get("refresh-tokens.purged").tag("reason", "expired").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("refresh-tokens.purged").tag("reason", "revoked").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("refresh-tokens.purge").timer().count()).isEqualTo(1);
+    }
+
+    private static RefreshToken refreshTokenStub(TPUser owner, String token, boolean revoked, Instant expiryDate) {
+        return RefreshToken.builder()
+                .owner(owner)
+                .token(token)
+                .revoked(revoked)
+                .expiryDate(expiryDate)
+                .build();
+    }
+}
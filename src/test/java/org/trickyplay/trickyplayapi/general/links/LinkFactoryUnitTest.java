@@ -0,0 +1,79 @@
+package org.trickyplay.trickyplayapi.general.links;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import org.trickyplay.trickyplayapi.comments.controllers.CommentsController;
+import org.trickyplay.trickyplayapi.replies.controllers.RepliesController;
+import org.trickyplay.trickyplayapi.users.controllers.UsersController;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class LinkFactoryUnitTest {
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void given_noCurrentRequest_when_linksAreBuilt_then_theyAreEqualToTheLinksOfLinkTo() {
+        assertSameLinks();
+    }
+
+    @Test
+    void given_currentRequestBehindProxy_when_linksAreBuilt_then_theyAreEqualToTheLinksOfLinkTo() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/feed");
+        request.setScheme("https");
+        request.setServerName("trickyplay.example");
+        request.setServerPort(8443);
+        request.setContextPath("/api");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        // when, then
+        assertSameLinks();
+        assertThat(LinkFactory.comment(1).getHref()).isEqualTo("https://trickyplay.example:8443/api/comments/1");
+    }
+
+    private static void assertSameLinks() {
+        List<Link> expected = List.of(
+                linkTo(methodOn(CommentsController.class).getSingleComment(7L, null)).withSelfRel(),
+                linkTo(methodOn(CommentsController.class).getCommentsByGameName("TicTacToe", 0, 10, "id", "Asc", null, null, true, null)).withRel("collection"),
+                linkTo(methodOn(RepliesController.class).getSingleReply(8L, null)).withSelfRel(),
+                linkTo(methodOn(RepliesController.class).getRepliesByParentCommentId(7L, 0, 10, "id", "Asc", true, null)).withRel("collection"),
+                linkTo(methodOn(UsersController.class).getUser(9L, null)).withRel("author"),
+                linkTo(methodOn(UsersController.class).getUsers(0, 10, "id", "Asc", true)).withRel("collection"),
+                linkTo(methodOn(UsersController.class).getUserComments(9L, 0, 10, "id", "Asc", true)).withRel("comments-by"),
+                linkTo(methodOn(UsersController.class).getUserReplies(9L, 0, 10, "id", "Asc", true)).withRel("replies-by")
+        );
+        List<Link> actual = List.of(
+                LinkFactory.comment(7L).withSelfRel(),
+                LinkFactory.commentsOfGame("TicTacToe").withRel("collection"),
+                LinkFactory.reply(8L).withSelfRel(),
+                LinkFactory.repliesOfComment(7L).withRel("collection"),
+                LinkFactory.user(9L).withRel("author"),
+                LinkFactory.users().withRel("collection"),
+                LinkFactory.commentsOfUser(9L).withRel("comments-by"),
+                LinkFactory.repliesOfUser(9L).withRel("replies-by")
+        );
+
+        // href, rel and templated are the attributes rendered in the JSON of the representations
+        assertThat(actual).extracting(Link::getHref)
+                .containsExactlyElementsOf(expected.stream().map(Link::getHref).toList());
+        assertThat(actual).extracting(Link::getRel)
+                .containsExactlyElementsOf(expected.stream().map(Link::getRel).toList());
+        assertThat(actual).extracting(Link::isTemplated)
+                .containsExactlyElementsOf(expected.stream().map(Link::isTemplated).toList());
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import org.trickyplay.trickyplayapi.BaseIntegrationTest;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
@@ -20,6 +21,7 @@ import org.trickyplay.trickyplayapi.users.enums.Role;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,6 +37,9 @@ class ReplyRepositoryIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TestEntityManager entityManager; // TestEntityManager provides a subset of EntityManager methods that are useful for tests as well as helper methods for common testing tasks such as persist or find.
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void testMySQLContainerIsRunning() {
         assertThat(mySQLContainer.isRunning()).isTrue();
@@ -539,4 +544,44 @@ class ReplyRepositoryIntegrationTest extends BaseIntegrationTest {
         assertThat(repliesPage.getTotalPages()).isEqualTo(1);
         assertThat(repliesPage.isLast()).isTrue();
     }
-}
\ No newline at end of file
+
+    // The statement mirrors the SQL generated for findAllByParentCommentId sorted by createdAt. type=ALL means a full table scan, "Using filesort" means the rows were sorted after being read
+    @Test
+    void given_repliesOfSeveralCommentsSavedInDB_when_explainingRepliesQuery_then_noFullScanOrFilesortIsReported() {
+        TPUser tpUser = entityManager.persist(TPUser.builder()
+                .name("testUser")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        List<Comment> comments = List.of("Snake", "TicTacToe", "Minesweeper").stream()
+                .map(gameName -> entityManager.persist(Comment.builder()
+                        .author(tpUser)
+                        .gameName(gameName)
+                        .body("comment body")
+                        .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                        .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                        .build()))
+                .toList();
+        for (int i = 0; i < 60; i++) {
+            entityManager.persist(Reply.builder()
+                    .author(tpUser)
+                    .parentComment(comments.get(i % comments.size()))
+                    .body("reply body " + i)
+                    .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusMinutes(i))
+                    .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusMinutes(i))
+                    .build());
+        }
+        entityManager.flush();
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM replies r WHERE r.parent_comment_id = "
+                + comments.get(0).getId() + " ORDER BY r.created_at ASC, r.id ASC LIMIT 11");
+
+        assertThat(plan).hasSize(1);
+        assertThat(plan.get(0).get("type")).isIn("ref", "range");
+        assertThat(plan.get(0).get("key")).isEqualTo("replies_parent_comment_created_at");
+        assertThat(String.valueOf(plan.get(0).get("Extra"))).doesNotContain("filesort");
+    }
+}
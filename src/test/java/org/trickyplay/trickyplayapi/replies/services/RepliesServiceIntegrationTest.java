@@ -1,6 +1,12 @@
 package org.trickyplay.trickyplayapi.replies.services;
 
 import org.junit.jupiter.api.Test;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManager;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.*;
@@ -23,6 +29,7 @@ import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +48,8 @@ class RepliesServiceIntegrationTest extends BaseIntegrationTest {
     private RepliesService repliesService;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
 
     @Test
     void testMySQLContainerIsRunning() {
@@ -169,6 +178,57 @@ class RepliesServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(getRepliesResponse.getReplies().get(1).getId()).isEqualTo(savedSecondReply.getId());
     }
 
+    @Test
+    @Transactional
+    void given_2Users1Comment2RepliesSavedInDB_when_getRepliesByAuthorIdIsCalled_then_pageIsReadWithSingleStatement() {
+        // given
+        TPUser commentAuthorStub = tpUserRepository.save(TPUser.builder()
+                .name("commentAuthor")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        TPUser replyAuthorStub = tpUserRepository.save(TPUser.builder()
+                .name("replyAuthor")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build());
+        Comment commentStub = commentRepository.save(Comment.builder()
+                .author(commentAuthorStub)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build());
+        List.of("first reply body", "second reply body").forEach(body -> replyRepository.save(Reply.builder()
+                .body(body)
+                .author(replyAuthorStub)
+                .parentComment(commentStub)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(3))
+                .build()));
+        // an empty persistence context - loading entities would have to select the reply author, the parent comment and its author again
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        RepliesPageArgs repliesPageArgs = new RepliesPageArgs(0, 10, "id", Sort.Direction.ASC, false);
+        GetRepliesResponse getRepliesResponse = repliesService.getRepliesByAuthorId(replyAuthorStub.getId(), repliesPageArgs);
+
+        // then
+        assertThat(getRepliesResponse.getReplies()).hasSize(2);
+        assertThat(getRepliesResponse.getReplies().get(0).getAuthor().getName()).isEqualTo("replyAuthor");
+        assertThat(getRepliesResponse.getReplies().get(0).getParentComment().getId()).isEqualTo(commentStub.getId());
+        assertThat(getRepliesResponse.getReplies().get(0).getParentComment().getAuthor().getName()).isEqualTo("commentAuthor");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
     // getSingleReply tests -----------------------------------------------
     @Test
     @Transactional
@@ -262,6 +322,62 @@ class RepliesServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(replyRepresentation.getBody()).isEqualTo("new reply body");
     }
 
+    @Test
+    @Transactional
+    void given_2Users1CommentSavedInDB_when_addReplyAndDeleteReplyAreCalled_then_countersOfParentCommentAndAuthorAreUpdated() {
+        // given
+        TPUser commentAuthor = TPUser.builder()
+                .name("commentAuthor")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        TPUser replyAuthor = TPUser.builder()
+                .name("replyAuthor")
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        Comment commentStub = Comment.builder()
+                .author(commentAuthor)
+                .gameName("Snake")
+                .body("comment body")
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(5))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusHours(4))
+                .build();
+        tpUserRepository.save(commentAuthor);
+        tpUserRepository.save(replyAuthor);
+        commentRepository.save(commentStub);
+        TPUserPrincipal replyAuthorPrincipal = TPUserPrincipal.builder()
+                .id(replyAuthor.getId())
+                .name(replyAuthor.getName())
+                .role(replyAuthor.getRole().name())
+                .updatedAt(replyAuthor.getUpdatedAt().toString())
+                .createdAt(replyAuthor.getCreatedAt().toString())
+                .build();
+
+        // when
+        ReplyRepresentation firstReply = repliesService.addReply(replyAuthorPrincipal, AddReplyRequest.builder()
+                .body("first reply body")
+                .parentCommentId(commentStub.getId())
+                .build());
+        repliesService.addReply(replyAuthorPrincipal, AddReplyRequest.builder()
+                .body("second reply body")
+                .parentCommentId(commentStub.getId())
+                .build());
+        repliesService.deleteReply(replyAuthorPrincipal, firstReply.getId());
+        // the counters are changed by UPDATE statements, which bypass the entities managed by the persistence context of the test
+        entityManager.flush();
+        entityManager.clear();
+
+        // then
+        assertThat(commentRepository.findById(commentStub.getId()).orElseThrow().getReplyCount()).isEqualTo(1);
+        assertThat(tpUserRepository.findById(replyAuthor.getId()).orElseThrow().getReplyCount()).isEqualTo(1);
+        assertThat(tpUserRepository.findById(commentAuthor.getId()).orElseThrow().getReplyCount()).isZero();
+    }
+
     // editReply tests -----------------------------------------------
     @Test
     @Transactional
@@ -1,20 +1,26 @@
 package org.trickyplay.trickyplayapi.replies.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.data.domain.*;
 import org.trickyplay.trickyplayapi.comments.entities.Comment;
 import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
 import org.trickyplay.trickyplayapi.general.exceptions.ReplyNotFoundException;
 import org.trickyplay.trickyplayapi.replies.dtos.*;
 import org.trickyplay.trickyplayapi.replies.entities.Reply;
 import org.trickyplay.trickyplayapi.replies.records.RepliesPageArgs;
+import org.trickyplay.trickyplayapi.replies.records.ReplyView;
 import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
@@ -37,6 +43,10 @@ class RepliesServiceUnitTest {
     private ReplyRepository replyRepository;
     @Mock
     private TPUserRepository tpUserRepository;
+    @Spy
+    private TotalCountCache totalCountCache = new TotalCountCache(new SimpleMeterRegistry());
+    @Spy
+    private CommentsFeedCache commentsFeedCache = new CommentsFeedCache(new SimpleMeterRegistry());
     @InjectMocks
     private RepliesService repliesService;
 
@@ -91,9 +101,11 @@ class RepliesServiceUnitTest {
 
         List<Reply> replies = List.of(firstReply, secondReply);
         Pageable page0Size10 = PageRequest.of(0, 10);
-        Page<Reply> repliesPageStub = new PageImpl<>(replies, page0Size10, replies.size());
-        Mockito.when(replyRepository.findAllByParentCommentId(commentStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
+        Page<ReplyView> repliesPageStub = new PageImpl<>(replies.stream().map(ReplyView::of).toList(), page0Size10, replies.size());
+        Mockito.when(replyRepository.findSliceByParentCommentId(commentStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
                 .thenReturn(repliesPageStub);
+        Mockito.when(replyRepository.countByParentCommentId(commentStub.getId()))
+                .thenReturn(2L);
 
         // when
         RepliesPageArgs repliesPageArgs = new RepliesPageArgs(0, 10, "id", Sort.Direction.ASC);
@@ -154,9 +166,11 @@ class RepliesServiceUnitTest {
 
         List<Reply> replies = List.of(firstReply, secondReply);
         Pageable page0Size10 = PageRequest.of(0, 10);
-        Page<Reply> repliesPageStub = new PageImpl<>(replies, page0Size10, replies.size());
-        Mockito.when(replyRepository.findAllByAuthorId(tPUserStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
+        Page<ReplyView> repliesPageStub = new PageImpl<>(replies.stream().map(ReplyView::of).toList(), page0Size10, replies.size());
+        Mockito.when(replyRepository.findSliceByAuthorId(tPUserStub.getId(), PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
                 .thenReturn(repliesPageStub);
+        Mockito.when(replyRepository.countByAuthorId(tPUserStub.getId()))
+                .thenReturn(2L);
 
         // when
         RepliesPageArgs repliesPageArgs = new RepliesPageArgs(0, 10, "id", Sort.Direction.ASC);
@@ -283,6 +297,8 @@ class RepliesServiceUnitTest {
         // then
         assertThat(replyRepresentation.getParentComment().getId()).isEqualTo(commentStub.getId());
         assertThat(replyRepresentation.getBody()).isEqualTo("new reply body");
+        Mockito.verify(commentRepository, Mockito.times(1)).incrementReplyCount(commentStub.getId());
+        Mockito.verify(tpUserRepository, Mockito.times(1)).incrementReplyCount(tPUserStub.getId());
     }
 
     // editReply tests -----------------------------------------------
@@ -456,6 +472,8 @@ class RepliesServiceUnitTest {
 
         // then
         assertThat(deleteReplyResponse.getMessage()).isEqualTo("Reply successfully removed");
+        Mockito.verify(commentRepository, Mockito.times(1)).decrementReplyCount(replyStub.getParentComment().getId());
+        Mockito.verify(tpUserRepository, Mockito.times(1)).decrementReplyCount(replyStub.getAuthor().getId());
     }
 
     @Test
@@ -13,6 +13,7 @@ import org.trickyplay.trickyplayapi.BaseIntegrationTest;
 import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -103,11 +104,48 @@ class RefreshTokenRepositoryIntegrationTest extends BaseIntegrationTest {
         Long userId = entityManager.persist(tPUser).getId();
         Long refreshTokenId = entityManager.persist(refreshToken).getId();
 
-        Optional<RefreshToken> foundObject = refreshTokenRepository.findByToken(token);
+        Optional<RefreshToken> foundObject = refreshTokenRepository.findByTokenHash(RefreshToken.hash(token));
         assertThat(foundObject).isPresent();
-        assertThat(foundObject.get().token).isEqualTo(token);
+        assertThat(foundObject.get().getId()).isEqualTo(refreshTokenId);
+        assertThat(foundObject.get().getTokenHash()).hasSize(32);
 
-        Optional<RefreshToken> unfoundedObject = refreshTokenRepository.findByToken("nonExistentToken");
+        Optional<RefreshToken> unfoundedObject = refreshTokenRepository.findByTokenHash(RefreshToken.hash("nonExistentToken"));
         assertThat(unfoundedObject).isEmpty();
     }
+
+    @Test
+    void given_1User1RefreshTokenSavedInDB_when_findEntryByTokenHashIsCalled_then_returnOwnerIdExpiryDateAndRevoked() {
+        TPUser tPUser = TPUser.builder()
+                .name("testUser")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .refreshTokens(null)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        RefreshToken refreshToken = RefreshToken.builder()
+                .token("test123")
+                .owner(tPUser)
+                .expiryDate(Instant.now().plusMillis(5000))
+                .revoked(false)
+                .build();
+        Long userId = entityManager.persist(tPUser).getId();
+        entityManager.persist(refreshToken);
+
+        Optional<RefreshTokenEntry> foundEntry = refreshTokenRepository.findEntryByTokenHash(RefreshToken.hash("test123"));
+        int revoked = refreshTokenRepository.revokeByTokenHash(RefreshToken.hash("test123"), Instant.now());
+        entityManager.clear();
+
+        assertThat(foundEntry).isPresent();
+        assertThat(foundEntry.get().ownerId()).isEqualTo(userId);
+        assertThat(foundEntry.get().ownerName()).isEqualTo(tPUser.getName());
+        assertThat(foundEntry.get().ownerEnabled()).isTrue();
+        assertThat(foundEntry.get().revoked()).isFalse();
+        assertThat(revoked).isEqualTo(1);
+        assertThat(refreshTokenRepository.findTokenHashesRevokedSince(Instant.now().minusSeconds(60)))
+                .anySatisfy(tokenHash -> assertThat(tokenHash).isEqualTo(RefreshToken.hash("test123")));
+        assertThat(refreshTokenRepository.findEntryByTokenHash(RefreshToken.hash("test123")))
+                .hasValueSatisfying(entry -> assertThat(entry.revoked()).isTrue());
+        assertThat(refreshTokenRepository.revokeByTokenHash(RefreshToken.hash("nonExistentToken"), Instant.now())).isZero();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.trickyplay.trickyplayapi.BaseIntegrationTest;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+@SpringBootTest
+class AccessTokenRevocationServiceIntegrationTest extends BaseIntegrationTest {
+    @Autowired
+    private TPUserRepository tpUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
+
+    @Test
+    @Transactional
+    void given_1UserSavedInDB_when_revokeAccessTokensIsCalled_then_onlyTokensIssuedBeforeTheRevocationAreRevoked() {
+        // given
+        TPUser savedTPUserStub = tpUserRepository.save(userStub("ATRFirstUser"));
+
+        // when
+        accessTokenRevocationService.revokeAccessTokens(savedTPUserStub.getId());
+
+        // then
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), Instant.now().minus(1, ChronoUnit.MINUTES))).isTrue();
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), Instant.now().plusSeconds(2))).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void given_revokedTokensOfUser_when_isRevokedIsCalledAroundTheSecondOfTheRevocation_then_onlyTokensOfEarlierSecondsAreRevoked() {
+        // given
+        TPUser savedTPUserStub = tpUserRepository.save(userStub("ATRThirdUser"));
+        accessTokenRevocationService.revokeAccessTokens(savedTPUserStub.getId());
+        Instant validAfter = tpUserRepository.findTokensValidAfterById(savedTPUserStub.getId()).orElseThrow()
+                .validAfter().toInstant(ZoneOffset.UTC);
+
+        // then - the last millisecond of the previous second is revoked, the whole second of the revocation is not
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), validAfter.minusMillis(1))).isTrue();
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), validAfter)).isFalse();
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), validAfter.plusMillis(999))).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void given_userSignedOutOfAllSessions_when_tokenIsIssuedRightAfter_then_itIsNotRevoked() {
+        // given
+        TPUser savedTPUserStub = tpUserRepository.save(userStub("ATRFourthUser"));
+
+        // when - the sign-in that follows the sign-out within the same second
+        accessTokenRevocationService.revokeAccessTokens(savedTPUserStub.getId());
+        Instant issuedAt = Instant.now();
+
+        // then
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), issuedAt)).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void given_tokensValidAfterChangedByAnotherInstance_when_pollRevocationsIsCalled_then_tokensOfTheUserAreRevokedWithoutReadingTheRowPerRequest() {
+        // given
+        TPUser savedTPUserStub = tpUserRepository.save(userStub("ATRSecondUser"));
+        Instant issuedAt = Instant.now().minus(1, ChronoUnit.MINUTES);
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), issuedAt)).isFalse(); // loads the value of the user
+        tpUserRepository.updateTokensValidAfter(savedTPUserStub.getId(), LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS));
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), issuedAt)).isFalse(); // served from memory
+
+        // when
+        int revocations = accessTokenRevocationService.pollRevocations();
+
+        // then
+        assertThat(revocations).isPositive();
+        assertThat(accessTokenRevocationService.isRevoked(savedTPUserStub.getId(), issuedAt)).isTrue();
+    }
+
+    @Test
+    @Transactional
+    void given_absentUser_when_isRevokedIsCalled_then_returnTrue() {
+        assertThat(accessTokenRevocationService.isRevoked(Long.MAX_VALUE, Instant.now())).isTrue();
+    }
+
+    private TPUser userStub(String name) {
+        return TPUser.builder()
+                .name(name)
+                .password(passwordEncoder.encode("123TestUserPassword"))
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+    }
+}
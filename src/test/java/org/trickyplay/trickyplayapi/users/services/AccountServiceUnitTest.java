@@ -3,16 +3,22 @@ package org.trickyplay.trickyplayapi.users.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.exceptions.NameTakenException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
 import org.trickyplay.trickyplayapi.users.dtos.DeleteAccountResponse;
 import org.trickyplay.trickyplayapi.users.dtos.EditAccountRequest;
@@ -28,14 +34,20 @@ import java.util.Optional;
 @ExtendWith(MockitoExtension.class)
 class AccountServiceUnitTest {
     private TPUserRepository tPUserRepository;
+    private RefreshTokenService refreshTokenService;
+    private AccessTokenRevocationService accessTokenRevocationService;
     private PasswordEncoder passwordEncoder;
+    private UserNameBloomFilter userNameBloomFilter;
     private AccountService accountService;
 
     @BeforeEach
     void setUp() {
         passwordEncoder = NoOpPasswordEncoder.getInstance();
         tPUserRepository = Mockito.mock(TPUserRepository.class);
-        accountService = new AccountService(tPUserRepository, passwordEncoder);
+        refreshTokenService = Mockito.mock(RefreshTokenService.class);
+        accessTokenRevocationService = Mockito.mock(AccessTokenRevocationService.class);
+        userNameBloomFilter = Mockito.mock(UserNameBloomFilter.class);
+        accountService = new AccountService(tPUserRepository, passwordEncoder, new CommentsFeedCache(new SimpleMeterRegistry()), accessTokenRevocationService, refreshTokenService, userNameBloomFilter);
     }
 
     // getAccount tests -----------------------------------------------
@@ -79,10 +91,16 @@ class AccountServiceUnitTest {
                 .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
                 .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
                 .build();
-        Mockito.doNothing().when(tPUserRepository).deleteById(tPUserStub.getId());
+        Mockito.when(tPUserRepository.markDeleted(Mockito.eq(tPUserStub.getId()), Mockito.any(LocalDateTime.class))).thenReturn(1);
 
         DeleteAccountResponse deleteAccountResponse = accountService.deleteAccount(tPUserStub.getId());
         assertThat(deleteAccountResponse.getMessage()).isEqualTo("The account for user with id: " + tPUserStub.getId() + " has been removed");
+        // the account is marked and its tokens revoked at once, the content is left to DeletedAccountsPurgeJob
+        InOrder inOrder = Mockito.inOrder(tPUserRepository, refreshTokenService, accessTokenRevocationService);
+        inOrder.verify(tPUserRepository).markDeleted(Mockito.eq(tPUserStub.getId()), Mockito.any(LocalDateTime.class));
+        inOrder.verify(refreshTokenService).revokeAllUserTokens(tPUserStub.getId());
+        inOrder.verify(accessTokenRevocationService).revokeAccessTokens(tPUserStub.getId());
+        Mockito.verify(tPUserRepository, Mockito.never()).deleteById(Mockito.any());
     }
 
     // editAccount tests -----------------------------------------------
@@ -120,6 +138,29 @@ class AccountServiceUnitTest {
         TPUserRepresentation tPUserRepresentation = accountService.editAccount(tPUserStub.getId(), editAccountRequest);
         assertThat(tPUserRepresentation.getName()).isEqualTo(editAccountRequest.getNewUsername());
         assertThat(tPUserRepresentation.getId()).isEqualTo(tPUserStub.getId());
+        Mockito.verify(userNameBloomFilter).rename("user", "newName");
+    }
+
+    @Test
+    void given_newNameTakenByAnotherUser_when_editAccountIsCalled_then_throwNameTakenException() {
+        TPUser tPUserStub = TPUser.builder()
+                .id(1L)
+                .name("user")
+                .normalizedName("user")
+                .password("123TestUserPassword")
+                .role(Role.USER)
+                .createdAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(10))
+                .updatedAt(LocalDateTime.now(ZoneOffset.UTC).minusDays(9))
+                .build();
+        Mockito.when(tPUserRepository.findById(tPUserStub.getId())).thenReturn(Optional.of(tPUserStub));
+        Mockito.when(userNameBloomFilter.mightContain("TakenName")).thenReturn(true);
+        Mockito.when(tPUserRepository.existsByNormalizedName("takenname")).thenReturn(true);
+        EditAccountRequest editAccountRequest = EditAccountRequest.builder()
+                .newUsername("TakenName")
+                .build();
+
+        assertThrows(NameTakenException.class, () -> accountService.editAccount(tPUserStub.getId(), editAccountRequest));
+        Mockito.verify(tPUserRepository, Mockito.never()).save(Mockito.any(TPUser.class));
     }
 
     @Test
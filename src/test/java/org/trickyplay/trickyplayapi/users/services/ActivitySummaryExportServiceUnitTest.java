@@ -0,0 +1,186 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.mockito.Mockito;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.general.exceptions.ExportJobNotFoundException;
+import org.trickyplay.trickyplayapi.general.exceptions.ExportRejectedException;
+import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
+import org.trickyplay.trickyplayapi.general.records.ResourceVersion;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.enums.ExportStatus;
+import org.trickyplay.trickyplayapi.users.models.ActivitySummaryExport;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class ActivitySummaryExportServiceUnitTest {
+    private static final byte[] PDF = "%PDF-1.4 activity summary".getBytes(StandardCharsets.US_ASCII);
+    private static final LocalDateTime DATE = LocalDateTime.now(ZoneOffset.UTC);
+
+    @TempDir
+    Path spoolDirectory;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PDFGeneratorService pdfGeneratorService;
+    private TPUserRepository userRepository;
+    private ActivitySummaryExportService activitySummaryExportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pdfGeneratorService = Mockito.mock(PDFGeneratorService.class);
+        userRepository = Mockito.mock(TPUserRepository.class);
+        CommentRepository commentRepository = Mockito.mock(CommentRepository.class);
+        ReplyRepository replyRepository = Mockito.mock(ReplyRepository.class);
+        Mockito.when(userRepository.findVersionById(Mockito.anyLong())).thenReturn(new ResourceVersion(0L, null, null, null));
+        Mockito.when(userRepository.findVersionById(1L)).thenReturn(new ResourceVersion(1L, DATE, DATE, 4294967298L));
+        Mockito.when(userRepository.findVersionById(2L)).thenReturn(new ResourceVersion(1L, DATE, DATE, 0L));
+        Mockito.when(commentRepository.findLatestUpdatedAtByAuthorId(1L)).thenReturn(DATE);
+        Mockito.when(replyRepository.findLatestUpdatedAtByAuthorId(1L)).thenReturn(DATE);
+        Mockito.doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write(PDF);
+            return null;
+        }).when(pdfGeneratorService).export(Mockito.anyLong(), Mockito.any(OutputStream.class));
+        activitySummaryExportService = new ActivitySummaryExportService(pdfGeneratorService, userRepository, commentRepository, replyRepository,
+                spoolDirectory, 1, 1, Duration.ofHours(1), Duration.ofSeconds(10), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        activitySummaryExportService.shutdown();
+    }
+
+    @Test
+    void given_unchangedActivity_when_exportIsRequestedTwice_then_renderOnceAndServeTheSecondFromTheFile() throws Exception {
+        ActivitySummaryExport first = activitySummaryExportService.requestExport(1L);
+        awaitStatus(first, ExportStatus.DONE);
+
+        ActivitySummaryExport second = activitySummaryExportService.requestExport(1L);
+
+        assertThat(second.getId()).isNotEqualTo(first.getId());
+        assertThat(second.getStatus()).isEqualTo(ExportStatus.DONE);
+        assertThat(second.getFile()).isEqualTo(first.getFile());
+        assertThat(Files.readAllBytes(second.getFile())).isEqualTo(PDF);
+        Mockito.verify(pdfGeneratorService, Mockito.times(1)).export(Mockito.eq(1L), Mockito.any(OutputStream.class));
+        assertThat(registry.get("activity-summary.export.cache").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("activity-summary.export.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(registry.get("activity-summary.export.render").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void given_changedActivity_when_exportIsRequestedAgain_then_renderNewFile() throws Exception {
+        ActivitySummaryExport first = activitySummaryExportService.requestExport(1L);
+        awaitStatus(first, ExportStatus.DONE);
+        Mockito.when(userRepository.findVersionById(1L)).thenReturn(new ResourceVersion(1L, DATE, DATE, 4294967299L)); // one more reply
+
+        ActivitySummaryExport second = activitySummaryExportService.requestExport(1L);
+        awaitStatus(second, ExportStatus.DONE);
+
+        assertThat(second.getFile()).isNotEqualTo(first.getFile());
+        Mockito.verify(pdfGeneratorService, Mockito.times(2)).export(Mockito.eq(1L), Mockito.any(OutputStream.class));
+    }
+
+    @Test
+    void given_exportOfAnotherUser_when_getExportIsCalled_then_throwExportJobNotFoundException() throws Exception {
+        ActivitySummaryExport export = activitySummaryExportService.requestExport(1L);
+
+        assertThat(activitySummaryExportService.getExport(export.getId(), 1L)).isSameAs(export);
+        assertThrows(ExportJobNotFoundException.class, () -> activitySummaryExportService.getExport(export.getId(), 2L));
+    }
+
+    @Test
+    void given_notExistingUser_when_requestExportIsCalled_then_throwUserNotFoundException() {
+        assertThrows(UserNotFoundException.class, () -> activitySummaryExportService.requestExport(12345L));
+    }
+
+    @Test
+    void given_busyThreadAndFullQueue_when_requestExportIsCalled_then_throwExportRejectedException() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            rendering.countDown();
+            release.await();
+            return null;
+        }).when(pdfGeneratorService).export(Mockito.anyLong(), Mockito.any(OutputStream.class));
+        activitySummaryExportService.requestExport(1L);
+        rendering.await(10, TimeUnit.SECONDS);
+        activitySummaryExportService.requestExport(2L); // queued
+
+        // the same version joins the job that renders it, another version does not fit in the queue
+        assertThat(activitySummaryExportService.requestExport(1L).getStatus()).isEqualTo(ExportStatus.RUNNING);
+        Mockito.when(userRepository.findVersionById(3L)).thenReturn(new ResourceVersion(1L, DATE, DATE, 0L));
+        ExportRejectedException thrown = assertThrows(ExportRejectedException.class, () -> activitySummaryExportService.requestExport(3L));
+        release.countDown();
+
+        assertThat(thrown.getRetryAfter()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(registry.get("activity-summary.export.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void given_renderedExport_when_transferToIsCalled_then_writeTheFileOrHandItToSendfile() throws Exception {
+        ActivitySummaryExport export = activitySummaryExportService.requestExport(1L);
+        awaitStatus(export, ExportStatus.DONE);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        activitySummaryExportService.transferTo(export, new MockHttpServletRequest(), response);
+
+        assertThat(response.getContentType()).isEqualTo("application/pdf");
+        assertThat(response.getContentAsByteArray()).isEqualTo(PDF);
+
+        MockHttpServletRequest sendfileRequest = new MockHttpServletRequest();
+        sendfileRequest.setAttribute(ActivitySummaryExportService.SENDFILE_SUPPORT_ATTRIBUTE, Boolean.TRUE);
+        MockHttpServletResponse sendfileResponse = new MockHttpServletResponse();
+        activitySummaryExportService.transferTo(export, sendfileRequest, sendfileResponse);
+
+        assertThat(sendfileResponse.getContentAsByteArray()).isEmpty();
+        assertThat(sendfileResponse.getContentLengthLong()).isEqualTo(PDF.length);
+        assertThat(sendfileRequest.getAttribute(ActivitySummaryExportService.SENDFILE_FILENAME_ATTRIBUTE)).isEqualTo(export.getFile().toAbsolutePath().toString());
+        assertThat(sendfileRequest.getAttribute(ActivitySummaryExportService.SENDFILE_END_ATTRIBUTE)).isEqualTo((long) PDF.length);
+    }
+
+    @Test
+    void given_expiredExport_when_purgeExpiredIsCalled_then_deleteTheFileAndForgetTheJob() throws Exception {
+        activitySummaryExportService.shutdown();
+        activitySummaryExportService = new ActivitySummaryExportService(pdfGeneratorService, userRepository,
+                Mockito.mock(CommentRepository.class), Mockito.mock(ReplyRepository.class),
+                spoolDirectory, 1, 1, Duration.ZERO, Duration.ofSeconds(10), registry);
+        ActivitySummaryExport export = activitySummaryExportService.requestExport(1L);
+        awaitStatus(export, ExportStatus.DONE);
+        Thread.sleep(10);
+
+        activitySummaryExportService.purgeExpired();
+
+        assertThat(export.getFile()).doesNotExist();
+        assertThrows(ExportJobNotFoundException.class, () -> activitySummaryExportService.getExport(export.getId(), 1L));
+    }
+
+    private static void awaitStatus(ActivitySummaryExport export, ExportStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (export.getStatus() != status && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(export.getStatus()).isEqualTo(status);
+    }
+}
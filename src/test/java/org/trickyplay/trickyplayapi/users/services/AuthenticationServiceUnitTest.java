@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.users.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -12,6 +14,9 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
 import org.trickyplay.trickyplayapi.general.exceptions.RefreshTokenExpiredOrRevokedException;
 import org.trickyplay.trickyplayapi.general.exceptions.RefreshTokenNotFoundException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
@@ -20,10 +25,9 @@ import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
-import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Optional;
@@ -31,7 +35,6 @@ import java.util.Optional;
 class AuthenticationServiceUnitTest {
     private AuthenticationService authenticationService;
     private TPUserRepository tPUserRepository;
-    private RefreshTokenRepository refreshTokenRepository;
     private RefreshTokenService refreshTokenService;
     private PasswordEncoder passwordEncoder;
     private JwtService jwtService;
@@ -45,7 +48,6 @@ class AuthenticationServiceUnitTest {
         passwordEncoder = NoOpPasswordEncoder.getInstance();
 
         tPUserRepository = Mockito.mock(TPUserRepository.class);
-        refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
         authenticationManager = Mockito.mock(AuthenticationManager.class);
 
 //        jwtService = new JwtService(JWT_SECRET_KEY, JWT_EXPIRATION);
@@ -53,7 +55,7 @@ class AuthenticationServiceUnitTest {
         jwtService = Mockito.mock(JwtService.class);
         refreshTokenService = Mockito.mock(RefreshTokenService.class);
 
-        authenticationService = new AuthenticationService(tPUserRepository, refreshTokenService, refreshTokenRepository, passwordEncoder, jwtService, authenticationManager);
+        authenticationService = new AuthenticationService(tPUserRepository, refreshTokenService, passwordEncoder, jwtService, authenticationManager, new TotalCountCache(new SimpleMeterRegistry()), new VerifiedTokenCache(true, 100, new SimpleMeterRegistry()), Mockito.mock(AccessTokenRevocationService.class), Mockito.mock(UserNameBloomFilter.class));
     }
 
     // signIn tests -----------------------------------------------
@@ -78,7 +80,7 @@ class AuthenticationServiceUnitTest {
 
         Mockito.when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(signInRequest.getUsername(), signInRequest.getPassword()))).thenReturn(new UsernamePasswordAuthenticationToken(tPUserPrincipal, signInRequest.getPassword()));
         Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
-        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.anyLong())).thenReturn(RefreshToken.builder()
+        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.any(TPUserPrincipal.class))).thenReturn(RefreshToken.builder()
                 .id(1L)
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .owner(tPUserStub)
@@ -115,7 +117,7 @@ class AuthenticationServiceUnitTest {
 
         Mockito.when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(signInRequest.getUsername(), signInRequest.getPassword()))).thenThrow(BadCredentialsException.class);
         Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
-        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.anyLong())).thenReturn(RefreshToken.builder()
+        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.any(TPUserPrincipal.class))).thenReturn(RefreshToken.builder()
                 .id(1L)
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .owner(tPUserStub)
@@ -147,7 +149,7 @@ class AuthenticationServiceUnitTest {
 
         Mockito.when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(signInRequest.getUsername(), signInRequest.getPassword()))).thenThrow(BadCredentialsException.class);
         Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
-        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.anyLong())).thenReturn(RefreshToken.builder()
+        Mockito.when(refreshTokenService.createAndSaveRefreshToken(Mockito.any(TPUserPrincipal.class))).thenReturn(RefreshToken.builder()
                 .id(1L)
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .owner(tPUserStub)
@@ -181,12 +183,7 @@ class AuthenticationServiceUnitTest {
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
 
-        Mockito.when(refreshTokenRepository.findByToken(refreshTokenStub.getToken())).thenReturn(Optional.of(refreshTokenStub));
-        Mockito.when(refreshTokenRepository.save(Mockito.any(RefreshToken.class)))
-                .thenAnswer(i -> {
-                    // get the first argument passed, in this case we only have one parameter, and it is on place 0
-                    return i.getArgument(0, RefreshToken.class);
-                });
+        Mockito.when(refreshTokenService.revokeToken(refreshTokenStub.getToken())).thenReturn(true);
 
         // when
         SignOutResponse signOutResponse = authenticationService.singleSessionLogout(refreshTokenStub.getToken());
@@ -216,9 +213,9 @@ class AuthenticationServiceUnitTest {
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
         String absentToken = "absent-token";
-        Mockito.when(refreshTokenRepository.findByToken(absentToken)).thenReturn(Optional.empty());
+        Mockito.when(refreshTokenService.revokeToken(absentToken)).thenReturn(false);
 
-        assertThrows(RefreshTokenNotFoundException.class, () -> authenticationService.singleSessionLogout("invalid-token"));
+        assertThrows(RefreshTokenNotFoundException.class, () -> authenticationService.singleSessionLogout(absentToken));
     }
 
     // allSessionsLogout tests -----------------------------------------------
@@ -317,6 +314,7 @@ class AuthenticationServiceUnitTest {
     @Test
     void given_1User1RefreshTokenMockedInRepository_when_refreshAccessTokenIsCalled_then_returnRefreshTokenResponse() {
         TPUser tPUserStub = TPUser.builder()
+                .id(1L)
                 .name("user")
                 .role(Role.USER)
                 .password(passwordEncoder.encode("123TestUserPassword"))
@@ -329,14 +327,8 @@ class AuthenticationServiceUnitTest {
                 .token("token1")
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
-        Mockito.when(refreshTokenService.findByToken(refreshTokenStub.getToken())).thenReturn(Optional.of(refreshTokenStub));
-        Mockito.when(refreshTokenService.verifyIfTokenExpiredOrRevoked(Mockito.any(RefreshToken.class)))
-                .thenAnswer(i -> {
-                    // get the first argument passed
-                    // in this case we only have one parameter, and it is on place 0
-                    RefreshToken refreshToken = i.getArgument(0, RefreshToken.class);
-                    return refreshToken.getExpiryDate().compareTo(Instant.now()) < 0 || refreshToken.isRevoked();
-                });
+        Mockito.when(refreshTokenService.findEntry(refreshTokenStub.getToken())).thenReturn(Optional.of(
+                RefreshTokenEntry.of(new TPUserPrincipal(tPUserStub), refreshTokenStub.getExpiryDate(), refreshTokenStub.isRevoked())));
         Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
 
         RefreshTokenRequest refreshTokenRequest = RefreshTokenRequest.builder().refreshToken(refreshTokenStub.getToken()).build();
@@ -355,6 +347,7 @@ class AuthenticationServiceUnitTest {
     @Test
     void given_1User1RefreshTokenMockedInRepository_when_refreshAccessTokenIsCalledWithRevokedToken_then_throwRefreshTokenExpiredOrRevokedException() {
         TPUser tPUserStub = TPUser.builder()
+                .id(1L)
                 .name("user")
                 .role(Role.USER)
                 .password(passwordEncoder.encode("123TestUserPassword"))
@@ -367,18 +360,40 @@ class AuthenticationServiceUnitTest {
                 .token("token1")
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
-        Mockito.when(refreshTokenService.findByToken(refreshTokenStub.getToken())).thenReturn(Optional.of(refreshTokenStub));
-        Mockito.when(refreshTokenService.verifyIfTokenExpiredOrRevoked(Mockito.any(RefreshToken.class)))
-                .thenAnswer(i -> {
-                    // get the first argument passed
-                    // in this case we only have one parameter, and it is on place 0
-                    RefreshToken refreshToken = i.getArgument(0, RefreshToken.class);
-                    return refreshToken.getExpiryDate().compareTo(Instant.now()) < 0 || refreshToken.isRevoked();
-                });
+        Mockito.when(refreshTokenService.findEntry(refreshTokenStub.getToken())).thenReturn(Optional.of(
+                RefreshTokenEntry.of(new TPUserPrincipal(tPUserStub), refreshTokenStub.getExpiryDate(), refreshTokenStub.isRevoked())));
         Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
 
         RefreshTokenRequest refreshTokenRequest = RefreshTokenRequest.builder().refreshToken(refreshTokenStub.getToken()).build();
 
         assertThrows(RefreshTokenExpiredOrRevokedException.class, () ->  authenticationService.refreshAccessToken(refreshTokenRequest));
     }
-}
\ No newline at end of file
+
+    @Test
+    void given_refreshTokenEntryWithOwnerInfo_when_refreshAccessTokenIsCalled_then_issueAccessTokenWithoutQueryingUsers() {
+        Mockito.when(refreshTokenService.findEntry("token1")).thenReturn(Optional.of(
+                new RefreshTokenEntry(1L, LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC), false,
+                        "user", Role.USER, LocalDateTime.parse("2018-12-30T19:34:50.63"), LocalDateTime.parse("2018-12-30T19:34:50.63"), true)));
+        Mockito.when(jwtService.issueToken(Mockito.any())).thenReturn("token");
+
+        RefreshTokenRequest refreshTokenRequest = RefreshTokenRequest.builder().refreshToken("token1").build();
+
+        RefreshTokenResponse refreshTokenResponse = authenticationService.refreshAccessToken(refreshTokenRequest);
+
+        assertThat(refreshTokenResponse.getAccessToken()).isEqualTo("token");
+        Mockito.verify(jwtService).issueToken(Mockito.argThat(principal -> principal.getId() == 1L && principal.getName().equals("user")));
+        Mockito.verifyNoInteractions(tPUserRepository);
+    }
+
+    @Test
+    void given_refreshTokenEntryOfDeletedAccount_when_refreshAccessTokenIsCalled_then_throwRefreshTokenExpiredOrRevokedException() {
+        Mockito.when(refreshTokenService.findEntry("token1")).thenReturn(Optional.of(
+                new RefreshTokenEntry(1L, LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC), false,
+                        "user", Role.USER, LocalDateTime.parse("2018-12-30T19:34:50.63"), LocalDateTime.parse("2018-12-30T19:34:50.63"), false)));
+
+        RefreshTokenRequest refreshTokenRequest = RefreshTokenRequest.builder().refreshToken("token1").build();
+
+        assertThrows(RefreshTokenExpiredOrRevokedException.class, () -> authenticationService.refreshAccessToken(refreshTokenRequest));
+        Mockito.verifyNoInteractions(jwtService);
+    }
+}
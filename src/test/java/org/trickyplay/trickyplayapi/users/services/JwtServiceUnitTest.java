@@ -1,14 +1,20 @@
 package org.trickyplay.trickyplayapi.users.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import org.junit.jupiter.api.Test;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
 
 import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.users.models.TPUserPrincipal;
+import org.trickyplay.trickyplayapi.users.records.VerifiedToken;
 
+import java.time.Instant;
 import java.util.Date;
 
 class JwtServiceUnitTest {
@@ -83,4 +89,111 @@ class JwtServiceUnitTest {
         JwtService jwtService = new JwtService(secretKey, 1);
         assertThat(jwtService.validateTokenBySignature(testJWT)).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    void given_secretKeyReloaded_when_validateTokenBySignatureIsCalled_then_onlyTokensSignedWithTheNewKeyAreValid() {
+        // given
+        JwtService jwtService = new JwtService(secretKey, 60_000);
+        TPUserPrincipal tPUserPrincipal = TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.USER.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build();
+        String tokenSignedWithPreviousKey = jwtService.issueToken(tPUserPrincipal);
+
+        // when
+        jwtService.reloadSecretKey("q2Zy2lWm1I6Ch2cQ8nYpxA8cF1Q0qKb0tB3kqXkT3nE=");
+        String tokenSignedWithNewKey = jwtService.issueToken(tPUserPrincipal);
+
+        // then
+        assertThat(jwtService.validateTokenBySignature(testJWT)).isFalse();
+        assertThat(jwtService.validateTokenBySignature(tokenSignedWithPreviousKey)).isFalse();
+        assertThat(jwtService.validateTokenBySignature(tokenSignedWithNewKey)).isTrue();
+        assertThat(jwtService.extractTPUserId(tokenSignedWithNewKey)).isEqualTo(1L);
+    }
+
+    @Test
+    void given_JWTWithItsKey_when_verifyIsCalled_then_returnPrincipalExpiryAndAuthorities() {
+        JwtService jwtService = new JwtService(secretKey, 1);
+        VerifiedToken verifiedToken = jwtService.verify(testJWT);
+        assertThat(verifiedToken.principal().getId()).isEqualTo(1L);
+        assertThat(verifiedToken.principal().getName()).isEqualTo("user");
+        assertThat(verifiedToken.expiresAt()).isEqualTo(Instant.parse("3000-02-06T10:36:11.537Z"));
+        assertThat(verifiedToken.authorities()).hasSameElementsAs(Role.USER.getAuthorities());
+    }
+
+    @Test
+    void given_expiredJWT_when_verifyIsCalled_then_throwExpiredJwtException() {
+        JwtService jwtService = new JwtService(secretKey, -60_000);
+        String expiredToken = jwtService.issueToken(TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.USER.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build());
+        assertThatThrownBy(() -> jwtService.verify(expiredToken)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void given_JWTSignedWithAnotherKey_when_verifyIsCalled_then_throwSignatureException() {
+        JwtService jwtService = new JwtService("q2Zy2lWm1I6Ch2cQ8nYpxA8cF1Q0qKb0tB3kqXkT3nE=", 1);
+        assertThatThrownBy(() -> jwtService.verify(testJWT)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void given_notAJWT_when_verifyIsCalled_then_throwMalformedJwtException() {
+        JwtService jwtService = new JwtService(secretKey, 1);
+        assertThatThrownBy(() -> jwtService.verify("not.a.jwt")).isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void given_compactClaims_when_issuedTokenIsVerified_then_returnPrincipalWithAuthoritiesOfTheRole() {
+        // given
+        JwtService jwtService = new JwtService(secretKey, 60_000, true);
+        TPUserPrincipal tPUserPrincipal = TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.ADMIN.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build();
+
+        // when
+        VerifiedToken verifiedToken = jwtService.verify(jwtService.issueToken(tPUserPrincipal));
+
+        // then
+        assertThat(verifiedToken.principal().getId()).isEqualTo(1L);
+        assertThat(verifiedToken.principal().getName()).isEqualTo("user");
+        assertThat(verifiedToken.principal().getRole()).isEqualTo(Role.ADMIN);
+        assertThat(verifiedToken.principal().getCreatedAt()).isEqualTo("2024-02-06T04:22:07");
+        assertThat(verifiedToken.authorities()).hasSameElementsAs(Role.ADMIN.getAuthorities());
+    }
+
+    @Test
+    void given_sameUser_when_tokensOfBothVersionsAreIssued_then_compactPayloadIsLessThanHalfAndBothAreAccepted() {
+        // given
+        TPUserPrincipal tPUserPrincipal = TPUserPrincipal.builder()
+                .id(1L)
+                .name("user")
+                .role(Role.USER.name())
+                .createdAt("2024-02-06T04:22:07")
+                .updatedAt("2024-02-06T04:22:07")
+                .build();
+        JwtService compactJwtService = new JwtService(secretKey, 60_000, true);
+        JwtService legacyJwtService = new JwtService(secretKey, 60_000, false);
+
+        // when
+        String compactToken = compactJwtService.issueToken(tPUserPrincipal);
+        String legacyToken = legacyJwtService.issueToken(tPUserPrincipal);
+
+        // then
+        // header and signature are the same size, the payload of the compact token is less than half as long
+        assertThat(compactToken.split("\\.")[1].length()).isLessThan(legacyToken.split("\\.")[1].length() / 2);
+        assertThat(compactJwtService.extractPrincipal(legacyToken)).isEqualTo(legacyJwtService.extractPrincipal(legacyToken));
+        assertThat(legacyJwtService.extractTPUserName(compactToken)).isEqualTo("user");
+        assertThat(legacyJwtService.extractTPUserRole(compactToken)).isEqualTo(Role.USER);
+    }
+}
@@ -0,0 +1,118 @@
+package org.trickyplay.trickyplayapi.users.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.Mockito;
+
+import org.springframework.data.domain.Pageable;
+
+import org.trickyplay.trickyplayapi.comments.records.CommentExportRow;
+import org.trickyplay.trickyplayapi.comments.repositories.CommentRepository;
+import org.trickyplay.trickyplayapi.replies.records.ReplyExportRow;
+import org.trickyplay.trickyplayapi.replies.repositories.ReplyRepository;
+import org.trickyplay.trickyplayapi.users.entities.TPUser;
+import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//    use the following naming convention: Given_Preconditions_When_StateUnderTest_Then_ExpectedBehavior — Behavior-Driven Development (BDD)
+
+class PDFGeneratorServiceUnitTest {
+    private static final int CHUNK_SIZE = 500;
+    private static final long COMMENTS = 40_000;
+    private static final long REPLIES = 10_000;
+    private static final String BODY = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua";
+    private static final LocalDateTime DATE = LocalDateTime.now(ZoneOffset.UTC);
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final List<Long> heapSamples = new ArrayList<>();
+    private final List<Long> writtenSamples = new ArrayList<>();
+    private CommentRepository commentRepository;
+    private ReplyRepository replyRepository;
+    private PDFGeneratorService pdfGeneratorService;
+    private CountingOutputStream outputStream;
+
+    @BeforeEach
+    void setUp() {
+        commentRepository = Mockito.mock(CommentRepository.class);
+        replyRepository = Mockito.mock(ReplyRepository.class);
+        TPUserRepository tPUserRepository = Mockito.mock(TPUserRepository.class);
+        Mockito.when(tPUserRepository.findById(1L)).thenReturn(Optional.of(TPUser.builder()
+                .id(1L)
+                .name("heavyUser")
+                .role(Role.USER)
+                .createdAt(DATE)
+                .updatedAt(DATE)
+                .build()));
+        pdfGeneratorService = new PDFGeneratorService(commentRepository, replyRepository, tPUserRepository, CHUNK_SIZE);
+        outputStream = new CountingOutputStream();
+    }
+
+    @Test
+    void given_userWith50000CommentsAndReplies_when_exportIsCalled_then_streamEveryChunkWithFlatHeap() throws Exception {
+        // the rows are generated on demand, the "seeded" user costs no memory of its own
+        Mockito.when(commentRepository.findExportRowsByAuthorIdAfterId(Mockito.eq(1L), Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    sample();
+                    long afterId = invocation.getArgument(1, Long.class);
+                    return LongStream.rangeClosed(afterId + 1, Math.min(afterId + CHUNK_SIZE, COMMENTS))
+                            .mapToObj(id -> new CommentExportRow(id, BODY + id, "Minesweeper", 1L, DATE, DATE))
+                            .toList();
+                });
+        Mockito.when(replyRepository.findExportRowsByAuthorIdAfterId(Mockito.eq(1L), Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    sample();
+                    long afterId = invocation.getArgument(1, Long.class);
+                    return LongStream.rangeClosed(afterId + 1, Math.min(afterId + CHUNK_SIZE, REPLIES))
+                            .mapToObj(id -> new ReplyExportRow(id, BODY + id, 1L, DATE, DATE))
+                            .toList();
+                });
+
+        pdfGeneratorService.export(1L, outputStream);
+
+        // every row is read exactly once: 80 + 1 chunks of comments and 20 + 1 chunks of replies
+        Mockito.verify(commentRepository, Mockito.times((int) (COMMENTS / CHUNK_SIZE + 1))).findExportRowsByAuthorIdAfterId(Mockito.eq(1L), Mockito.anyLong(), Mockito.any(Pageable.class));
+        Mockito.verify(replyRepository, Mockito.times((int) (REPLIES / CHUNK_SIZE + 1))).findExportRowsByAuthorIdAfterId(Mockito.eq(1L), Mockito.anyLong(), Mockito.any(Pageable.class));
+        // the pages are written while the rows are read, not at the end
+        assertThat(writtenSamples.get(writtenSamples.size() / 2)).isGreaterThan(outputStream.count / 4);
+        assertThat(outputStream.count).isGreaterThan(1_000_000);
+        // keeping the cells of 50000 rows would take hundreds of megabytes, the live heap grows by less than a few chunks
+        long peakGrowth = heapSamples.stream().mapToLong(Long::longValue).max().orElseThrow() - heapSamples.get(0);
+        assertThat(peakGrowth).isLessThan(32L * 1024 * 1024);
+    }
+
+    // the heap used by live objects, measured after a full collection every 10 chunks
+    private void sample() {
+        writtenSamples.add(outputStream.count);
+        if (writtenSamples.size() % 10 == 1) {
+            System.gc();
+            heapSamples.add(memoryMXBean.getHeapMemoryUsage().getUsed());
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
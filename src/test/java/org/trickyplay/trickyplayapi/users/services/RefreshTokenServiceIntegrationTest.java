@@ -1,5 +1,7 @@
 package org.trickyplay.trickyplayapi.users.services;
 
+import jakarta.persistence.EntityManager;
+
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,6 +37,8 @@ class RefreshTokenServiceIntegrationTest extends BaseIntegrationTest {
 
     @Autowired
     private RefreshTokenService refreshTokenService;
+    @Autowired
+    private EntityManager entityManager;
 
     @Test
     void testMySQLContainerIsRunning() {
@@ -164,7 +168,10 @@ class RefreshTokenServiceIntegrationTest extends BaseIntegrationTest {
         RefreshToken thirdRefreshTokenSaved = refreshTokenRepository.save(thirdRefreshTokenStub);
 
         int numOfRevokedTokens = refreshTokenService.revokeAllUserTokens(tPUserSaved);
+        entityManager.flush();
+        entityManager.clear();
 
         assertThat(numOfRevokedTokens).isEqualTo(3);
+        assertThat(refreshTokenRepository.findAllValidTokensByUser(tPUserSaved.getId())).isEmpty();
     }
 }
\ No newline at end of file
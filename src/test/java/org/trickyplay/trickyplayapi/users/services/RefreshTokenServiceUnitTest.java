@@ -5,14 +5,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.mockito.Mockito;
 
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
 import org.trickyplay.trickyplayapi.users.entities.RefreshToken;
 import org.trickyplay.trickyplayapi.users.entities.TPUser;
 import org.trickyplay.trickyplayapi.users.enums.Role;
+import org.trickyplay.trickyplayapi.users.records.RefreshTokenEntry;
 import org.trickyplay.trickyplayapi.users.repositories.RefreshTokenRepository;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -28,7 +34,7 @@ class RefreshTokenServiceUnitTest {
     void setUp() {
         refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
         tPUserRepository = Mockito.mock(TPUserRepository.class);
-        refreshTokenService = new RefreshTokenService(refreshTokenRepository, tPUserRepository, 5000L);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, tPUserRepository, new RefreshTokenCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry()), 5000L);
         // MockitoAnnotations.initMocks(this); // to enable Mockito annotations during test executions this static method has to be called, another way to enable Mockito annotations is annotating the test class with @RunWith by specifying the MockitoJUnitRunner that does this task and also other useful things
     }
 
@@ -116,7 +122,7 @@ class RefreshTokenServiceUnitTest {
                 .token("asdf")
                 .expiryDate((LocalDateTime.parse("3000-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
-        Mockito.when(refreshTokenRepository.findByToken(refreshTokenStub.getToken())).thenReturn(Optional.of(refreshTokenStub));
+        Mockito.when(refreshTokenRepository.findByTokenHash(Mockito.aryEq(RefreshToken.hash(refreshTokenStub.getToken())))).thenReturn(Optional.of(refreshTokenStub));
 
         RefreshToken result = refreshTokenService.findByToken(refreshTokenStub.getToken()).get();
 
@@ -124,6 +130,70 @@ class RefreshTokenServiceUnitTest {
         assertThat(result.getOwner()).isEqualTo(tPUserStub);
     }
 
+    // findEntry tests -----------------------------------------------
+    @Test
+    void given_1RefreshTokenEntryMockedInRepository_when_findEntryIsCalledTwice_then_queryRepositoryOnce() {
+        RefreshTokenEntry entryStub = new RefreshTokenEntry(1L, Instant.now().plusSeconds(3600), false, "user", Role.USER, LocalDateTime.parse("2018-12-30T19:34:50.63"), LocalDateTime.parse("2018-12-30T19:34:50.63"), true);
+        Mockito.when(refreshTokenRepository.findEntryByTokenHash(Mockito.aryEq(RefreshToken.hash("asdf")))).thenReturn(Optional.of(entryStub));
+
+        Optional<RefreshTokenEntry> firstResult = refreshTokenService.findEntry("asdf");
+        Optional<RefreshTokenEntry> secondResult = refreshTokenService.findEntry("asdf");
+
+        assertThat(firstResult).contains(entryStub);
+        assertThat(secondResult).contains(entryStub);
+        Mockito.verify(refreshTokenRepository).findEntryByTokenHash(Mockito.any());
+        Mockito.verifyNoMoreInteractions(refreshTokenRepository);
+    }
+
+    @Test
+    void given_noRefreshTokenInRepository_when_findEntryIsCalledTwice_then_queryRepositoryTwice() {
+        Mockito.when(refreshTokenRepository.findEntryByTokenHash(Mockito.any())).thenReturn(Optional.empty());
+
+        assertThat(refreshTokenService.findEntry("absent")).isEmpty();
+        assertThat(refreshTokenService.findEntry("absent")).isEmpty();
+
+        Mockito.verify(refreshTokenRepository, Mockito.times(2)).findEntryByTokenHash(Mockito.any());
+    }
+
+    // revokeToken tests -----------------------------------------------
+    @Test
+    void given_1CachedRefreshToken_when_revokeTokenIsCalled_then_returnTrueAndServeRevokedEntryFromCache() {
+        RefreshTokenEntry entryStub = new RefreshTokenEntry(1L, Instant.now().plusSeconds(3600), false, "user", Role.USER, LocalDateTime.parse("2018-12-30T19:34:50.63"), LocalDateTime.parse("2018-12-30T19:34:50.63"), true);
+        Mockito.when(refreshTokenRepository.findEntryByTokenHash(Mockito.any())).thenReturn(Optional.of(entryStub));
+        Mockito.when(refreshTokenRepository.revokeByTokenHash(Mockito.aryEq(RefreshToken.hash("asdf")), Mockito.any())).thenReturn(1);
+        refreshTokenService.findEntry("asdf");
+
+        boolean result = refreshTokenService.revokeToken("asdf");
+
+        assertThat(result).isTrue();
+        assertThat(refreshTokenService.findEntry("asdf")).hasValueSatisfying(entry -> assertThat(entry.revoked()).isTrue());
+        Mockito.verify(refreshTokenRepository).findEntryByTokenHash(Mockito.any());
+    }
+
+    @Test
+    void given_noRefreshTokenInRepository_when_revokeTokenIsCalled_then_returnFalse() {
+        Mockito.when(refreshTokenRepository.revokeByTokenHash(Mockito.any(), Mockito.any())).thenReturn(0);
+
+        boolean result = refreshTokenService.revokeToken("absent");
+
+        assertThat(result).isFalse();
+    }
+
+    // pollRevocations tests -----------------------------------------------
+    @Test
+    void given_1CachedRefreshTokenRevokedOnAnotherInstance_when_pollRevocationsIsCalled_then_serveRevokedEntryFromCache() {
+        RefreshTokenEntry entryStub = new RefreshTokenEntry(1L, Instant.now().plusSeconds(3600), false, "user", Role.USER, LocalDateTime.parse("2018-12-30T19:34:50.63"), LocalDateTime.parse("2018-12-30T19:34:50.63"), true);
+        Mockito.when(refreshTokenRepository.findEntryByTokenHash(Mockito.any())).thenReturn(Optional.of(entryStub));
+        Mockito.when(refreshTokenRepository.findTokenHashesRevokedSince(Mockito.any())).thenReturn(List.of(RefreshToken.hash("asdf")));
+        refreshTokenService.findEntry("asdf");
+
+        int result = refreshTokenService.pollRevocations();
+
+        assertThat(result).isEqualTo(1);
+        assertThat(refreshTokenService.findEntry("asdf")).hasValueSatisfying(entry -> assertThat(entry.revoked()).isTrue());
+        Mockito.verify(refreshTokenRepository).findEntryByTokenHash(Mockito.any());
+    }
+
     // deleteTokenIfExpired tests -----------------------------------------------
     @Test
     void given_1User1RefreshTokenMockedInRepository_when_deleteTokenIfExpiredIsCalled_then_returnCorrespondingBooleanValue() {
@@ -215,8 +285,7 @@ class RefreshTokenServiceUnitTest {
                 .expiryDate((LocalDateTime.parse("2018-12-30T19:34:50.63").toInstant(ZoneOffset.UTC)))
                 .build();
         tPUserStub.setRefreshTokens(List.of(firstRefreshTokenStub, secondRefreshTokenStub, thirdRefreshTokenStub));
-        Mockito.when(refreshTokenRepository.findAllValidTokensByUser(tPUserStub.getId())).thenReturn(tPUserStub.getRefreshTokens());
-        Mockito.when(refreshTokenRepository.saveAll(Mockito.anyList())).thenReturn(tPUserStub.getRefreshTokens());
+        Mockito.when(refreshTokenRepository.revokeAllValidTokensByOwnerId(Mockito.eq(tPUserStub.getId()), Mockito.any())).thenReturn(tPUserStub.getRefreshTokens().size());
 
         int numOfRevokedTokens = refreshTokenService.revokeAllUserTokens(tPUserStub);
 
@@ -3,16 +3,24 @@ package org.trickyplay.trickyplayapi.users.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.data.domain.*;
 
+import org.trickyplay.trickyplayapi.general.caches.CommentsFeedCache;
+import org.trickyplay.trickyplayapi.general.caches.RefreshTokenCache;
+import org.trickyplay.trickyplayapi.general.caches.TotalCountCache;
+import org.trickyplay.trickyplayapi.general.caches.UserNameBloomFilter;
+import org.trickyplay.trickyplayapi.general.caches.VerifiedTokenCache;
 import org.trickyplay.trickyplayapi.general.exceptions.OperationNotAllowedException;
 import org.trickyplay.trickyplayapi.general.exceptions.UserNotFoundException;
 import org.trickyplay.trickyplayapi.users.dtos.GetUsersResponse;
@@ -22,6 +30,7 @@ import org.trickyplay.trickyplayapi.users.enums.Role;
 import org.trickyplay.trickyplayapi.users.records.UsersPageArgs;
 import org.trickyplay.trickyplayapi.users.repositories.TPUserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -31,6 +40,18 @@ import java.util.Optional;
 class UsersServiceUnitTest {
     @Mock
     private TPUserRepository tPUserRepository;
+    @Spy
+    private TotalCountCache totalCountCache = new TotalCountCache(new SimpleMeterRegistry());
+    @Spy
+    private CommentsFeedCache commentsFeedCache = new CommentsFeedCache(new SimpleMeterRegistry());
+    @Spy
+    private VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(true, 100, new SimpleMeterRegistry());
+    @Spy
+    private RefreshTokenCache refreshTokenCache = new RefreshTokenCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    @Mock
+    private AccessTokenRevocationService accessTokenRevocationService;
+    @Mock
+    private UserNameBloomFilter userNameBloomFilter;
     @InjectMocks
     private UsersService usersService;
 
@@ -72,8 +93,10 @@ class UsersServiceUnitTest {
         Pageable page0Size10 = PageRequest.of(0, 10);
         Page<TPUser> usersPageStub = new PageImpl<>(users, page0Size10, users.size());
 
-        Mockito.when(tPUserRepository.findAll(PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
+        Mockito.when(tPUserRepository.findSliceOfUsers(PageRequest.of(0, 10, Sort.Direction.ASC, "id")))
                 .thenReturn(usersPageStub);
+        Mockito.when(tPUserRepository.count())
+                .thenReturn(3L);
 
         // when
         UsersPageArgs usersPageArgs = new UsersPageArgs(0, 10, "id", Sort.Direction.ASC);
@@ -357,4 +380,30 @@ class UsersServiceUnitTest {
         // then
         assertThat(doesExist).isTrue();
     }
-}
\ No newline at end of file
+
+    // isNameAvailable tests -----------------------------------------------
+    @Test
+    void given_nameTakenOnAnotherInstance_when_isNameAvailableIsCalled_then_askRepositoryWithNormalizedNameInsteadOfFilter() {
+        Mockito.when(tPUserRepository.existsByNormalizedName("takenname")).thenReturn(true);
+
+        assertThat(usersService.isNameAvailable("TakenName")).isFalse();
+        Mockito.verifyNoInteractions(userNameBloomFilter);
+    }
+
+    // isNameAvailableForSignUp tests -----------------------------------------------
+    @Test
+    void given_nameAbsentFromFilter_when_isNameAvailableForSignUpIsCalled_then_returnTrueWithoutQuery() {
+        Mockito.when(userNameBloomFilter.mightContain("freeName")).thenReturn(false);
+
+        assertThat(usersService.isNameAvailableForSignUp("freeName")).isTrue();
+        Mockito.verify(tPUserRepository, Mockito.never()).existsByNormalizedName(Mockito.anyString());
+    }
+
+    @Test
+    void given_nameMaybePresentInFilter_when_isNameAvailableForSignUpIsCalled_then_askRepositoryWithNormalizedName() {
+        Mockito.when(userNameBloomFilter.mightContain("TakenName")).thenReturn(true);
+        Mockito.when(tPUserRepository.existsByNormalizedName("takenname")).thenReturn(true);
+
+        assertThat(usersService.isNameAvailableForSignUp("TakenName")).isFalse();
+    }
+}